@@ -0,0 +1,133 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-frame allocation budgets for the simulation and draw hot paths. Each path runs
+// warmed-up frames of a benchmark scene while com.sun.management.ThreadMXBean counts the
+// bytes this thread allocates; a path over its budget fails the run with status 1.
+// Budgets sit just above the most each path allocated over ten runs, so any real increase
+// fails. Tighten them when a path gets cheaper, and only raise one deliberately.
+// Run: java -Djava.awt.headless=true -cp bin game.AllocationBudget [frames]
+public class AllocationBudget {
+    private static final int WARMUP_FRAMES = 300;
+
+    private static class Path {
+        final String name;
+        final long budgetBytes;
+        final Runnable frame;
+
+        Path(String name, long budgetBytes, Runnable frame) {
+            this.name = name;
+            this.budgetBytes = budgetBytes;
+            this.frame = frame;
+        }
+    }
+
+    private static List<Path> paths() {
+        List<Path> paths = new ArrayList<>();
+
+        // Simulation: one scripted tick per frame, including whatever the scene spawns
+        paths.add(update(BenchmarkScene.IDLE_LEVEL_1, 320));
+        paths.add(update(BenchmarkScene.MAX_SPLIT_CASCADE, 576));
+        paths.add(update(BenchmarkScene.PARTICLES_5000, 13 * 1024));
+        paths.add(update(BenchmarkScene.BEAM_200_BUBBLES, 768));
+        // A single-threaded bot decision: every plan copied into its scratch engine and played out
+        GameEngine game = warmed(BenchmarkScene.IDLE_LEVEL_1);
+        SearchBot bot = new SearchBot(1);
+        paths.add(new Path("bot/decision", 64, () -> bot.decide(game)));
+
+        // Individual draw paths with the game's rendering hints, each drawing the entities
+        // of one kind from its scene
+        BufferedImage image = new BufferedImage(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        GameEngine bubbles = warmed(BenchmarkScene.BEAM_200_BUBBLES);
+        paths.add(new Path("draw/bubbles (200)", 480 * 1024, () -> {
+            Graphics2D g = image.createGraphics();
+            RenderPipeline.applyHints(g);
+            for (Bubble bubble : bubbles.getBubbles()) {
+                bubble.draw(g);
+            }
+            g.dispose();
+        }));
+        GameEngine particles = warmed(BenchmarkScene.PARTICLES_5000);
+        paths.add(new Path("draw/particles (500)", 13 * 1024, () -> {
+            Graphics2D g = image.createGraphics();
+            RenderPipeline.applyHints(g);
+            for (Particle particle : particles.getParticles().subList(0, 500)) {
+                particle.draw(g);
+            }
+            g.dispose();
+        }));
+        Projectile projectile = new Projectile(Constants.WINDOW_WIDTH / 2.0);
+        paths.add(new Path("draw/projectile", 12800, () -> {
+            Graphics2D g = image.createGraphics();
+            RenderPipeline.applyHints(g);
+            projectile.draw(g);
+            g.dispose();
+        }));
+        Player player = new Player();
+        paths.add(new Path("draw/player", 6 * 1024, () -> {
+            Graphics2D g = image.createGraphics();
+            RenderPipeline.applyHints(g);
+            player.draw(g);
+            g.dispose();
+        }));
+
+        // Whole frames through GameRenderer, which includes the HUD and overlays
+        paths.add(render(BenchmarkScene.IDLE_LEVEL_1, 32 * 1024));
+        paths.add(render(BenchmarkScene.BEAM_200_BUBBLES, 720 * 1024));
+        paths.add(render(BenchmarkScene.GAME_OVER_OVERLAY, 48 * 1024));
+        return paths;
+    }
+
+    private static Path update(BenchmarkScene scene, long budgetBytes) {
+        GameEngine engine = scene.create(true);
+        int[] tick = {0};
+        return new Path("update/" + scene.getSceneName(), budgetBytes, () -> scene.step(engine, tick[0]++));
+    }
+
+    private static Path render(BenchmarkScene scene, long budgetBytes) {
+        HeadlessRenderer renderer = new HeadlessRenderer(warmed(scene));
+        return new Path("render/" + scene.getSceneName(), budgetBytes, renderer::render);
+    }
+
+    private static GameEngine warmed(BenchmarkScene scene) {
+        GameEngine engine = scene.create(true);
+        for (int t = 0; t < HeadlessRenderer.SCENE_WARMUP_TICKS; t++) {
+            scene.step(engine, t);
+        }
+        return engine;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation accounting is not supported by this JVM");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        boolean ok = true;
+        for (Path path : paths()) {
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                path.frame.run();
+            }
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < frames; i++) {
+                path.frame.run();
+            }
+            long perFrame = (threads.getThreadAllocatedBytes(thread) - before) / frames;
+            boolean pass = perFrame <= path.budgetBytes;
+            System.out.printf("%s %-32s %10d B/frame  (budget %d)%n",
+                pass ? "PASS" : "FAIL", path.name, perFrame, path.budgetBytes);
+            ok &= pass;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+}
@@ -0,0 +1,123 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+// Arena mode against the same scene done the plain way: the arena-4000-bubbles scene simulated
+// with and without far bubbles deferred, and drawn through the column indexes against drawing
+// every bubble and particle. First checks that a deferred bubble's catch-up lands where
+// stepping it tick by tick would have, to within rounding.
+// Run: java -Djava.awt.headless=true -cp bin game.ArenaBenchmark [updates] [frames]
+public class ArenaBenchmark {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        double error = catchUpError(20000);
+        System.out.printf("catch-up vs stepping: largest difference %.2e px over 20000 bubbles%n", error);
+
+        BenchmarkScene scene = BenchmarkScene.ARENA_4000_BUBBLES;
+        GameEngine deferring = scene.create(true);
+        GameEngine stepping = scene.create(true);
+        stepping.setDeferFar(false);
+        int tick = 0;
+        for (; tick < updates / 5; tick++) {
+            scene.step(deferring, tick);
+            scene.step(stepping, tick);
+        }
+        for (int round = 0; round < 5; round++, tick += updates) {
+            double deferred = simulate(scene, deferring, tick, updates);
+            double full = simulate(scene, stepping, tick, updates);
+            System.out.printf("round %d: update %.3f ms with far bubbles deferred, %.3f ms all in full (%.1fx)%n",
+                round, deferred, full, full / deferred);
+        }
+
+        GameEngine engine = scene.create(true);
+        for (int t = 0; t < 600; t++) {
+            scene.step(engine, t);
+        }
+        GameRenderer renderer = new GameRenderer(engine);
+        BufferedImage image = new BufferedImage(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                Graphics2D g = image.createGraphics();
+                RenderPipeline.applyHints(g);
+                renderer.drawArenaEntities(g, engine.getViewLeft());
+                g.dispose();
+            }
+            double culled = (System.nanoTime() - start) / 1e6 / frames;
+            start = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                Graphics2D g = image.createGraphics();
+                drawEverything(engine, g);
+                g.dispose();
+            }
+            double everything = (System.nanoTime() - start) / 1e6 / frames;
+            System.out.printf("round %d: entities %.2f ms a frame through the indexes, %.2f ms drawing all %d bubbles and %d particles%n",
+                round, culled, everything, engine.getBubbles().size(), engine.getParticles().size());
+        }
+        System.exit(error < 1e-6 ? 0 : 1);
+    }
+
+    // Milliseconds per scripted update
+    private static double simulate(BenchmarkScene scene, GameEngine engine, int from, int updates) {
+        long start = System.nanoTime();
+        for (int t = from; t < from + updates; t++) {
+            scene.step(engine, t);
+        }
+        return (System.nanoTime() - start) / 1e6 / updates;
+    }
+
+    // The unculled baseline: GameRenderer.drawArenaEntities without the indexes
+    private static void drawEverything(GameEngine engine, Graphics2D g) {
+        RenderPipeline.applyHints(g);
+        g.translate(-engine.getViewLeft(), 0);
+        for (Particle particle : engine.getParticles()) {
+            particle.draw(g);
+        }
+        engine.getPlayer().draw(g);
+        for (Bubble bubble : engine.getBubbles()) {
+            bubble.draw(g);
+        }
+        for (Projectile proj : engine.getProjectiles()) {
+            proj.draw(g);
+        }
+        g.translate(engine.getViewLeft(), 0);
+    }
+
+    // Pairs of identical bubbles, one stepped and one deferred and caught up, over random spans
+    private static double catchUpError(int count) {
+        SplittableRandom random = new SplittableRandom(BenchmarkScene.SEED);
+        double width = Constants.MAX_ARENA_SCREENS * (double) Constants.WINDOW_WIDTH;
+        double worst = 0;
+        for (int i = 0; i < count; i++) {
+            int size = i % 3 == 0 ? Constants.BUBBLE_LARGE : i % 3 == 1 ? Constants.BUBBLE_MEDIUM : Constants.BUBBLE_SMALL;
+            double x = random.nextDouble() * (width - size);
+            double y = random.nextDouble() * (Constants.GROUND_LEVEL - size - 1);
+            double vx = (random.nextDouble() - 0.5) * 6;
+            double vy = (random.nextDouble() - 0.5) * 20;
+            Bubble stepped = new Bubble(x, y, size, vx, vy, 0, 0.1, 0);
+            stepped.setArenaWidth(width);
+            for (int span = 0; span < 20; span++) {
+                // Each span starts level: across spans the closed form's rounding differs from
+                // stepping's by ulps, and a bounce that lands exactly on a limit can go either way
+                Bubble deferred = new Bubble(stepped.getX(), stepped.getY(), size,
+                    stepped.getVelocityX(), stepped.getVelocityY(), 0, 0.1, 0);
+                deferred.setArenaWidth(width);
+                int ticks = 1 + random.nextInt(4 * GameEngine.FAR_BATCH);
+                for (int t = 0; t < ticks; t++) {
+                    stepped.update();
+                }
+                // The first call only sets the bubble's clock
+                deferred.catchUp(0);
+                deferred.catchUp(ticks);
+                worst = Math.max(worst, Math.max(Math.abs(stepped.getX() - deferred.getX()),
+                    Math.abs(stepped.getY() - deferred.getY())));
+            }
+        }
+        return worst;
+    }
+}
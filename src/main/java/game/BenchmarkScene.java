@@ -0,0 +1,177 @@
+package game;
+
+import java.util.List;
+
+// Named, repeatable workloads built directly on GameEngine state. Every scene is seeded
+// and scripted, so simulation benchmarks, headless render benchmarks and the in-game
+// frame-time overlay (-Dbubble.scene=<name>, F3) all measure the same thing on any machine.
+public enum BenchmarkScene {
+    IDLE_LEVEL_1("idle-level-1") {
+        @Override
+        void setUp(GameEngine engine) {
+        }
+    },
+    MAX_SPLIT_CASCADE("max-split-cascade") {
+        // A column of large bubbles over the player, fired at every tick a shot is available
+        @Override
+        void setUp(GameEngine engine) {
+            engine.getBubbles().clear();
+            drive(engine, 0);
+        }
+
+        @Override
+        void drive(GameEngine engine, int tick) {
+            // Restack once the cascade has mostly burned down, so the level never completes
+            if (engine.getBubbles().size() < 10) {
+                double x = engine.getPlayer().getCenterX() - Constants.BUBBLE_LARGE / 2.0;
+                for (int i = 0; i < 40; i++) {
+                    addBubble(engine, x + (i % 5) * 4, 40 + (i * 11) % 300, Constants.BUBBLE_LARGE,
+                        i % 2 == 0 ? Constants.BUBBLE_SPEED : -Constants.BUBBLE_SPEED);
+                }
+            }
+            engine.shoot();
+        }
+    },
+    PARTICLES_5000("5000-particles") {
+        // Celebration-style sparkles. Emission is spread over a particle lifetime, so after
+        // the first burst dies out about 5,000 particles of staggered ages stay alive
+        @Override
+        void setUp(GameEngine engine) {
+            emit(engine, 5000);
+        }
+
+        @Override
+        void drive(GameEngine engine, int tick) {
+            emit(engine, 5000 / Constants.PARTICLE_LIFETIME + 1);
+        }
+
+        private void emit(GameEngine engine, int limit) {
+            List<Particle> particles = engine.getParticles();
+            for (int i = 0; i < limit && particles.size() < 5000; i++) {
+                double x = engine.getRandom().nextDouble() * Constants.WINDOW_WIDTH;
+                double vx = (engine.getRandom().nextDouble() - 0.5) * 4;
+                double vy = -engine.getRandom().nextDouble() * 8 - 5;
+                particles.add(new Particle(x, Constants.GROUND_LEVEL, vx, vy,
+                    Constants.COLOR_PARTICLE_SPARKLE, engine.getRandom()));
+            }
+        }
+    },
+    BEAM_200_BUBBLES("beam-200-bubbles") {
+        // 200 small and medium bubbles with the beam fired whenever possible; popped bubbles are replaced
+        @Override
+        void setUp(GameEngine engine) {
+            engine.getBubbles().clear();
+            drive(engine, 0);
+        }
+
+        @Override
+        void drive(GameEngine engine, int tick) {
+            for (int i = engine.getBubbles().size(); i < 200; i++) {
+                int n = tick + i;
+                int size = n % 2 == 0 ? Constants.BUBBLE_SMALL : Constants.BUBBLE_MEDIUM;
+                addBubble(engine, (n * 73) % (Constants.WINDOW_WIDTH - size), 20 + (n * 29) % 400, size,
+                    n % 3 == 0 ? Constants.BUBBLE_SPEED : -Constants.BUBBLE_SPEED);
+            }
+            engine.shoot();
+        }
+    },
+    ARENA_4000_BUBBLES("arena-4000-bubbles") {
+        // The widest arena with 4,000 bubbles spread over it. The player walks from one end to
+        // the other and back, firing whenever possible; popped bubbles are replaced
+        @Override
+        void setUp(GameEngine engine) {
+            engine.setArenaScreens(Constants.MAX_ARENA_SCREENS);
+            engine.getBubbles().clear();
+            drive(engine, 0);
+        }
+
+        @Override
+        void drive(GameEngine engine, int tick) {
+            int width = (int) engine.getArenaWidth();
+            for (int i = engine.getBubbles().size(); i < 4000; i++) {
+                int n = tick * 7 + i;
+                int size = n % 3 == 0 ? Constants.BUBBLE_LARGE : n % 3 == 1 ? Constants.BUBBLE_MEDIUM : Constants.BUBBLE_SMALL;
+                addBubble(engine, (n * 197) % (width - size), 20 + (n * 29) % 400, size,
+                    n % 2 == 0 ? Constants.BUBBLE_SPEED : -Constants.BUBBLE_SPEED);
+            }
+            boolean right = (tick / 1500) % 2 == 0;
+            engine.getPlayer().setMovingRight(right);
+            engine.getPlayer().setMovingLeft(!right);
+            engine.shoot();
+        }
+    },
+    GAME_OVER_OVERLAY("game-over-overlay") {
+        @Override
+        void setUp(GameEngine engine) {
+            for (int i = 0; i < 30; i++) {
+                engine.update();
+            }
+            engine.setGameOver(true);
+        }
+    };
+
+    public static final long SEED = 20240101L;
+
+    private final String sceneName;
+
+    BenchmarkScene(String sceneName) {
+        this.sceneName = sceneName;
+    }
+
+    abstract void setUp(GameEngine engine);
+
+    // Scripted input applied before every update() while the scene runs
+    void drive(GameEngine engine, int tick) {
+    }
+
+    public String getSceneName() { return sceneName; }
+
+    public GameEngine create(boolean headless) {
+        GameEngine engine = new GameEngine(SEED, headless);
+        engine.setInvulnerable(true);
+        setUp(engine);
+        return engine;
+    }
+
+    // One scripted tick: input, then simulation
+    public void step(GameEngine engine, int tick) {
+        drive(engine, tick);
+        engine.update();
+    }
+
+    public static BenchmarkScene byName(String name) {
+        for (BenchmarkScene scene : values()) {
+            if (scene.sceneName.equals(name) || scene.name().equalsIgnoreCase(name)) {
+                return scene;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scene: " + name);
+    }
+
+    private static void addBubble(GameEngine engine, double x, double y, int size, double velocityX) {
+        Bubble bubble = new Bubble(x, y, size, velocityX, engine.getRandom());
+        bubble.setArenaWidth(engine.getArenaWidth());
+        engine.getBubbles().add(bubble);
+    }
+
+    // Simulation throughput per scene.
+    // Run: java -cp bin game.BenchmarkScene [ticks]
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        for (BenchmarkScene scene : values()) {
+            GameEngine engine = scene.create(true);
+            for (int t = 0; t < ticks / 5; t++) {
+                scene.step(engine, t); // warm-up
+            }
+            engine = scene.create(true);
+            long start = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                scene.step(engine, t);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%-22s %10.0f ticks/s  (%.3f ms/tick, %d bubbles, %d particles)%n",
+                scene.sceneName, ticks / (elapsed / 1e9), elapsed / 1e6 / ticks,
+                engine.getBubbles().size(), engine.getParticles().size());
+        }
+    }
+}
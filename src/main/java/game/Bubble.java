@@ -5,15 +5,32 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.BasicStroke;
 import java.awt.GradientPaint;
+import java.util.random.RandomGenerator;
 
 public class Bubble {
+    private static final double CATCH_UP_MARGIN = 1e-6;
+
     private double x, y;
     private double velocityX, velocityY;
+    // Position before and after each tick of the last advance(), for the swept collision tests
+    private double[] pathX = new double[2], pathY = new double[2];
+    private int steps;
+    // Tick of the engine's step the path starts at; later than 0 for a half split off mid-step
+    private int firstStep;
+    // The rest of the state the path starts from, for cut()
+    private double startVelocityX, startVelocityY, startWobble;
+    private float startPulse;
     private int size;
     private boolean active;
     private double wobbleOffset = 0;
     private double wobbleSpeed;
     private float pulsePhase = 0;
+    // Updates left during which this bubble provably can't reach the player (BubbleTrajectory)
+    private int playerClearTicks = 0;
+    // Right-hand wall; wider than the window in arena mode
+    private double arenaWidth = Constants.WINDOW_WIDTH;
+    // Arena mode: the engine tick this bubble's state is for (catchUp()), -1 until it is first seen
+    private long tick = -1;
     
     // Pre-calculated colors to avoid object creation
     private static final Color BUBBLE_LIGHT = new Color(180, 220, 255, 200);
@@ -22,32 +39,151 @@ public class Bubble {
     private static final Color SHINE_COLOR = new Color(255, 255, 255, 150);
     private static final Color OUTLINE_COLOR = new Color(200, 230, 255, 180);
     
-    public Bubble(double x, double y, int size, double velocityX) {
+    public Bubble(double x, double y, int size, double velocityX, RandomGenerator random) {
+        reset(x, y, size, velocityX, random);
+    }
+    
+    // A new bubble in a used object, as the constructor makes it (GameEngine's scratch copies)
+    void reset(double x, double y, int size, double velocityX, RandomGenerator random) {
         this.x = x;
         this.y = y;
         this.size = size;
         this.velocityX = velocityX;
         this.velocityY = 0;
         this.active = true;
-        this.wobbleSpeed = Math.random() * 0.1 + 0.05;
+        this.wobbleOffset = 0;
+        this.wobbleSpeed = random.nextDouble() * 0.1 + 0.05;
+        this.pulsePhase = 0;
+        this.playerClearTicks = 0;
+        stay();
+        this.arenaWidth = Constants.WINDOW_WIDTH;
+        this.tick = -1;
+    }
+    
+    // Every field of `other`, for GameEngine.copyFrom
+    void copyFrom(Bubble other) {
+        x = other.x;
+        y = other.y;
+        velocityX = other.velocityX;
+        velocityY = other.velocityY;
+        if (pathX.length < other.pathX.length) {
+            pathX = new double[other.pathX.length];
+            pathY = new double[other.pathY.length];
+        }
+        System.arraycopy(other.pathX, 0, pathX, 0, other.steps + 1);
+        System.arraycopy(other.pathY, 0, pathY, 0, other.steps + 1);
+        steps = other.steps;
+        firstStep = other.firstStep;
+        startVelocityX = other.startVelocityX;
+        startVelocityY = other.startVelocityY;
+        startWobble = other.startWobble;
+        startPulse = other.startPulse;
+        size = other.size;
+        active = other.active;
+        wobbleOffset = other.wobbleOffset;
+        wobbleSpeed = other.wobbleSpeed;
+        pulsePhase = other.pulsePhase;
+        playerClearTicks = other.playerClearTicks;
+        arenaWidth = other.arenaWidth;
+        tick = other.tick;
+    }
+    
+    // Restores a bubble captured by RewindBuffer
+    Bubble(double x, double y, int size, double velocityX, double velocityY,
+           double wobbleOffset, double wobbleSpeed, float pulsePhase) {
+        this.x = x;
+        this.y = y;
+        this.size = size;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.active = true;
+        this.wobbleOffset = wobbleOffset;
+        this.wobbleSpeed = wobbleSpeed;
+        this.pulsePhase = pulsePhase;
+        stay();
+    }
+    
+    // Runs ticks updates as one simulation step; collisions are then tested tick by tick along it
+    public void advance(int ticks) {
+        advance(0, ticks);
+    }
+    
+    // For a bubble that appears partway through a step (a split half): the step's ticks from
+    // `from` on, swept over those only
+    void advance(int from, int ticks) {
+        if (pathX.length <= ticks) {
+            pathX = new double[ticks + 1];
+            pathY = new double[ticks + 1];
+        }
+        pathX[0] = x;
+        pathY[0] = y;
+        startVelocityX = velocityX;
+        startVelocityY = velocityY;
+        startWobble = wobbleOffset;
+        startPulse = pulsePhase;
+        if (tick >= 0) {
+            tick += ticks;
+        }
+        for (int i = 0; i < ticks; i++) {
+            update();
+            pathX[i + 1] = x;
+            pathY[i + 1] = y;
+        }
+        steps = ticks;
+        firstStep = from;
+    }
+    
+    // Takes the last advance() back to where it was after the step's first `ticks` ticks, for a
+    // step cut short by a death. Replays them, so the result is what stepping that far gives
+    void cut(int ticks) {
+        int kept = Math.max(0, ticks - firstStep);
+        if (kept >= steps) {
+            return;
+        }
+        if (tick >= 0) {
+            tick -= steps - kept;
+        }
+        x = pathX[0];
+        y = pathY[0];
+        velocityX = startVelocityX;
+        velocityY = startVelocityY;
+        wobbleOffset = startWobble;
+        pulsePhase = startPulse;
+        for (int i = 0; i < kept; i++) {
+            update();
+        }
+        steps = kept;
+    }
+    
+    // No motion to sweep until the next advance()
+    private void stay() {
+        pathX[0] = x;
+        pathY[0] = y;
+        steps = 0;
+        firstStep = 0;
     }
     
     public void update() {
+        step(Tuning.active().gravity);
+        
+        // Add wobble effect for visual appeal
+        wobbleOffset = FastMath.wrapPhase(wobbleOffset + wobbleSpeed);
+        pulsePhase = FastMath.wrapPhase(pulsePhase + 0.05f);
+    }
+    
+    // One tick of motion and bounces, without the animation
+    private void step(double gravity) {
         // Apply gravity
-        velocityY += Constants.GRAVITY;
+        velocityY += gravity;
         
         // Update position
         x += velocityX;
         y += velocityY;
         
-        // Add wobble effect for visual appeal
-        wobbleOffset += wobbleSpeed;
-        pulsePhase += 0.05f;
-        
         // Bounce off walls
-        if (x <= 0 || x >= Constants.WINDOW_WIDTH - size) {
+        if (x <= 0 || x >= arenaWidth - size) {
             velocityX = -velocityX;
-            x = Math.max(0, Math.min(x, Constants.WINDOW_WIDTH - size));
+            x = Math.max(0, Math.min(x, arenaWidth - size));
         }
         
         // Bounce off ground
@@ -75,20 +211,58 @@ public class Bubble {
         }
     }
     
+    // Arena mode, for bubbles the engine left alone while they were far from every player: brings
+    // the bubble up to engine tick `now` in one go, with no wobble or pulse since nobody was
+    // looking. A stretch with no wall, ground or ceiling contact is taken in one closed-form jump
+    // (see BubbleTrajectory); one with a contact is stepped tick by tick
+    public void catchUp(long now) {
+        catchUp(now, Tuning.active().gravity);
+    }
+    
+    // The same under gravity g, for ticks that ran before the tuning changed
+    void catchUp(long now, double g) {
+        int n = (int) (now - tick);
+        if (tick < 0 || n <= 0) {
+            tick = Math.max(tick, now);
+            return;
+        }
+        tick = now;
+        double nx = x + n * velocityX;
+        double ny = y + n * velocityY + g * 0.5 * (n * (n + 1));
+        // Height is convex in n, so the ground can only be reached at the first or last tick;
+        // the ceiling is safe if the parabola's top, over real n, stays below it. The margin
+        // keeps rounding in the closed form from deciding a bounce stepping wouldn't make.
+        double ground = Constants.GROUND_LEVEL - size - CATCH_UP_MARGIN;
+        double rise = velocityY + g * 0.5;
+        double top = velocityY < 0 ? y - rise * rise * (0.5 / g) : y;
+        if (nx > CATCH_UP_MARGIN && nx < arenaWidth - size - CATCH_UP_MARGIN
+                && ny < ground && y + (velocityY + g) < ground && top > CATCH_UP_MARGIN) {
+            x = nx;
+            y = ny;
+            velocityY += n * g;
+        } else {
+            for (int i = 0; i < n; i++) {
+                step(g);
+            }
+        }
+        stay();
+        playerClearTicks = 0;
+    }
+    
     public void draw(Graphics2D g) {
         // Calculate bubble position with slight wobble
-        int drawX = (int)(x + Math.sin(wobbleOffset) * 1.5);
+        int drawX = (int)(x + FastMath.sin(wobbleOffset) * 1.5);
         int drawY = (int)y;
         
         // Simple pulse effect
-        float pulse = (float)(Math.sin(pulsePhase) * 0.03 + 1.0);
+        float pulse = (float)(FastMath.sin(pulsePhase) * 0.03 + 1.0);
         int drawSize = (int)(size * pulse);
         int sizeOffset = (size - drawSize) / 2;
         drawX += sizeOffset;
         drawY += sizeOffset;
         
         // Single outer glow layer (simplified)
-        if (Constants.ENABLE_GLOW_EFFECTS) {
+        if (Tuning.active().glowEffects) {
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.1f));
             g.setColor(BUBBLE_MID);
             g.fillOval(drawX - 4, drawY - 4, drawSize + 8, drawSize + 8);
@@ -121,6 +295,114 @@ public class Bubble {
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
     }
     
+    // Cheap pre-check for the player tests: false while the last trajectory bound still
+    // covers the ticks just simulated
+    public boolean mayCollideWith(Player player, int ticks) {
+        if (playerClearTicks >= ticks) {
+            playerClearTicks -= ticks;
+            return false;
+        }
+        playerClearTicks = BubbleTrajectory.ticksClearOfPlayer(this, player);
+        return true;
+    }
+    
+    // The bound assumes the player only walks; call when the player is moved any other way
+    public void resetPlayerClearance() { playerClearTicks = 0; }
+    
+    // Swept version of collidesWith: true if the bubble and player circles touched anywhere
+    // during the last advance()
+    public boolean sweptCollidesWith(Player player) {
+        return sweptContactTick(player) >= 0;
+    }
+    
+    // The first tick of the last advance() during which the bubble touched the player, or -1.
+    // Each tick is swept on its own, so bounces within a long step are followed
+    public int sweptContactTick(Player player) {
+        for (int k = firstStep, n = Math.min(firstStep + steps, player.getSteps()); k < n; k++) {
+            if (sweptCollidesWith(player, k)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+    
+    // Tick k of the last advance(), both circles moving in straight lines over it; false for a
+    // tick the bubble wasn't there for
+    public boolean sweptCollidesWith(Player player, int k) {
+        int i = k - firstStep;
+        if (i < 0 || i >= steps) {
+            return false;
+        }
+        double reach = size / 2.0 + Constants.PLAYER_WIDTH / 2.0;
+        double playerCenterY = player.getY() + Constants.PLAYER_HEIGHT / 2.0;
+        double startX = pathX[i] + size / 2.0 - (player.getPathX(k) + Constants.PLAYER_WIDTH / 2.0);
+        double startY = pathY[i] + size / 2.0 - playerCenterY;
+        double endX = pathX[i + 1] + size / 2.0 - (player.getPathX(k + 1) + Constants.PLAYER_WIDTH / 2.0);
+        double endY = pathY[i + 1] + size / 2.0 - playerCenterY;
+        double s = closestApproach(startX, endX - startX, startY, endY - startY, 0, 1);
+        double dx = startX + s * (endX - startX), dy = startY + s * (endY - startY);
+        return dx * dx + dy * dy < reach * reach;
+    }
+    
+    // Swept version of collidesWithProjectile, over the ticks of the last advance() during which
+    // the harpoon was in play
+    public boolean sweptCollidesWithProjectile(Projectile projectile) {
+        for (int k = firstStep, n = Math.min(firstStep + steps, projectile.getLiveSteps()); k < n; k++) {
+            if (sweptCollidesWithProjectile(projectile, k)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Tick k of the last advance(). The beam is a vertical segment from its tip down to the
+    // ground, so only the part of the tick where the bubble center is above the tip adds a
+    // vertical term; the squared distance is a piecewise quadratic in the tick fraction
+    public boolean sweptCollidesWithProjectile(Projectile projectile, int k) {
+        int i = k - firstStep;
+        if (i < 0 || i >= steps) {
+            return false;
+        }
+        double radius = size / 2.0;
+        double startDx = pathX[i] + radius - projectile.getX();
+        double moveDx = pathX[i + 1] - pathX[i];
+        if (Math.abs(startDx) > radius + Math.abs(moveDx) + 1) {
+            // Never within a radius of the beam's line, with a pixel to spare for rounding
+            return false;
+        }
+        // Height of the tip above the bubble center (positive when the center is above the tip)
+        double startAbove = projectile.getPathY(k) - (pathY[i] + radius);
+        double moveAbove = (projectile.getPathY(k + 1) - projectile.getPathY(k)) - (pathY[i + 1] - pathY[i]);
+        
+        // Split the tick where the center crosses the tip height
+        double cross = moveAbove != 0 ? -startAbove / moveAbove : -1;
+        if (cross > 0 && cross < 1) {
+            return touchesBeam(startDx, moveDx, startAbove, moveAbove, radius, 0, cross)
+                || touchesBeam(startDx, moveDx, startAbove, moveAbove, radius, cross, 1);
+        }
+        return touchesBeam(startDx, moveDx, startAbove, moveAbove, radius, 0, 1);
+    }
+    
+    // One piece of the tick, during which the center stays on one side of the tip height
+    private static boolean touchesBeam(double startDx, double moveDx, double startAbove, double moveAbove,
+                                       double radius, double from, double to) {
+        boolean above = startAbove + (from + to) / 2 * moveAbove > 0;
+        double s = above ? closestApproach(startDx, moveDx, startAbove, moveAbove, from, to)
+                         : closestApproach(startDx, moveDx, 0, 0, from, to);
+        double dx = startDx + s * moveDx;
+        double dy = above ? startAbove + s * moveAbove : 0;
+        return dx * dx + dy * dy <= radius * radius;
+    }
+    
+    // Fraction s in [from, to] minimizing (a0 + a1 s)^2 + (b0 + b1 s)^2
+    private static double closestApproach(double a0, double a1, double b0, double b1, double from, double to) {
+        double speed = a1 * a1 + b1 * b1;
+        if (speed == 0) {
+            return to;
+        }
+        return Math.max(from, Math.min(to, -(a0 * a1 + b0 * b1) / speed));
+    }
+    
     public boolean collidesWith(Player player) {
         double bubbleCenterX = x + size / 2.0;
         double bubbleCenterY = y + size / 2.0;
@@ -157,7 +439,18 @@ public class Bubble {
     // Getters
     public double getX() { return x; }
     public double getY() { return y; }
+    // Position `step` ticks into the engine's last step (see advance(from, ticks))
+    public double getPathX(int step) { return pathX[step - firstStep]; }
+    public double getPathY(int step) { return pathY[step - firstStep]; }
+    public int getSteps() { return steps; }
+    public double getVelocityX() { return velocityX; }
+    public double getVelocityY() { return velocityY; }
     public int getSize() { return size; }
+    public double getWobbleOffset() { return wobbleOffset; }
+    public double getWobbleSpeed() { return wobbleSpeed; }
+    public float getPulsePhase() { return pulsePhase; }
+    public double getArenaWidth() { return arenaWidth; }
+    public void setArenaWidth(double arenaWidth) { this.arenaWidth = arenaWidth; }
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+// Compares Bubble.update() on objects against BubbleStore.step() on primitive arrays, with the
+// scalar kernel and, when it is compiled and the module is added, the Vector API one.
+// Every path must agree bit for bit, at the default gravity and at a tuned one.
+// Run: java -cp bin game.BubblePhysicsBenchmark [bubbles] [ticks]
+// Vector: java --add-modules jdk.incubator.vector -cp bin game.BubblePhysicsBenchmark (see BubbleStore)
+public class BubblePhysicsBenchmark {
+    public static void main(String[] args) {
+        int bubbleCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        System.out.println("vector kernel: " + (BubbleStore.isVectorized() ? "loaded" : "not available, scalar only"));
+
+        boolean ok = identical(bubbleCount, ticks);
+        Properties file = new Properties();
+        file.setProperty("gravity", "0.31");
+        List<String> errors = new ArrayList<>();
+        Tuning.load(Tuning.parse(file, errors));
+        Tuning.apply();
+        ok &= identical(bubbleCount, ticks);
+        Tuning.load(Tuning.DEFAULTS);
+        Tuning.apply();
+        if (!ok) {
+            System.exit(1);
+        }
+
+        List<Bubble> bubbles = createBubbles(bubbleCount);
+        BubbleStore scalar = new BubbleStore(bubbleCount, BubbleStore.SCALAR);
+        scalar.addAll(bubbles);
+        BubbleStore vector = new BubbleStore(bubbleCount);
+        vector.addAll(bubbles);
+        double updates = (double) bubbleCount * ticks;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                for (Bubble b : bubbles) {
+                    b.update();
+                }
+            }
+            long objectNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int t = 0; t < ticks; t++) {
+                scalar.step();
+            }
+            long scalarNanos = System.nanoTime() - start;
+
+            if (BubbleStore.isVectorized()) {
+                start = System.nanoTime();
+                for (int t = 0; t < ticks; t++) {
+                    vector.step();
+                }
+                long vectorNanos = System.nanoTime() - start;
+                System.out.printf("round %d: Bubble.update %.2f, scalar step %.2f (%.1fx), vector step %.2f ns/bubble (%.1fx)%n",
+                    round, objectNanos / updates, scalarNanos / updates, (double) objectNanos / scalarNanos,
+                    vectorNanos / updates, (double) objectNanos / vectorNanos);
+            } else {
+                System.out.printf("round %d: Bubble.update %.2f, scalar step %.2f ns/bubble (%.1fx)%n",
+                    round, objectNanos / updates, scalarNanos / updates, (double) objectNanos / scalarNanos);
+            }
+        }
+    }
+
+    private static List<Bubble> createBubbles(int bubbleCount) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Bubble> bubbles = new ArrayList<>();
+        int[] sizes = {Constants.BUBBLE_LARGE, Constants.BUBBLE_MEDIUM, Constants.BUBBLE_SMALL};
+        for (int i = 0; i < bubbleCount; i++) {
+            int size = sizes[i % sizes.length];
+            double x = (i * 37) % (Constants.WINDOW_WIDTH - size);
+            double y = (i * 53) % (Constants.GROUND_LEVEL - size);
+            double vx = (i % 2 == 0 ? 1 : -1) * Constants.BUBBLE_SPEED * (1 + (i % 3) * 0.25);
+            bubbles.add(new Bubble(x, y, size, vx, random));
+        }
+        return bubbles;
+    }
+
+    // Objects, the scalar store and the best store stepped side by side at the active gravity
+    private static boolean identical(int bubbleCount, int ticks) {
+        List<Bubble> bubbles = createBubbles(bubbleCount);
+        BubbleStore scalar = new BubbleStore(bubbleCount, BubbleStore.SCALAR);
+        scalar.addAll(bubbles);
+        BubbleStore best = new BubbleStore(bubbleCount);
+        best.addAll(bubbles);
+        for (int t = 0; t < ticks; t++) {
+            for (Bubble b : bubbles) {
+                b.update();
+            }
+            scalar.step();
+            best.step();
+        }
+        double gravity = Tuning.active().gravity;
+        for (int i = 0; i < bubbleCount; i++) {
+            Bubble b = bubbles.get(i);
+            for (BubbleStore store : new BubbleStore[] {scalar, best}) {
+                if (b.getX() != store.getX(i) || b.getY() != store.getY(i)
+                        || b.getVelocityX() != store.getVelocityX(i) || b.getVelocityY() != store.getVelocityY(i)) {
+                    System.out.println("FAIL: " + (store == scalar ? "scalar" : "vector") + " store differs at bubble "
+                        + i + " (gravity " + gravity + ")");
+                    return false;
+                }
+            }
+        }
+        System.out.println("PASS: results identical for " + bubbleCount + " bubbles over " + ticks
+            + " ticks at gravity " + gravity);
+        return true;
+    }
+}
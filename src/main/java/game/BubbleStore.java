@@ -0,0 +1,148 @@
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Structure-of-arrays bubble physics for stress scenes with thousands of bubbles.
+// step() applies exactly the same rules as Bubble.update(), but as straight loops over
+// primitive arrays instead of one virtual call per bubble. The loops run on jdk.incubator.vector
+// lanes (BubbleVectorKernel) when that class was built and the JVM runs with the module:
+//   javac --add-modules jdk.incubator.vector -cp bin -d bin src/vector/java/game/*.java
+//   java --add-modules jdk.incubator.vector -cp bin ...
+// and otherwise as scalar loops the JIT can unroll; both give the same results to the bit.
+public class BubbleStore {
+    // One tick for bubbles [from, to) of the arrays
+    interface Kernel {
+        void step(double[] x, double[] y, double[] vx, double[] vy, double[] size, int from, int to,
+                  double gravity, double width, double ground);
+    }
+
+    static final Kernel SCALAR = BubbleStore::stepScalar;
+    // The vector kernel if it loads, else the scalar loops
+    static final Kernel BEST = loadVectorKernel();
+
+    private double[] x, y, velocityX, velocityY, size;
+    private int count;
+    private final Kernel kernel;
+
+    public BubbleStore(int capacity) {
+        this(capacity, BEST);
+    }
+
+    BubbleStore(int capacity, Kernel kernel) {
+        this.kernel = kernel;
+        x = new double[capacity];
+        y = new double[capacity];
+        velocityX = new double[capacity];
+        velocityY = new double[capacity];
+        size = new double[capacity];
+    }
+
+    public int add(double bx, double by, int bubbleSize, double vx, double vy) {
+        if (count == x.length) {
+            grow();
+        }
+        x[count] = bx;
+        y[count] = by;
+        velocityX[count] = vx;
+        velocityY[count] = vy;
+        size[count] = bubbleSize;
+        return count++;
+    }
+
+    public void addAll(List<Bubble> bubbles) {
+        for (Bubble b : bubbles) {
+            add(b.getX(), b.getY(), b.getSize(), b.getVelocityX(), b.getVelocityY());
+        }
+    }
+
+    // Swap-remove, so indices of other bubbles may change
+    public void remove(int index) {
+        count--;
+        x[index] = x[count];
+        y[index] = y[count];
+        velocityX[index] = velocityX[count];
+        velocityY[index] = velocityY[count];
+        size[index] = size[count];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    // Advance every bubble by one tick under the active tuning, as Bubble.update() does
+    public void step() {
+        step(0, count, Tuning.active().gravity);
+    }
+
+    // Advance bubbles [from, to) by one tick. Parallel callers take gravity from one snapshot
+    public void step(int from, int to, double gravity) {
+        kernel.step(x, y, velocityX, velocityY, size, from, to, gravity, Constants.WINDOW_WIDTH, Constants.GROUND_LEVEL);
+    }
+
+    static void stepScalar(double[] x, double[] y, double[] vx, double[] vy, double[] size, int from, int to,
+                           double gravity, double width, double ground) {
+        // Integration: no branches, vectorizes cleanly
+        for (int i = from; i < to; i++) {
+            double v = vy[i] + gravity;
+            vy[i] = v;
+            x[i] += vx[i];
+            y[i] += v;
+        }
+
+        // Walls: reflect and clamp, written as selects
+        for (int i = from; i < to; i++) {
+            double maxX = width - size[i];
+            double px = x[i];
+            boolean hit = px <= 0 || px >= maxX;
+            vx[i] = hit ? -vx[i] : vx[i];
+            x[i] = hit ? Math.max(0, Math.min(px, maxX)) : px;
+        }
+
+        // Ground and ceiling
+        for (int i = from; i < to; i++) {
+            double floor = ground - size[i];
+            double py = y[i];
+            double v = vy[i];
+            if (py >= floor) {
+                // Same outcome as Bubble.update: always upward, at least 7, at most 12
+                double up = -Math.abs(v);
+                v = Math.abs(up) < 5 ? -7 : (up < -12 ? -12 : up);
+                py = floor;
+            }
+            if (py <= 0) {
+                py = 0;
+                v = Math.abs(v);
+            }
+            y[i] = py;
+            vy[i] = v;
+        }
+    }
+
+    private static Kernel loadVectorKernel() {
+        try {
+            return (Kernel) Class.forName("game.BubbleVectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not built, or the JVM runs without jdk.incubator.vector
+            return SCALAR;
+        }
+    }
+
+    static boolean isVectorized() { return BEST != SCALAR; }
+
+    private void grow() {
+        int capacity = Math.max(16, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        size = Arrays.copyOf(size, capacity);
+    }
+
+    public int size() { return count; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getVelocityX(int i) { return velocityX[i]; }
+    public double getVelocityY(int i) { return velocityY[i]; }
+    public int getSize(int i) { return (int) size[i]; }
+}
@@ -0,0 +1,304 @@
+package game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// "Bubble storm" stress mode: thousands of bubbles and particles under a volley of harpoons.
+// Bubble physics, harpoon collision and particle updates are split into fixed chunks and run
+// on a fork-join pool. Each chunk only records hits; the merge picks, per harpoon, the lowest
+// bubble index that was hit, so pops, splits and score are identical for any thread count.
+// Gravity and speeds come from the active Tuning, as in the game, taken once per update() so
+// every chunk of a tick sees the same values.
+public class BubbleStorm {
+    public static final int CHUNK_SIZE = 512;
+    public static final int HARPOONS = 16;
+
+    private final ForkJoinPool pool;
+    private final int targetBubbles;
+    private final BubbleStore bubbles;
+
+    // Harpoons rise from evenly spaced columns and relaunch when they hit or leave the screen
+    private final double[] harpoonX = new double[HARPOONS];
+    private final double[] harpoonY = new double[HARPOONS];
+
+    // Per-chunk hit slots (lowest bubble index per harpoon), merged after every tick
+    private int[] chunkHits = new int[0];
+    private final int[] hits = new int[HARPOONS];
+
+    // Particle store, same structure-of-arrays layout as BubbleStore
+    private double[] particleX, particleY, particleVX, particleVY;
+    private int[] particleLife;
+    private int particleCount;
+
+    private long score;
+    private long pops;
+    private long splits;
+    private long tick;
+    private int spawnCounter;
+    private Tuning tuning = Tuning.active();
+
+    public BubbleStorm(int targetBubbles, int threads) {
+        this.pool = new ForkJoinPool(threads);
+        this.targetBubbles = targetBubbles;
+        this.bubbles = new BubbleStore(targetBubbles * 2);
+        int particleCapacity = targetBubbles * 4;
+        particleX = new double[particleCapacity];
+        particleY = new double[particleCapacity];
+        particleVX = new double[particleCapacity];
+        particleVY = new double[particleCapacity];
+        particleLife = new int[particleCapacity];
+        for (int i = 0; i < HARPOONS; i++) {
+            harpoonX[i] = (i + 0.5) * Constants.WINDOW_WIDTH / HARPOONS;
+            harpoonY[i] = Constants.GROUND_LEVEL - (i * 37) % Constants.GROUND_LEVEL;
+        }
+        refill();
+    }
+
+    public void update() {
+        tick++;
+        tuning = Tuning.active();
+        for (int i = 0; i < HARPOONS; i++) {
+            harpoonY[i] -= tuning.projectileSpeed;
+            if (harpoonY[i] < 0) {
+                harpoonY[i] = Constants.GROUND_LEVEL;
+            }
+        }
+
+        int chunks = (bubbles.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkHits.length < chunks * HARPOONS) {
+            chunkHits = new int[chunks * HARPOONS * 2];
+        }
+        pool.invoke(new BubbleTask(0, chunks));
+        mergeHits(chunks);
+
+        int particleChunks = (particleCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        pool.invoke(new ParticleTask(0, particleChunks));
+        compactParticles();
+
+        refill();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private class BubbleTask extends RecursiveAction {
+        private final int fromChunk, toChunk;
+
+        BubbleTask(int fromChunk, int toChunk) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+                invokeAll(new BubbleTask(fromChunk, mid), new BubbleTask(mid, toChunk));
+                return;
+            }
+            int from = fromChunk * CHUNK_SIZE;
+            int to = Math.min(bubbles.size(), from + CHUNK_SIZE);
+            bubbles.step(from, to, tuning.gravity);
+            int base = fromChunk * HARPOONS;
+            for (int h = 0; h < HARPOONS; h++) {
+                chunkHits[base + h] = -1;
+                for (int i = from; i < to; i++) {
+                    if (hitsHarpoon(i, h)) {
+                        chunkHits[base + h] = i;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private class ParticleTask extends RecursiveAction {
+        private final int fromChunk, toChunk;
+
+        ParticleTask(int fromChunk, int toChunk) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ParticleTask(fromChunk, mid), new ParticleTask(mid, toChunk));
+                return;
+            }
+            int from = fromChunk * CHUNK_SIZE;
+            int to = Math.min(particleCount, from + CHUNK_SIZE);
+            // Same integration as Particle.update()
+            for (int i = from; i < to; i++) {
+                particleX[i] += particleVX[i];
+                particleY[i] += particleVY[i];
+                particleVY[i] += 0.15;
+                particleVX[i] *= 0.98;
+                particleVY[i] *= 0.98;
+                particleLife[i]--;
+            }
+        }
+    }
+
+    // Same test as Bubble.collidesWithProjectile()
+    private boolean hitsHarpoon(int i, int h) {
+        double radius = bubbles.getSize(i) / 2.0;
+        double centerX = bubbles.getX(i) + radius;
+        double centerY = bubbles.getY(i) + radius;
+        double closestY = Math.max(harpoonY[h], Math.min(centerY, Constants.GROUND_LEVEL));
+        double dx = centerX - harpoonX[h];
+        double dy = centerY - closestY;
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    private void mergeHits(int chunks) {
+        // Lowest hit index per harpoon, chunks scanned in order
+        for (int h = 0; h < HARPOONS; h++) {
+            hits[h] = -1;
+            for (int c = 0; c < chunks && hits[h] < 0; c++) {
+                hits[h] = chunkHits[c * HARPOONS + h];
+            }
+            // One bubble can only be popped once, the lower harpoon index wins
+            for (int other = 0; other < h; other++) {
+                if (hits[other] == hits[h]) {
+                    hits[h] = -1;
+                }
+            }
+        }
+
+        // Apply pops in harpoon order: score, particles and splits
+        for (int h = 0; h < HARPOONS; h++) {
+            int i = hits[h];
+            if (i < 0) continue;
+            int size = bubbles.getSize(i);
+            double x = bubbles.getX(i);
+            double y = bubbles.getY(i);
+            pops++;
+            if (size == Constants.BUBBLE_LARGE) {
+                score += Constants.SCORE_LARGE_BUBBLE;
+                split(x, y, Constants.BUBBLE_MEDIUM, tuning.bubbleSpeed * 1.2);
+            } else if (size == Constants.BUBBLE_MEDIUM) {
+                score += Constants.SCORE_MEDIUM_BUBBLE;
+                split(x, y, Constants.BUBBLE_SMALL, tuning.bubbleSpeed * 1.5);
+            } else {
+                score += Constants.SCORE_SMALL_BUBBLE;
+            }
+            emitPopParticles(x + size / 2.0, y + size / 2.0, h);
+            harpoonY[h] = Constants.GROUND_LEVEL;
+        }
+
+        // Remove popped bubbles from the highest index down so swap-removes stay valid
+        for (int pass = 0; pass < HARPOONS; pass++) {
+            int highest = -1, slot = -1;
+            for (int h = 0; h < HARPOONS; h++) {
+                if (hits[h] > highest) {
+                    highest = hits[h];
+                    slot = h;
+                }
+            }
+            if (slot < 0) break;
+            bubbles.remove(highest);
+            hits[slot] = -1;
+        }
+    }
+
+    private void split(double x, double y, int size, double speed) {
+        splits++;
+        bubbles.add(x, y, size, speed, 0);
+        bubbles.add(x, y, size, -speed, 0);
+    }
+
+    private void emitPopParticles(double x, double y, int seed) {
+        int count = tuning.particleCountPop;
+        for (int i = 0; i < count; i++) {
+            if (particleCount == particleX.length) {
+                return;
+            }
+            double angle = (Math.PI * 2 * i) / count;
+            // Deterministic speed jitter instead of Math.random()
+            double speed = tuning.particleSpeed * (0.5 + ((seed * 31 + i * 17 + tick) % 10) / 20.0);
+            particleX[particleCount] = x;
+            particleY[particleCount] = y;
+            particleVX[particleCount] = Math.cos(angle) * speed;
+            particleVY[particleCount] = Math.sin(angle) * speed;
+            particleLife[particleCount] = tuning.particleLifetime;
+            particleCount++;
+        }
+    }
+
+    private void compactParticles() {
+        int live = 0;
+        for (int i = 0; i < particleCount; i++) {
+            if (particleLife[i] > 0 && particleY[i] < Constants.WINDOW_HEIGHT + 50) {
+                particleX[live] = particleX[i];
+                particleY[live] = particleY[i];
+                particleVX[live] = particleVX[i];
+                particleVY[live] = particleVY[i];
+                particleLife[live] = particleLife[i];
+                live++;
+            }
+        }
+        particleCount = live;
+    }
+
+    // Keep the storm going: top up with large bubbles at deterministic positions
+    private void refill() {
+        while (bubbles.size() < targetBubbles) {
+            int n = spawnCounter++;
+            double x = (n * 97) % (Constants.WINDOW_WIDTH - Constants.BUBBLE_LARGE);
+            double y = (n * 61) % (Constants.GROUND_LEVEL / 2);
+            double vx = (n % 2 == 0) ? tuning.bubbleSpeed : -tuning.bubbleSpeed;
+            bubbles.add(x, y, Constants.BUBBLE_LARGE, vx, 0);
+        }
+    }
+
+    // Order-sensitive fingerprint of the simulation, equal across thread counts
+    public long checksum() {
+        long hash = score * 31 + pops;
+        for (int i = 0; i < bubbles.size(); i++) {
+            hash = hash * 31 + Double.doubleToLongBits(bubbles.getX(i));
+            hash = hash * 31 + Double.doubleToLongBits(bubbles.getY(i));
+        }
+        return hash * 31 + particleCount;
+    }
+
+    public long getScore() { return score; }
+    public long getPops() { return pops; }
+    public long getSplits() { return splits; }
+    public int getBubbleCount() { return bubbles.size(); }
+    public int getParticleCount() { return particleCount; }
+
+    // Throughput report for 1, 2, 4 and all available threads.
+    // Run: java -cp bin game.BubbleStorm [bubbles] [ticks]
+    public static void main(String[] args) {
+        int bubbleCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = {1, 2, 4, cores};
+
+        Long expected = null;
+        for (int threads : threadCounts) {
+            BubbleStorm storm = new BubbleStorm(bubbleCount, threads);
+            for (int t = 0; t < ticks / 5; t++) {
+                storm.update(); // warm-up
+            }
+            long start = System.nanoTime();
+            for (int t = ticks / 5; t < ticks; t++) {
+                storm.update();
+            }
+            long elapsed = System.nanoTime() - start;
+            storm.shutdown();
+
+            long checksum = storm.checksum();
+            if (expected == null) {
+                expected = checksum;
+            }
+            System.out.printf("%2d threads: %8.1f ticks/s, %5d bubbles, %6d particles, %d pops, score %d%s%n",
+                threads, (ticks - ticks / 5) / (elapsed / 1e9), storm.getBubbleCount(),
+                storm.getParticleCount(), storm.getPops(), storm.getScore(),
+                checksum == expected ? "" : "  NON-DETERMINISTIC");
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package game;
+
+import java.util.SplittableRandom;
+
+// Closed-form model of Bubble.update(). Between contacts a bubble moves on a discrete
+// parabola: after n ticks vy = vy0 + n*g, x = x0 + n*vx and y = y0 + n*vy0 + g*n(n+1)/2.
+// Contact ticks come from solving those for the wall, ground and ceiling limits and then
+// checking the neighbouring ticks. Bounce velocities are usually whole multiples of g, so a
+// bubble often lands back on the ground exactly at a tick. The closed form can't settle those
+// ties, because stepping rounds differently, so ties are decided by replaying the same
+// additions update() performs. The states after a contact are replayed the same way, which
+// keeps chained predictions identical to stepping.
+public class BubbleTrajectory {
+    public enum Contact { NONE, WALL, GROUND, CEILING }
+
+    // Returned when an event can never happen on the current segment
+    public static final int NEVER = Integer.MAX_VALUE;
+    // Closed-form values this close to a limit are rechecked by replaying the additions
+    private static final double TIE = 1e-9;
+
+    private final double x, y, velocityX, velocityY;
+    private final int size;
+    private final double arenaWidth;
+    // Tuning's gravity when the trajectory was made
+    private final double gravity = Tuning.active().gravity;
+
+    public BubbleTrajectory(Bubble bubble) {
+        this(bubble.getX(), bubble.getY(), bubble.getVelocityX(), bubble.getVelocityY(), bubble.getSize(),
+            bubble.getArenaWidth());
+    }
+
+    public BubbleTrajectory(double x, double y, double velocityX, double velocityY, int size) {
+        this(x, y, velocityX, velocityY, size, Constants.WINDOW_WIDTH);
+    }
+
+    public BubbleTrajectory(double x, double y, double velocityX, double velocityY, int size, double arenaWidth) {
+        this.x = x;
+        this.y = y;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.size = size;
+        this.arenaWidth = arenaWidth;
+    }
+
+    // State after n updates; valid while n <= ticksToNextContact()
+    public double xAt(int n) { return x + n * velocityX; }
+    public double yAt(int n) { return y + n * velocityY + gravity * n * (n + 1) / 2.0; }
+    public double velocityYAt(int n) { return velocityY + n * gravity; }
+
+    public int ticksToWall() {
+        if (velocityX > 0) {
+            double limit = arenaWidth - size;
+            int n = Math.max(1, (int) Math.ceil((limit - x) / velocityX));
+            while (n > 1 && exactX(n - 1, limit) >= limit) n--;
+            while (exactX(n, limit) < limit) n++;
+            return n;
+        } else if (velocityX < 0) {
+            int n = Math.max(1, (int) Math.ceil(x / -velocityX));
+            while (n > 1 && exactX(n - 1, 0) <= 0) n--;
+            while (exactX(n, 0) > 0) n++;
+            return n;
+        }
+        return x <= 0 || x >= arenaWidth - size ? 1 : NEVER;
+    }
+
+    public int ticksToGround() {
+        return firstTickAtOrBelow(Constants.GROUND_LEVEL - size);
+    }
+
+    public int ticksToCeiling() {
+        return firstTickAtOrAbove(0);
+    }
+
+    public int ticksToNextContact() {
+        return Math.min(ticksToWall(), Math.min(ticksToGround(), ticksToCeiling()));
+    }
+
+    public Contact nextContact() {
+        int wall = ticksToWall(), ground = ticksToGround(), ceiling = ticksToCeiling();
+        int next = Math.min(wall, Math.min(ground, ceiling));
+        if (next == ground) return Contact.GROUND;
+        if (next == wall) return Contact.WALL;
+        return next == NEVER ? Contact.NONE : Contact.CEILING;
+    }
+
+    // The trajectory just after the next contact, with every bounce rule Bubble.update()
+    // applies on that tick (a wall and the ground can be hit on the same tick)
+    public BubbleTrajectory afterNextContact() {
+        int n = ticksToNextContact();
+        double nx = x, ny = y, nvx = velocityX, nvy = velocityY;
+        for (int i = 0; i < n; i++) {
+            nvy += gravity;
+            nx += nvx;
+            ny += nvy;
+        }
+        if (nx <= 0 || nx >= arenaWidth - size) {
+            nvx = -nvx;
+            nx = Math.max(0, Math.min(nx, arenaWidth - size));
+        }
+        if (ny >= Constants.GROUND_LEVEL - size) {
+            ny = Constants.GROUND_LEVEL - size;
+            nvy = -nvy;
+            if (nvy > 0) nvy = -nvy;
+            if (Math.abs(nvy) < 5) nvy = -7;
+            if (nvy < -12) nvy = -12;
+        }
+        if (ny <= 0) {
+            ny = 0;
+            nvy = Math.abs(nvy);
+        }
+        return new BubbleTrajectory(nx, ny, nvx, nvy, size, arenaWidth);
+    }
+
+    // Ticks until the bubble's horizontal span first overlaps [left, right], following wall
+    // reflections; 0 if it already does, NEVER if not within horizon ticks
+    public int ticksUntilColumn(double left, double right, int horizon) {
+        double cx = x, vx = velocityX;
+        int elapsed = 0;
+        while (elapsed <= horizon) {
+            if (cx + size >= left && cx <= right) {
+                return elapsed;
+            }
+            BubbleTrajectory segment = new BubbleTrajectory(cx, 0, vx, 0, size, arenaWidth);
+            int wall = segment.ticksToWall();
+            int n = NEVER;
+            if (vx > 0 && cx + size < left) {
+                n = Math.max(1, (int) Math.ceil((left - size - cx) / vx));
+                while (n > 1 && segment.xAt(n - 1) + size >= left) n--;
+                while (segment.xAt(n) + size < left) n++;
+            } else if (vx < 0 && cx > right) {
+                n = Math.max(1, (int) Math.ceil((cx - right) / -vx));
+                while (n > 1 && segment.xAt(n - 1) <= right) n--;
+                while (segment.xAt(n) > right) n++;
+            }
+            if (n <= wall) {
+                return n == NEVER || elapsed + n > horizon ? NEVER : elapsed + n;
+            }
+            if (wall == NEVER) {
+                return NEVER;
+            }
+            cx = Math.max(0, Math.min(segment.xAt(wall), arenaWidth - size));
+            vx = -vx;
+            elapsed += wall;
+        }
+        return NEVER;
+    }
+
+    // Upcoming updates during which this bubble cannot touch the player, whichever way the
+    // player moves. Horizontally the gap can close by at most |vx| + the player's speed per tick;
+    // vertically the bubble must first descend into reach, which the parabola times exactly.
+    public static int ticksClearOfPlayer(Bubble bubble, Player player) {
+        double reach = bubble.getSize() / 2.0 + Constants.PLAYER_WIDTH / 2.0;
+        double dx = Math.abs(bubble.getX() + bubble.getSize() / 2.0 - player.getCenterX());
+        int horizontal = (int) ((dx - reach) / (Math.abs(bubble.getVelocityX()) + Tuning.active().playerSpeed));
+
+        double playerCenterY = player.getY() + Constants.PLAYER_HEIGHT / 2.0;
+        BubbleTrajectory t = new BubbleTrajectory(bubble);
+        int vertical = 0;
+        if (bubble.getY() + bubble.getSize() / 2.0 <= playerCenterY - reach) {
+            int descend = t.firstTickAtOrBelow(playerCenterY - reach - bubble.getSize() / 2.0) - 1;
+            vertical = Math.min(descend, t.ticksToCeiling());
+        }
+        // One tick of margin for rounding at the boundary
+        return Math.max(0, Math.max(horizontal, vertical) - 1);
+    }
+
+    // First n >= 1 with yAt(n) >= limit. Gravity always wins, so this exists
+    private int firstTickAtOrBelow(double limit) {
+        double a = gravity / 2, b = velocityY + gravity / 2, c = y - limit;
+        double root = (-b + Math.sqrt(Math.max(0, b * b - 4 * a * c))) / (2 * a);
+        int n = Math.max(1, (int) Math.ceil(root));
+        while (n > 1 && exactY(n - 1, limit) >= limit) n--;
+        while (exactY(n, limit) < limit) n++;
+        return n;
+    }
+
+    // First n >= 1 with yAt(n) <= limit, or NEVER if the parabola turns before reaching it
+    private int firstTickAtOrAbove(double limit) {
+        if (velocityY + gravity >= 0 && yAt(1) > limit) {
+            return NEVER;
+        }
+        double a = gravity / 2, b = velocityY + gravity / 2, c = y - limit;
+        double discriminant = b * b - 4 * a * c;
+        // The apex is between two ticks, so also test the ticks around it before giving up
+        double apex = -b / (2 * a);
+        int n = discriminant >= 0 ? Math.max(1, (int) Math.ceil((-b - Math.sqrt(discriminant)) / (2 * a)))
+                                  : Math.max(1, (int) Math.floor(apex));
+        while (n > 1 && exactY(n - 1, limit) <= limit) n--;
+        for (int i = 0; i < 3 && exactY(n, limit) > limit; i++) n++;
+        return exactY(n, limit) <= limit ? n : NEVER;
+    }
+
+    // xAt(n), replayed as update() sums it when it lands on the limit
+    private double exactX(int n, double limit) {
+        double closed = xAt(n);
+        if (Math.abs(closed - limit) > TIE) {
+            return closed;
+        }
+        double stepped = x;
+        for (int i = 0; i < n; i++) {
+            stepped += velocityX;
+        }
+        return stepped;
+    }
+
+    // yAt(n), replayed as update() sums it when it lands on the limit
+    private double exactY(int n, double limit) {
+        double closed = yAt(n);
+        if (Math.abs(closed - limit) > TIE) {
+            return closed;
+        }
+        double stepped = y, vy = velocityY;
+        for (int i = 0; i < n; i++) {
+            vy += gravity;
+            stepped += vy;
+        }
+        return stepped;
+    }
+
+    // Checks predicted contact ticks against stepping Bubble.update() on random bubbles, and
+    // that ticksClearOfPlayer never clears a tick on which the bubble touches a moving player.
+    // Exits with status 1 on any mismatch.
+    // Run: java -cp bin game.BubbleTrajectory [bubbles]
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        SplittableRandom random = new SplittableRandom(39);
+        int[] sizes = {Constants.BUBBLE_SMALL, Constants.BUBBLE_MEDIUM, Constants.BUBBLE_LARGE};
+        int contacts = 0, mismatches = 0;
+        double worst = 0;
+        long predictNanos = 0, stepNanos = 0;
+        for (int b = 0; b < count; b++) {
+            int size = sizes[random.nextInt(sizes.length)];
+            double vx = (random.nextBoolean() ? 1 : -1) * Constants.BUBBLE_SPEED * (1 + random.nextDouble());
+            Bubble bubble = new Bubble(random.nextDouble() * (Constants.WINDOW_WIDTH - size),
+                random.nextDouble() * (Constants.GROUND_LEVEL - size - 1), size, vx, random);
+            BubbleTrajectory t = new BubbleTrajectory(bubble);
+            for (int c = 0; c < 8; c++) {
+                long start = System.nanoTime();
+                int predicted = t.ticksToNextContact();
+                BubbleTrajectory next = t.afterNextContact();
+                predictNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int stepped = 0;
+                double px = bubble.getVelocityX(), py = bubble.getVelocityY();
+                do {
+                    stepped++;
+                    px = bubble.getVelocityX();
+                    py = bubble.getVelocityY();
+                    bubble.update();
+                } while (bubble.getVelocityX() == px && bubble.getVelocityY() == py + Tuning.active().gravity
+                         && stepped < 10000);
+                stepNanos += System.nanoTime() - start;
+
+                contacts++;
+                if (predicted != stepped) {
+                    mismatches++;
+                    break;
+                }
+                worst = Math.max(worst, Math.max(Math.abs(next.x - bubble.getX()), Math.abs(next.y - bubble.getY())));
+                worst = Math.max(worst, Math.abs(next.velocityY - bubble.getVelocityY()));
+                // Chain predictions without resyncing: they must stay identical to stepping
+                t = next;
+            }
+        }
+        System.out.printf("%d contacts, %d tick mismatches, worst position error %.2g px%n", contacts, mismatches, worst);
+        System.out.printf("prediction %.0f ns/contact, stepping %.0f ns/contact%n",
+            (double) predictNanos / contacts, (double) stepNanos / contacts);
+
+        int unsafe = 0;
+        long cleared = 0;
+        for (int b = 0; b < count; b++) {
+            int size = sizes[random.nextInt(sizes.length)];
+            Bubble bubble = new Bubble(random.nextDouble() * (Constants.WINDOW_WIDTH - size),
+                random.nextDouble() * 200, size, (random.nextBoolean() ? 1 : -1) * Constants.BUBBLE_SPEED, random);
+            Player player = new Player();
+            int clear = ticksClearOfPlayer(bubble, player);
+            cleared += clear;
+            for (int i = 0; i < clear; i++) {
+                player.setMovingLeft(random.nextBoolean());
+                player.setMovingRight(random.nextBoolean());
+                player.update();
+                bubble.update();
+                if (bubble.collidesWith(player)) {
+                    unsafe++;
+                    break;
+                }
+            }
+        }
+        System.out.printf("player clearance: %.1f ticks skipped per check, %d unsafe%n", (double) cleared / count, unsafe);
+        System.exit(mismatches == 0 && unsafe == 0 && worst == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,163 @@
+package game;
+
+import java.util.SplittableRandom;
+
+// Checks the swept collision tests of multi-tick steps against the real motion: a copy of each
+// bubble, harpoon and player is stepped one tick at a time, bounces and all, and each tick's
+// move is densely sampled. The step must find the same contacts on the same ticks as the
+// single ticks do, and miss none that sampling finds. Then plays scripted sessions at 60, 30
+// and 15 updates per second, which must end with the same score and deaths. Exits with status
+// 1 on a missed or misplaced contact, or if a lower update rate plays a different game.
+// Run: java -cp bin game.CollisionSweepCheck [cases]
+public class CollisionSweepCheck {
+    private static final int SAMPLES = 64;
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        SplittableRandom random = new SplittableRandom(40);
+        int[] sizes = {Constants.BUBBLE_SMALL, Constants.BUBBLE_MEDIUM, Constants.BUBBLE_LARGE};
+        int beamMissed = 0, beamSampled = 0, beamEndOnly = 0, beamMoved = 0;
+        int playerMissed = 0, playerSampled = 0, playerEndOnly = 0, playerMoved = 0;
+        int bounces = 0;
+        for (int c = 0; c < cases; c++) {
+            int size = sizes[random.nextInt(sizes.length)];
+            int ticks = 1 + random.nextInt(4);
+            Bubble bubble = new Bubble(random.nextDouble() * (Constants.WINDOW_WIDTH - size),
+                random.nextDouble() * (Constants.GROUND_LEVEL - size), size,
+                (random.nextBoolean() ? 1 : -1) * Constants.BUBBLE_SPEED * 1.5, random);
+            for (int warm = random.nextInt(40); warm > 0; warm--) {
+                bubble.update();
+            }
+            Projectile beam = new Projectile(bubble.getX() + random.nextDouble() * (size + 40) - 20);
+            for (int up = random.nextInt(55); up > 0; up--) {
+                beam.update();
+            }
+            Player player = new Player();
+            player.setMovingLeft(random.nextBoolean());
+            player.setMovingRight(random.nextBoolean());
+
+            Bubble tickBubble = new Bubble(0, 0, size, 0, random);
+            tickBubble.copyFrom(bubble);
+            Projectile tickBeam = new Projectile(0);
+            tickBeam.copyFrom(beam);
+            Player tickPlayer = new Player();
+            tickPlayer.copyFrom(player);
+            double vx0 = bubble.getVelocityX(), vy0 = bubble.getVelocityY();
+            bubble.advance(ticks);
+            beam.advance(ticks);
+            player.advance(ticks);
+            if (bubble.getVelocityX() != vx0 || Math.abs(bubble.getVelocityY() - (vy0 + ticks * Tuning.active().gravity)) > 1e-9) {
+                bounces++;
+            }
+
+            // First tick a single-tick engine would see a contact on, by its own swept test and by sampling
+            int beamTick = -1, playerTick = -1, beamSampledTick = -1, playerSampledTick = -1;
+            for (int k = 0; k < ticks; k++) {
+                double bx0 = tickBubble.getX(), by0 = tickBubble.getY(), tip0 = tickBeam.getY(), px0 = tickPlayer.getX();
+                tickBubble.advance(1);
+                tickBeam.advance(1);
+                tickPlayer.advance(1);
+                if (playerTick < 0 && tickBubble.sweptCollidesWith(tickPlayer)) {
+                    playerTick = k;
+                }
+                // A harpoon that left the top this tick is gone before it is tested
+                boolean beamLive = tickBeam.isActive() && k < beam.getLiveSteps();
+                if (beamTick < 0 && beamLive && tickBubble.sweptCollidesWithProjectile(tickBeam)) {
+                    beamTick = k;
+                }
+                double radius = size / 2.0;
+                for (int i = 0; i <= SAMPLES; i++) {
+                    double s = (double) i / SAMPLES;
+                    double cx = bx0 + s * (tickBubble.getX() - bx0) + radius;
+                    double cy = by0 + s * (tickBubble.getY() - by0) + radius;
+                    double tip = tip0 + s * (tickBeam.getY() - tip0);
+                    double dy = cy < tip ? tip - cy : 0;
+                    double dx = cx - tickBeam.getX();
+                    if (beamSampledTick < 0 && beamLive && dx * dx + dy * dy <= radius * radius * (1 - 1e-9)) {
+                        beamSampledTick = k;
+                    }
+                    double pdx = cx - (px0 + s * (tickPlayer.getX() - px0) + Constants.PLAYER_WIDTH / 2.0);
+                    double pdy = cy - (tickPlayer.getY() + Constants.PLAYER_HEIGHT / 2.0);
+                    double reach = radius + Constants.PLAYER_WIDTH / 2.0;
+                    if (playerSampledTick < 0 && pdx * pdx + pdy * pdy < reach * reach * (1 - 1e-9)) {
+                        playerSampledTick = k;
+                    }
+                }
+            }
+
+            int stepBeamTick = -1;
+            for (int k = 0; k < ticks && stepBeamTick < 0; k++) {
+                if (k < beam.getLiveSteps() && bubble.sweptCollidesWithProjectile(beam, k)) {
+                    stepBeamTick = k;
+                }
+            }
+            int stepPlayerTick = bubble.sweptContactTick(player);
+            if (stepBeamTick != beamTick) beamMoved++;
+            if (stepPlayerTick != playerTick) playerMoved++;
+            if (beamSampledTick >= 0) {
+                beamSampled++;
+                if (stepBeamTick < 0 || stepBeamTick > beamSampledTick) beamMissed++;
+                if (!bubble.collidesWithProjectile(beam)) beamEndOnly++;
+            }
+            if (playerSampledTick >= 0) {
+                playerSampled++;
+                if (stepPlayerTick < 0 || stepPlayerTick > playerSampledTick) playerMissed++;
+                if (!bubble.collidesWith(player)) playerEndOnly++;
+            }
+        }
+        System.out.printf("%d steps, %d with a bounce%n", cases, bounces);
+        System.out.printf("beam:   %d contacts, swept missed %d, on another tick than single ticks %d, end-of-step test missed %d%n",
+            beamSampled, beamMissed, beamMoved, beamEndOnly);
+        System.out.printf("player: %d contacts, swept missed %d, on another tick than single ticks %d, end-of-step test missed %d%n",
+            playerSampled, playerMissed, playerMoved, playerEndOnly);
+        boolean ok = beamMissed == 0 && playerMissed == 0 && beamMoved == 0 && playerMoved == 0;
+
+        // Same scripted minutes of play at lower update rates. Inputs only change every 4 ticks,
+        // so every rate sees the same ones
+        int seconds = 600;
+        long baseScore = 0, baseDeaths = 0;
+        for (int ticksPerUpdate : new int[] {1, 2, 4}) {
+            long score = 0, deaths = 0;
+            for (long seed = 0; seed < 8; seed++) {
+                GameEngine engine = new GameEngine(seed, true);
+                engine.setTicksPerUpdate(ticksPerUpdate);
+                Player p = engine.getPlayer();
+                int updates = seconds * GameEngine.TICKS_PER_SECOND / ticksPerUpdate;
+                for (int u = 0; u < updates; u++) {
+                    long tick = engine.getTicks();
+                    boolean left = (tick / 92) % 2 == 0;
+                    p.setMovingLeft(left);
+                    p.setMovingRight(!left);
+                    if (tick % 4 == 0) {
+                        engine.shoot();
+                    }
+                    int lives = engine.getLives();
+                    engine.update();
+                    deaths += Math.max(0, lives - engine.getLives());
+                    // Also only between every 4 ticks, however long ago the game ended or the level was cleared
+                    if (engine.getTicks() % 4 != 0) {
+                        continue;
+                    }
+                    if (engine.isGameOver()) {
+                        score += engine.getScore();
+                        engine.restart();
+                    } else if (engine.isLevelComplete()) {
+                        engine.nextLevel();
+                    }
+                }
+                score += engine.getScore();
+            }
+            if (ticksPerUpdate == 1) {
+                baseScore = score;
+                baseDeaths = deaths;
+            }
+            System.out.printf("%2d updates/s: score %8d, deaths %4d%n",
+                GameEngine.TICKS_PER_SECOND / ticksPerUpdate, score, deaths);
+            if (score != baseScore || deaths != baseDeaths) {
+                System.out.println("FAIL: " + GameEngine.TICKS_PER_SECOND / ticksPerUpdate + " updates/s plays a different game than 60");
+                ok = false;
+            }
+        }
+        System.exit(ok ? 0 : 1);
+    }
+}
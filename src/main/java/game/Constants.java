@@ -3,11 +3,15 @@ package game;
 import java.awt.Color;
 import java.awt.Font;
 
+// Speeds, gravity, particle and shake settings and the effect toggles are the defaults for
+// Tuning; the game reads them through Tuning.active() so they can be changed while it runs.
 public class Constants {
     // Window dimensions
     public static final int WINDOW_WIDTH = 800;
     public static final int WINDOW_HEIGHT = 600;
     public static final int GROUND_LEVEL = 550;
+    // Widest arena mode (GameEngine.setArenaScreens), in windows
+    public static final int MAX_ARENA_SCREENS = 10;
     
     // Player constants
     public static final int PLAYER_WIDTH = 40;
@@ -26,8 +30,7 @@ public class Constants {
     public static final double PROJECTILE_SPEED = 10.0; // Faster projectile
     
     // Game constants
-    public static final int INITIAL_BUBBLES = 1;
-    public static final int MAX_LEVEL = 5;
+    public static final int MAX_LEVEL = 500; // The first five are the classic levels, the rest are generated
     public static final int LIVES = 3;
     public static final int LEVEL_TIME = 60; // 60 seconds per level
     
@@ -109,8 +112,12 @@ public class Constants {
     
     // Animation constants
     public static final int PARTICLE_COUNT_BUBBLE_POP = 15;
+    public static final int PARTICLE_COUNT_DEATH = 20;
+    public static final int PARTICLE_COUNT_CELEBRATION = 50;
     public static final int PARTICLE_LIFETIME = 30; // frames
     public static final double PARTICLE_SPEED = 4.0;
+    // Most particles alive at once (ParticleBudget)
+    public static final int PARTICLE_BUDGET = 600;
     
     // Visual effects toggles
     public static final boolean ENABLE_PARTICLES = true;
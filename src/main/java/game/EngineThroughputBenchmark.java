@@ -0,0 +1,92 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+
+// Runs several independent headless GameEngines in parallel, each for the same number of
+// ticks, and reports total ticks/s. "split" engines each draw from their own SplittableRandom,
+// as the game does; "shared" engines all draw from one java.util.Random, as every caller of
+// Math.random() does, which is the baseline the per-engine generators replaced. Both kinds
+// first run unmeasured for WARMUP_SECONDS, long enough for the JIT to settle; then each engine
+// count runs a round to settle in and ROUNDS measured ones, and reports their median. Engines
+// beyond the machine's cores take turns on them, so only counts up to the core count measure
+// scaling.
+// Run: java -cp bin game.EngineThroughputBenchmark [maxEngines] [ticks] [split|shared|both]
+public class EngineThroughputBenchmark {
+    private static final int WARMUP_SECONDS = 10;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxEngines = args.length > 0 ? Integer.parseInt(args[0]) : cores;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        String mode = args.length > 2 ? args[2] : "both";
+
+        System.out.printf("%d cores available, %d ticks per engine per round%n", cores, ticks);
+        if (cores == 1) {
+            System.out.println("one core: engines can't run at the same time here, so these numbers show"
+                + " per-tick cost only, not how the generators scale or contend");
+        }
+        long warmUntil = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        while (System.nanoTime() < warmUntil) {
+            runEngines(maxEngines, ticks / 10, false);
+            runEngines(maxEngines, ticks / 10, true);
+        }
+        for (boolean shared : new boolean[] {false, true}) {
+            if (mode.equals(shared ? "split" : "shared")) {
+                continue;
+            }
+            for (int engines = 1; engines <= maxEngines; engines *= 2) {
+                runEngines(engines, ticks, shared);
+                double[] rates = new double[ROUNDS];
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    runEngines(engines, ticks, shared);
+                    rates[round] = engines * (double) ticks / ((System.nanoTime() - start) / 1e9);
+                }
+                Arrays.sort(rates);
+                System.out.printf("%-6s %2d engines: %10.0f ticks/s total (median of %d, %.0f to %.0f)%s%n",
+                    shared ? "shared" : "split", engines, rates[ROUNDS / 2], ROUNDS, rates[0], rates[ROUNDS - 1],
+                    engines > cores ? "  more engines than cores" : "");
+            }
+        }
+    }
+
+    private static void runEngines(int engines, int ticks, boolean shared) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(engines);
+        RandomGenerator common = new Random(0);
+        List<Future<?>> results = new ArrayList<>();
+        for (int e = 0; e < engines; e++) {
+            long seed = e;
+            GameEngine engine = shared ? new GameEngine(seed, true, common, common) : new GameEngine(seed, true);
+            results.add(executor.submit(() -> drive(engine, ticks)));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+    }
+
+    // Scripted input: sweep left and right, fire whenever possible
+    static void drive(GameEngine engine, int ticks) {
+        Player player = engine.getPlayer();
+        for (int t = 0; t < ticks; t++) {
+            boolean left = (t / 90) % 2 == 0;
+            player.setMovingLeft(left);
+            player.setMovingRight(!left);
+            engine.shoot();
+            engine.update();
+            if (engine.isGameOver()) {
+                engine.restart();
+            } else if (engine.isLevelComplete()) {
+                engine.nextLevel();
+            }
+        }
+    }
+}
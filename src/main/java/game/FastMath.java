@@ -0,0 +1,54 @@
+package game;
+
+// Table-based sin/cos for animation paths (wobble, pulse, twinkle, sparks).
+// Linear interpolation over a 4096-entry table keeps the error below 1e-6,
+// far under one pixel or one alpha step, at a fraction of Math.sin's cost.
+public final class FastMath {
+    public static final double TWO_PI = Math.PI * 2;
+    public static final double MAX_ERROR = 1e-6;
+
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final int QUARTER = TABLE_SIZE / 4;
+    private static final double INDEX_SCALE = TABLE_SIZE / TWO_PI;
+
+    // One extra entry so interpolation never needs to wrap
+    private static final float[] SIN_TABLE = new float[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SIN_TABLE[i] = (float) Math.sin(i / INDEX_SCALE);
+        }
+    }
+
+    private FastMath() {
+    }
+
+    public static double sin(double radians) {
+        return lookup(radians * INDEX_SCALE, 0);
+    }
+
+    public static double cos(double radians) {
+        return lookup(radians * INDEX_SCALE, QUARTER);
+    }
+
+    private static double lookup(double index, int offset) {
+        double floor = Math.floor(index);
+        int i = (int) ((long) floor + offset & TABLE_MASK);
+        double a = SIN_TABLE[i];
+        return a + (SIN_TABLE[i + 1] - a) * (index - floor);
+    }
+
+    // Keep ever-growing animation phases in [0, 2*PI) so they never lose precision
+    public static double wrapPhase(double phase) {
+        if (phase >= TWO_PI || phase < 0) {
+            phase -= Math.floor(phase / TWO_PI) * TWO_PI;
+        }
+        return phase;
+    }
+
+    public static float wrapPhase(float phase) {
+        return (float) wrapPhase((double) phase);
+    }
+}
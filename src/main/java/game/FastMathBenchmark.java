@@ -0,0 +1,47 @@
+package game;
+
+// Accuracy check and throughput comparison of FastMath against Math.sin/Math.cos.
+// Exits with status 1 if the error bound is exceeded.
+// Run: java -cp bin game.FastMathBenchmark
+public class FastMathBenchmark {
+    public static void main(String[] args) {
+        // Accuracy over the phase ranges the animations actually use, including negatives
+        double worst = 0;
+        for (double a = -1000; a < 1000; a += 0.000917) {
+            worst = Math.max(worst, Math.abs(FastMath.sin(a) - Math.sin(a)));
+            worst = Math.max(worst, Math.abs(FastMath.cos(a) - Math.cos(a)));
+        }
+        for (double a = -1000; a < 1000; a += 0.37) {
+            double wrapped = FastMath.wrapPhase(a);
+            if (wrapped < 0 || wrapped >= FastMath.TWO_PI || Math.abs(Math.sin(wrapped) - Math.sin(a)) > 1e-9) {
+                System.out.println("FAIL: wrapPhase(" + a + ") = " + wrapped);
+                System.exit(1);
+            }
+        }
+        System.out.printf("max abs error %.3g (bound %.1g)%n", worst, FastMath.MAX_ERROR);
+        if (worst > FastMath.MAX_ERROR) {
+            System.out.println("FAIL: error bound exceeded");
+            System.exit(1);
+        }
+
+        int n = 10_000_000;
+        double sink = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                sink += Math.sin(i * 0.013) + Math.cos(i * 0.007);
+            }
+            long jdk = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                sink += FastMath.sin(i * 0.013) + FastMath.cos(i * 0.007);
+            }
+            long table = System.nanoTime() - start;
+
+            System.out.printf("round %d: Math %.2f ns/call, FastMath %.2f ns/call (%.1fx)%n",
+                round, jdk / (2.0 * n), table / (2.0 * n), (double) jdk / table);
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+}
@@ -0,0 +1,177 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+// Records rendered frames for bug reports without stalling the EDT.
+// Frames are rendered straight into a pooled image; encoder threads write them out as
+// numbered PNGs or one raw RGB stream. When no pooled image is free the frame is dropped.
+public class FrameCapture {
+    public enum Format { PNG, RGB }
+
+    public static final int POOL_SIZE = 8;
+    public static final int ENCODERS = 2;
+
+    private final File directory;
+    private final Format format;
+    private final int width, height;
+    private final BlockingQueue<Frame> free;
+    private final BlockingQueue<Frame> pending;
+    private final Thread[] encoders;
+    private final FileChannel rawChannel;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger liveEncoders = new AtomicInteger(ENCODERS);
+    private Frame current;
+    private long frameNumber = 0;
+    private long captured = 0;
+    private long dropped = 0;
+    private volatile boolean running = true;
+
+    private static class Frame {
+        final BufferedImage image;
+        final ByteBuffer rgb; // reused for the raw format
+        long number; // frame number, gaps mark dropped frames
+        long index;  // position in the raw stream
+
+        Frame(int width, int height, boolean raw) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            rgb = raw ? ByteBuffer.allocateDirect(width * height * 3) : null;
+        }
+    }
+
+    public FrameCapture(File directory, Format format, int width, int height) throws IOException {
+        this.directory = directory;
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create capture directory " + directory);
+        }
+        this.rawChannel = format == Format.RGB
+            ? FileChannel.open(new File(directory, "capture_" + width + "x" + height + ".rgb").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+            : null;
+        this.free = new ArrayBlockingQueue<>(POOL_SIZE);
+        this.pending = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.add(new Frame(width, height, format == Format.RGB));
+        }
+        this.encoders = new Thread[ENCODERS];
+        for (int i = 0; i < ENCODERS; i++) {
+            encoders[i] = new Thread(this::encodeLoop, "frame-encoder-" + i);
+            encoders[i].setDaemon(true);
+            encoders[i].setPriority(Thread.MIN_PRIORITY);
+            encoders[i].start();
+        }
+    }
+
+    // Starts a capture from the bubble.capture.dir / bubble.capture.format properties
+    public static FrameCapture fromProperties() throws IOException {
+        File dir = new File(System.getProperty("bubble.capture.dir", "capture"));
+        Format format = "rgb".equalsIgnoreCase(System.getProperty("bubble.capture.format")) ? Format.RGB : Format.PNG;
+        return new FrameCapture(dir, format, Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+    }
+
+    // Called on the EDT. Returns a graphics for the next pooled frame, or null if the
+    // encoders are behind and this frame is dropped. Must be followed by submitFrame().
+    public Graphics2D beginFrame() {
+        frameNumber++;
+        current = free.poll();
+        if (current == null) {
+            dropped++;
+            return null;
+        }
+        current.number = frameNumber;
+        current.index = captured++;
+        return current.image.createGraphics();
+    }
+
+    public BufferedImage currentImage() {
+        return current == null ? null : current.image;
+    }
+
+    public void submitFrame() {
+        if (current != null) {
+            // Never blocks: pending has room for every pooled frame
+            pending.offer(current);
+            current = null;
+        }
+    }
+
+    private void encodeLoop() {
+        while (running || !pending.isEmpty()) {
+            Frame frame;
+            try {
+                // Polled rather than interrupted: an interrupt would close the raw FileChannel
+                frame = pending.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (frame == null) continue;
+            try {
+                if (format == Format.PNG) {
+                    ImageIO.write(frame.image, "png", new File(directory, String.format("frame_%06d.png", frame.number)));
+                } else {
+                    writeRaw(frame);
+                }
+                written.incrementAndGet();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+            }
+            free.offer(frame);
+        }
+        if (liveEncoders.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    // Positional writes keep the stream in frame order even with several encoders
+    private void writeRaw(Frame frame) throws IOException {
+        int[] pixels = ((DataBufferInt) frame.image.getRaster().getDataBuffer()).getData();
+        ByteBuffer rgb = frame.rgb;
+        rgb.clear();
+        for (int pixel : pixels) {
+            rgb.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+        }
+        rgb.flip();
+        long position = frame.index * rgb.capacity();
+        while (rgb.hasRemaining()) {
+            position += rawChannel.write(rgb, position);
+        }
+    }
+
+    // Returns immediately; the last encoder to drain the queue closes the output
+    public void stop() {
+        running = false;
+    }
+
+    private void finish() {
+        if (rawChannel != null) {
+            try {
+                rawChannel.close();
+            } catch (IOException e) {
+                // Every frame has been written by now; nothing is lost
+            }
+        }
+    }
+
+    public long getFrameCount() { return frameNumber; }
+    public long getDroppedFrames() { return dropped; }
+    public long getWrittenFrames() { return written.get(); }
+    public long getFailedFrames() { return failed.get(); }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
@@ -0,0 +1,76 @@
+package game;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+
+// In-game frame-time readout (F3): average and worst update and paint times over the
+// last second, plus entity counts, the particle budget's counters, the render pipeline
+// RenderPipeline chose and the loaded benchmark scene, if any.
+public class FrameTimeOverlay {
+    private static final int WINDOW = 60;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final Color TEXT = new Color(180, 255, 180);
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 12);
+
+    private final long[] updateNanos = new long[WINDOW];
+    private final long[] paintNanos = new long[WINDOW];
+    private final String sceneName;
+    private int updateIndex, paintIndex;
+    private boolean visible;
+
+    public FrameTimeOverlay(String sceneName) {
+        this.sceneName = sceneName;
+    }
+
+    public void recordUpdate(long nanos) {
+        updateNanos[updateIndex] = nanos;
+        updateIndex = (updateIndex + 1) % WINDOW;
+    }
+
+    public void recordPaint(long nanos) {
+        paintNanos[paintIndex] = nanos;
+        paintIndex = (paintIndex + 1) % WINDOW;
+    }
+
+    public void draw(Graphics2D g, GameEngine engine) {
+        if (!visible) return;
+        int x = Constants.WINDOW_WIDTH - 295;
+        int y = 165;
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, 290, sceneName != null ? 104 : 90);
+        g.setColor(TEXT);
+        g.setFont(FONT);
+        g.drawString(String.format("update %6.3f ms  max %6.3f", average(updateNanos), max(updateNanos)), x + 6, y + 16);
+        g.drawString(String.format("paint  %6.3f ms  max %6.3f", average(paintNanos), max(paintNanos)), x + 6, y + 30);
+        ParticleBudget budget = engine.getParticleBudget();
+        g.drawString("bubbles " + engine.getBubbles().size() + "  particles " + budget.getLive() + "/" + budget.getCapacity(), x + 6, y + 44);
+        g.drawString("projectiles " + engine.getProjectiles().size(), x + 6, y + 58);
+        g.drawString("fx req " + budget.getRequested() + " emit " + budget.getEmitted() + " cull " + budget.getCulled(), x + 6, y + 72);
+        g.drawString(RenderPipeline.getDecision() + " " + RenderPipeline.getQuality(), x + 6, y + 86);
+        if (sceneName != null) {
+            g.drawString("scene " + sceneName, x + 6, y + 100);
+        }
+    }
+
+    private static double average(long[] samples) {
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        return total / 1e6 / samples.length;
+    }
+
+    private static double max(long[] samples) {
+        long max = 0;
+        for (long sample : samples) {
+            max = Math.max(max, sample);
+        }
+        return max / 1e6;
+    }
+
+    public void toggle() { visible = !visible; }
+    public boolean isVisible() { return visible; }
+}
@@ -0,0 +1,104 @@
+package game;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// Particles and screen shake for gameplay events. Runs from the engine's event bus at the end
+// of each update(), with its own random stream, so turning effects off (headless simulation,
+// replays, bots) never changes gameplay or the engine's random sequence.
+public class GameEffects implements GameEventBus.Subscriber {
+    private final GameEngine engine;
+    private final RandomGenerator random;
+    private final ParticleBudget budget;
+
+    public GameEffects(GameEngine engine, RandomGenerator random) {
+        this.engine = engine;
+        this.random = random;
+        this.budget = new ParticleBudget(engine.getParticles());
+    }
+
+    @Override
+    public void onEvents(GameEventBus events) {
+        for (int i = 0; i < events.count(); i++) {
+            switch (events.type(i)) {
+                case POP:
+                    createBubblePopParticles(events.x(i) + events.size(i) / 2.0, events.y(i) + events.size(i) / 2.0);
+                    // Light screen shake for bubble pop
+                    engine.shake(3);
+                    break;
+                case DEATH:
+                    createDeathParticles(events.x(i), events.y(i));
+                    engine.shake(Tuning.active().shakeDuration);
+                    break;
+                case LEVEL_CLEAR:
+                    createCelebrationParticles();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public RandomGenerator getRandom() { return random; }
+    public ParticleBudget getBudget() { return budget; }
+
+    private void createBubblePopParticles(double x, double y) {
+        Tuning tuning = Tuning.active();
+        if (!tuning.particles) return;
+
+        List<Particle> particles = engine.getParticles();
+        int requested = tuning.particleCountPop;
+        // A thinned ring stays a ring: the survivors are spread evenly around it
+        int count = budget.grant(ParticleBudget.Priority.POP, requested);
+        double scale = ParticleBudget.mergeScale(requested, count);
+        for (int i = 0; i < count; i++) {
+            double angle = (Math.PI * 2 * i) / count;
+            double speed = tuning.particleSpeed * (0.5 + random.nextDouble() * 0.5);
+            double vx = Math.cos(angle) * speed;
+            double vy = Math.sin(angle) * speed;
+            particles.add(emit(x, y, vx, vy, Constants.COLOR_PARTICLE_BUBBLE_POP, ParticleBudget.Priority.POP, scale));
+        }
+    }
+
+    private void createDeathParticles(double x, double y) {
+        Tuning tuning = Tuning.active();
+        if (!tuning.particles) return;
+
+        List<Particle> particles = engine.getParticles();
+        int count = budget.grant(ParticleBudget.Priority.DEATH, tuning.particleCountDeath);
+        double scale = ParticleBudget.mergeScale(tuning.particleCountDeath, count);
+        for (int i = 0; i < count; i++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            double speed = tuning.particleSpeed * (0.5 + random.nextDouble());
+            double vx = Math.cos(angle) * speed;
+            double vy = Math.sin(angle) * speed - 2;
+            particles.add(emit(x, y, vx, vy, Constants.COLOR_PARTICLE_EXPLOSION, ParticleBudget.Priority.DEATH, scale));
+        }
+    }
+
+    private void createCelebrationParticles() {
+        Tuning tuning = Tuning.active();
+        if (!tuning.particles) return;
+
+        List<Particle> particles = engine.getParticles();
+        int count = budget.grant(ParticleBudget.Priority.CELEBRATION, tuning.particleCountCelebration);
+        double scale = ParticleBudget.mergeScale(tuning.particleCountCelebration, count);
+        for (int i = 0; i < count; i++) {
+            double x = engine.getViewLeft() + random.nextDouble() * Constants.WINDOW_WIDTH;
+            double y = Constants.GROUND_LEVEL;
+            double vx = (random.nextDouble() - 0.5) * 4;
+            double vy = -random.nextDouble() * 8 - 5;
+            particles.add(emit(x, y, vx, vy, Constants.COLOR_PARTICLE_SPARKLE, ParticleBudget.Priority.CELEBRATION, scale));
+        }
+    }
+
+    private Particle emit(double x, double y, double vx, double vy, Color color,
+                          ParticleBudget.Priority priority, double scale) {
+        Particle particle = new Particle(x, y, vx, vy, color, priority, random);
+        if (scale != 1) {
+            particle.scaleSize(scale);
+        }
+        return particle;
+    }
+}
@@ -1,10 +1,18 @@
 package game;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 public class GameEngine {
+    public static final int TICKS_PER_SECOND = 60;
+    // Arena mode: bubbles further than this from every player and harpoon are left where they
+    // are and caught up (Bubble.catchUp) when they come back in range, or at the latest when
+    // the bubbles are refiled, every FAR_BATCH updates
+    public static final double FAR_RANGE = Constants.WINDOW_WIDTH;
+    public static final int FAR_BATCH = 32;
+    
     private Player player;
     private List<Bubble> bubbles;
     private List<Projectile> projectiles;
@@ -22,9 +30,77 @@ public class GameEngine {
     private int screenShakeX;
     private int screenShakeY;
     private boolean levelJustChanged;
+    private SoundManager sound;
+    private final long seed;
+    private RandomGenerator random;
+    private final boolean headless;
+    private long ticks;
+    private int ticksPerUpdate = 1;
+    private final GameEventBus events = new GameEventBus();
+    private final GameEffects effects;
+    private final LevelLibrary levels = LevelLibrary.shared();
+    // Co-op netplay (LockstepSession): a second player sharing lives, score and level
+    private Player player2;
+    // Each player's harpoon; a player can fire again once theirs is gone
+    private final Projectile[] shots = new Projectile[2];
+    private LevelData levelData;
+    private boolean invulnerable;
+    // Wider than the window in arena mode. There the bubbles are filed by x in bubbleGrid, so
+    // updates, harpoons and the renderer only look at the columns they need; bubbles added
+    // since the filing are the list's tail from indexedBubbles on
+    private double arenaWidth = Constants.WINDOW_WIDTH;
+    private final SpatialGrid<Bubble> bubbleGrid = new SpatialGrid<>(Bubble::getX, Constants.BUBBLE_LARGE);
+    private int indexedBubbles;
+    private Bubble lastIndexed;
+    private long indexedAt;
+    // How far a filed bubble may have moved from its column before the next filing
+    private double bubbleDrift;
+    private boolean refile = true;
+    // The arena's own clock for Bubble.catchUp: ticks actually simulated
+    private long simulatedTicks;
+    private boolean deferFar = true;
+    private final SpatialGrid<Particle> particleGrid = new SpatialGrid<>(Particle::getX, 8);
+    private boolean particlesMoved = true;
+    // copyFrom targets only: popped bubbles and spent harpoons kept for reuse. A live engine
+    // can't reuse them, since SpectatorServer tells bubbles apart by identity
+    private List<Bubble> spareBubbles;
+    private List<Projectile> spareProjectiles;
+    // Multi-tick steps: bubbles that touched a player after the step's first tick, and whom.
+    // They are resolved tick by tick with the step's pops, since a pop may come first
+    private final List<Bubble> touching = new ArrayList<>();
+    private final List<Player> touchedBy = new ArrayList<>();
+    // The player contactTick() found touched
+    private Player touched;
+    // The bubbles the current step moved, in the order it moved them, for cutting it short
+    private final List<Bubble> stepped = new ArrayList<>();
+    // JFR tick events and the subscriber that commits gameplay events; copyFrom turns both off
+    private boolean telemetry = true;
+    private final GameEventBus.Subscriber recorder = GameEvents.subscriber(this);
     
     public GameEngine() {
+        this(System.nanoTime());
+    }
+    
+    // All gameplay randomness comes from this engine's own generator,
+    // so engines never contend on Math.random() and a seed replays a session
+    public GameEngine(long seed) {
+        this(seed, false);
+    }
+    
+    // Headless engines (benchmarks, replays, bots) run on a simulated clock that advances
+    // one frame per update(), and never touch the audio device
+    public GameEngine(long seed, boolean headless) {
+        this(seed, headless, new SplittableRandom(seed), new SplittableRandom(seed ^ 0x9E3779B97F4A7C15L));
+    }
+    
+    // Gameplay and effects draw from the given generators instead (EngineThroughputBenchmark's
+    // shared-generator baseline)
+    GameEngine(long seed, boolean headless, RandomGenerator random, RandomGenerator effectsRandom) {
+        this.seed = seed;
+        this.random = random;
+        this.headless = headless;
         this.player = new Player();
+        this.sound = headless ? SoundManager.silent() : SoundManager.getInstance();
         this.bubbles = new ArrayList<>();
         this.projectiles = new ArrayList<>();
         this.particles = new ArrayList<>();
@@ -34,13 +110,20 @@ public class GameEngine {
         this.gameOver = false;
         this.levelComplete = false;
         this.timeRemaining = Constants.LEVEL_TIME;
-        this.lastTimeUpdate = System.currentTimeMillis();
+        this.lastTimeUpdate = currentTimeMillis();
         this.comboMultiplier = 1;
         this.lastHitTime = 0;
         this.screenShakeFrames = 0;
         this.screenShakeX = 0;
         this.screenShakeY = 0;
         this.levelJustChanged = false;
+        
+        // Scoring runs first so later subscribers see the points it fills in
+        this.effects = new GameEffects(this, effectsRandom);
+        events.subscribe(this::applyScore);
+        events.subscribe(effects);
+        events.subscribe(this::playSounds);
+        events.subscribe(recorder);
         initLevel();
     }
     
@@ -49,184 +132,546 @@ public class GameEngine {
         projectiles.clear();
         particles.clear();
         levelComplete = false;
-        timeRemaining = Constants.LEVEL_TIME;
-        lastTimeUpdate = System.currentTimeMillis();
+        levelData = levels.get(level);
+        timeRemaining = levelData.getTimeLimit();
+        lastTimeUpdate = currentTimeMillis();
         comboMultiplier = 1;
         levelJustChanged = true; // Signal that level changed
         
-        int numBubbles = Constants.INITIAL_BUBBLES + (level - 1);
-        for (int i = 0; i < numBubbles; i++) {
-            double x = 100 + i * 150;
-            if (x > Constants.WINDOW_WIDTH - 150) {
-                x = 100 + (i % 3) * 200;
+        // An arena repeats the level's layout once per screen
+        int screens = (int) (arenaWidth / Constants.WINDOW_WIDTH);
+        for (int screen = 0; screen < screens; screen++) {
+            for (int i = 0; i < levelData.getBubbleCount(); i++) {
+                bubbles.add(place(new Bubble(levelData.getX(i) + screen * Constants.WINDOW_WIDTH, levelData.getY(i),
+                    levelData.getSize(i), levelData.getVelocityX(i), random)));
             }
-            double velocityX = (i % 2 == 0) ? Constants.BUBBLE_SPEED : -Constants.BUBBLE_SPEED;
-            bubbles.add(new Bubble(x, 100, Constants.BUBBLE_LARGE, velocityX));
+        }
+        refile = true;
+    }
+    
+    private Bubble place(Bubble bubble) {
+        bubble.setArenaWidth(arenaWidth);
+        return bubble;
+    }
+    
+    // Catches every bubble up to `now` and files it by x. Also whenever the list was changed
+    // other than by appending, which moves the filed bubbles out of the list's head
+    private void fileBubbles(long now) {
+        double fastest = 0;
+        for (Bubble bubble : bubbles) {
+            bubble.catchUp(now);
+            fastest = Math.max(fastest, Math.abs(bubble.getVelocityX()));
+        }
+        bubbleGrid.rebuild(bubbles, arenaWidth);
+        indexedBubbles = bubbles.size();
+        lastIndexed = indexedBubbles > 0 ? bubbles.get(indexedBubbles - 1) : null;
+        indexedAt = now;
+        // Until the next filing, plus the update that filing comes in
+        bubbleDrift = (FAR_BATCH + 1) * ticksPerUpdate * fastest + 1;
+        refile = false;
+    }
+    
+    private boolean filingChanged() {
+        return refile || bubbles.size() < indexedBubbles
+            || (indexedBubbles > 0 && bubbles.get(indexedBubbles - 1) != lastIndexed);
+    }
+    
+    // Arena mode: the i-th of the filed bubbles from..to, then of those added since
+    private Bubble bubbleNear(int from, int to, int i) {
+        return i < to - from ? bubbleGrid.get(from + i) : bubbles.get(indexedBubbles + i - (to - from));
+    }
+    
+    // Arena mode: the bubbles overlapping [left, right] as of the last update, for the renderer
+    public void bubblesNear(double left, double right, List<Bubble> out) {
+        out.clear();
+        if (filingChanged()) {
+            fileBubbles(simulatedTicks);
+        }
+        int from = bubbleGrid.from(left - bubbleDrift), to = bubbleGrid.to(right + bubbleDrift);
+        for (int i = 0, n = to - from + bubbles.size() - indexedBubbles; i < n; i++) {
+            Bubble bubble = bubbleNear(from, to, i);
+            if (bubble.isActive() && bubble.getX() + bubble.getSize() >= left && bubble.getX() <= right) {
+                out.add(bubble);
+            }
+        }
+    }
+    
+    // The particles are rebuilt into their grid at most once a frame, when asked for
+    public void particlesNear(double left, double right, List<Particle> out) {
+        out.clear();
+        if (particlesMoved || particleGrid.size() != particles.size()) {
+            particleGrid.rebuild(particles, arenaWidth);
+            particlesMoved = false;
+        }
+        for (int i = particleGrid.from(left), end = particleGrid.to(right); i < end; i++) {
+            out.add(particleGrid.get(i));
         }
     }
     
     public void update() {
-        if (gameOver || levelComplete) return;
-        
+        ticks += ticksPerUpdate;
+        if (!gameOver && !levelComplete) {
+            if (telemetry) {
+                GameEvents.Tick tickEvent = new GameEvents.Tick();
+                tickEvent.begin();
+                simulateUpdate();
+                tickEvent.end(this);
+            } else {
+                simulateUpdate();
+            }
+        }
+        events.dispatch();
+        particlesMoved = true;
+    }
+    
+    // A death or a second running out ends a step where single ticks would have, and the rest
+    // of the update's ticks are simulated as a new step from there. The keys held for the update
+    // stay held through a death's reset, as they would be set again before each single tick
+    private void simulateUpdate() {
+        boolean left = player.isMovingLeft(), right = player.isMovingRight();
+        boolean left2 = player2 != null && player2.isMovingLeft(), right2 = player2 != null && player2.isMovingRight();
+        for (int done = 0; done < ticksPerUpdate && !gameOver && !levelComplete; ) {
+            done += simulate(done, ticksPerUpdate - done);
+            if (done == ticksPerUpdate) {
+                break;
+            }
+            player.setMovingLeft(left);
+            player.setMovingRight(right);
+            if (player2 != null) {
+                player2.setMovingLeft(left2);
+                player2.setMovingRight(right2);
+            }
+        }
+    }
+    
+    // Engine time on tick `tick` of the current update, as a single-tick update on it would read it
+    private long tickTimeMillis(int tick) {
+        return headless ? (ticks - ticksPerUpdate + tick + 1) * 1000 / TICKS_PER_SECOND
+            : System.currentTimeMillis() - (ticksPerUpdate - 1 - tick) * 1000L / TICKS_PER_SECOND;
+    }
+    
+    // Simulates up to `steps` ticks from tick `offset` of the update as one step; returns how
+    // many it got through
+    private int simulate(int offset, int steps) {
         // Update screen shake
         if (screenShakeFrames > 0) {
             screenShakeFrames--;
             if (screenShakeFrames > 0) {
-                screenShakeX = (int)(Math.random() * Constants.SHAKE_INTENSITY * 2 - Constants.SHAKE_INTENSITY);
-                screenShakeY = (int)(Math.random() * Constants.SHAKE_INTENSITY * 2 - Constants.SHAKE_INTENSITY);
+                int intensity = Tuning.active().shakeIntensity;
+                screenShakeX = (int)(effects.getRandom().nextDouble() * intensity * 2 - intensity);
+                screenShakeY = (int)(effects.getRandom().nextDouble() * intensity * 2 - intensity);
             } else {
                 screenShakeX = 0;
                 screenShakeY = 0;
             }
         }
         
-        // Update combo multiplier (reset after 2 seconds)
-        if (System.currentTimeMillis() - lastHitTime > 2000) {
+        // Update combo multiplier (reset after 2 seconds); scoring checks it again at each pop
+        if (tickTimeMillis(offset) - lastHitTime > 2000) {
             comboMultiplier = 1;
         }
         
-        // Update timer
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastTimeUpdate >= 1000) {
+        // Update timer, tick by tick: a second that runs out later in the step ends the step
+        // before that tick, and the next step starts on it
+        for (int k = 0; k < steps; k++) {
+            long currentTime = tickTimeMillis(offset + k);
+            if (currentTime - lastTimeUpdate < 1000) {
+                continue;
+            }
+            if (k > 0) {
+                steps = k;
+                break;
+            }
             timeRemaining--;
             lastTimeUpdate = currentTime;
             
             // Time's up - lose a life
-            if (timeRemaining <= 0) {
+            if (timeRemaining <= 0 && invulnerable) {
+                timeRemaining = levelData.getTimeLimit();
+            } else if (timeRemaining <= 0) {
                 lives--;
-                createDeathParticles(player.getCenterX(), player.getY());
-                triggerScreenShake();
-                player.reset();
+                events.post(GameEventBus.Type.DEATH, player.getCenterX(), player.getY(), 0, 0, offset);
+                resetPlayer();
                 if (lives <= 0) {
                     gameOver = true;
                 } else {
-                    timeRemaining = Constants.LEVEL_TIME;
+                    timeRemaining = levelData.getTimeLimit();
                 }
-                return;
+                return 1;
             }
         }
         
-        player.update();
+        GameEvents.TickPhase phase = beginPhase();
+        player.advance(steps);
+        if (player2 != null) {
+            player2.advance(steps);
+        }
+        endPhase(phase, "player", player2 != null ? 2 : 1);
         
         // Update bubbles
-        for (Bubble bubble : bubbles) {
-            bubble.update();
+        phase = beginPhase();
+        boolean arena = isArena();
+        boolean deferring = arena && deferFar;
+        int nearFrom = 0, nearTo = 0;
+        if (arena) {
+            long now = simulatedTicks;
+            simulatedTicks += steps;
+            if (filingChanged() || now - indexedAt >= FAR_BATCH * ticksPerUpdate) {
+                fileBubbles(now);
+            }
+            if (deferring) {
+                double left = Math.min(player.getCenterX(), player2 != null ? player2.getCenterX() : Double.MAX_VALUE);
+                double right = Math.max(player.getCenterX(), player2 != null ? player2.getCenterX() : 0);
+                for (Projectile proj : projectiles) {
+                    left = Math.min(left, proj.getX());
+                    right = Math.max(right, proj.getX());
+                }
+                nearFrom = bubbleGrid.from(left - FAR_RANGE - bubbleDrift);
+                nearTo = bubbleGrid.to(right + FAR_RANGE + bubbleDrift);
+            }
+        }
+        int count = deferring ? nearTo - nearFrom + bubbles.size() - indexedBubbles : bubbles.size();
+        touching.clear();
+        touchedBy.clear();
+        stepped.clear();
+        for (int i = 0; i < count; i++) {
+            Bubble bubble = deferring ? bubbleNear(nearFrom, nearTo, i) : bubbles.get(i);
+            if (deferring) {
+                if (!bubble.isActive()) {
+                    // Popped since it was filed
+                    continue;
+                }
+                bubble.catchUp(simulatedTicks - steps);
+            }
+            bubble.advance(steps);
+            stepped.add(bubble);
             
-            // Check collision with player
-            if (bubble.collidesWith(player)) {
+            // Check collision with the players tick by tick along this step. A touch on the first
+            // tick comes before any pop; a later one waits for the pops before it
+            if (invulnerable) {
+                continue;
+            }
+            if (contactTick(bubble, steps) == 0) {
+                // Single ticks would have stopped here on the first one: the bubbles so far
+                // moved one tick, and nothing else did
+                cutStep(stepped.size(), 1, 1);
+                simulatedTicks -= steps - 1;
                 lives--;
-                createDeathParticles(player.getCenterX(), player.getY());
-                triggerScreenShake();
-                player.reset();
+                events.post(GameEventBus.Type.DEATH, touched.getCenterX(), touched.getY(), 0, 1, offset);
+                endPhase(phase, "bubbles", bubbles.size());
+                resetPlayer();
                 if (lives <= 0) {
                     gameOver = true;
                 }
-                return;
+                return 1;
             }
         }
         
+        endPhase(phase, "bubbles", bubbles.size());
+        
         // Update projectiles
-        Iterator<Projectile> projIt = projectiles.iterator();
-        while (projIt.hasNext()) {
-            Projectile proj = projIt.next();
-            proj.update();
-            
-            if (!proj.isActive()) {
-                projIt.remove();
-                continue;
-            }
-            
-            // Check collision with bubbles
-            for (Bubble bubble : bubbles) {
-                if (bubble.collidesWithProjectile(proj)) {
-                    proj.setActive(false);
-                    bubble.setActive(false);
-                    
-                    // Calculate score based on bubble size and combo
-                    int baseScore = 0;
-                    if (bubble.getSize() == Constants.BUBBLE_LARGE) {
-                        baseScore = Constants.SCORE_LARGE_BUBBLE;
-                    } else if (bubble.getSize() == Constants.BUBBLE_MEDIUM) {
-                        baseScore = Constants.SCORE_MEDIUM_BUBBLE;
-                    } else if (bubble.getSize() == Constants.BUBBLE_SMALL) {
-                        baseScore = Constants.SCORE_SMALL_BUBBLE;
-                    }
-                    
-                    // Apply combo multiplier
-                    score += baseScore * comboMultiplier;
-                    
-                    // Update combo (simplified logic)
-                    long currentHitTime = System.currentTimeMillis();
-                    if (currentHitTime - lastHitTime < 2000) {
-                        comboMultiplier = Math.min(comboMultiplier + 1, 5);
+        phase = beginPhase();
+        int projectileCount = projectiles.size();
+        int firstEvent = events.count();
+        for (int p = 0; p < projectileCount; p++) {
+            projectiles.get(p).advance(steps);
+        }
+        
+        // Check collision with bubbles tick by tick, as single ticks would have: on each tick a
+        // touched player dies before that tick's pops, and ends the step's pops. Scoring and
+        // effects happen when the events are dispatched
+        Player hit = null;
+        int hitTick = steps;
+        for (int k = 0; k < steps && hit == null; k++) {
+            for (int j = 0; j < touching.size(); j++) {
+                if (touching.get(j).isActive() && touching.get(j).sweptCollidesWith(touchedBy.get(j), k)) {
+                    hit = touchedBy.get(j);
+                    hitTick = k;
+                    // Single ticks would have stopped on this one at this bubble: it and those
+                    // moved before it made the tick, the other bubbles and the harpoons didn't
+                    cutStep(stepped.indexOf(touching.get(j)) + 1, k + 1, k);
+                    for (int p = 0; p < projectileCount; p++) {
+                        projectiles.get(p).cut(k);
                     }
-                    lastHitTime = currentHitTime;
-                    
-                    // Create particles at bubble location
-                    createBubblePopParticles(
-                        bubble.getX() + bubble.getSize() / 2.0,
-                        bubble.getY() + bubble.getSize() / 2.0,
-                        bubble.getSize()
-                    );
-                    
-                    // Light screen shake for bubble pop
-                    if (Constants.ENABLE_SCREEN_SHAKE) {
-                        screenShakeFrames = 3;
+                    simulatedTicks -= steps - (k + 1);
+                    break;
+                }
+            }
+            for (int p = 0; p < projectiles.size() && hit == null; p++) {
+                Projectile proj = projectiles.get(p);
+                if (k >= proj.getLiveSteps()) {
+                    continue;
+                }
+                int from = 0, to = 0;
+                if (deferring) {
+                    from = bubbleGrid.from(proj.getX() - bubbleDrift);
+                    to = bubbleGrid.to(proj.getX() + bubbleDrift);
+                }
+                for (int i = 0, n = deferring ? to - from + bubbles.size() - indexedBubbles : bubbles.size(); i < n; i++) {
+                    Bubble bubble = deferring ? bubbleNear(from, to, i) : bubbles.get(i);
+                    if (bubble.isActive() && bubble.sweptCollidesWithProjectile(proj, k)) {
+                        proj.spend(k);
+                        bubble.setActive(false);
+                        double x = bubble.getPathX(k + 1), y = bubble.getPathY(k + 1);
+                        events.post(GameEventBus.Type.POP, x, y, bubble.getSize(), 0, offset + k);
+                        // The halves move on, and can be hit or touch a player, from the next tick
+                        int halves = bubbles.size();
+                        splitBubble(x, y, bubble.getSize());
+                        for (int b = halves; b < bubbles.size(); b++) {
+                            stepped.add(bubbles.get(b));
+                            if (k + 1 < steps) {
+                                bubbles.get(b).advance(k + 1, steps - 1 - k);
+                                if (!invulnerable) {
+                                    contactTick(bubbles.get(b), steps);
+                                }
+                            }
+                        }
+                        break;
                     }
-                    
-                    // Split bubble
-                    if (bubble.getSize() == Constants.BUBBLE_LARGE) {
-                        bubbles.add(new Bubble(bubble.getX(), bubble.getY(), 
-                            Constants.BUBBLE_MEDIUM, Constants.BUBBLE_SPEED * 1.2));
-                        bubbles.add(new Bubble(bubble.getX(), bubble.getY(), 
-                            Constants.BUBBLE_MEDIUM, -Constants.BUBBLE_SPEED * 1.2));
-                    } else if (bubble.getSize() == Constants.BUBBLE_MEDIUM) {
-                        bubbles.add(new Bubble(bubble.getX(), bubble.getY(), 
-                            Constants.BUBBLE_SMALL, Constants.BUBBLE_SPEED * 1.5));
-                        bubbles.add(new Bubble(bubble.getX(), bubble.getY(), 
-                            Constants.BUBBLE_SMALL, -Constants.BUBBLE_SPEED * 1.5));
+                }
+            }
+        }
+        
+        // Spent harpoons are compacted out in place, without an iterator to allocate. A harpoon
+        // goes the tick after its pop, or on the tick it leaves the top, so one that popped on
+        // the step's last tick stays until the next step
+        int keptProjectiles = 0;
+        for (int p = 0; p < projectileCount; p++) {
+            Projectile proj = projectiles.get(p);
+            if (!proj.isActive() && proj.getLiveSteps() < hitTick) {
+                if (spareProjectiles != null) {
+                    spareProjectiles.add(proj);
+                    for (int i = 0; i < shots.length; i++) {
+                        if (shots[i] == proj) {
+                            shots[i] = null;
+                        }
                     }
-                    break;
                 }
+                continue;
             }
+            projectiles.set(keptProjectiles++, proj);
         }
+        truncate(projectiles, keptProjectiles);
+        
+        // The split events follow the step's pops
+        boolean popped = false;
+        for (int i = firstEvent, n = events.count(); i < n; i++) {
+            if (events.type(i) == GameEventBus.Type.POP) {
+                if (events.size(i) == Constants.BUBBLE_LARGE) {
+                    events.post(GameEventBus.Type.SPLIT, events.x(i), events.y(i), Constants.BUBBLE_MEDIUM, events.size(i));
+                } else if (events.size(i) == Constants.BUBBLE_MEDIUM) {
+                    events.post(GameEventBus.Type.SPLIT, events.x(i), events.y(i), Constants.BUBBLE_SMALL, events.size(i));
+                }
+                popped = true;
+            }
+        }
+        
+        endPhase(phase, "projectiles", projectileCount);
         
         // Update particles
-        Iterator<Particle> particleIt = particles.iterator();
-        while (particleIt.hasNext()) {
-            Particle p = particleIt.next();
-            p.update();
-            if (!p.isAlive()) {
-                particleIt.remove();
+        phase = beginPhase();
+        int particleCount = particles.size();
+        int keptParticles = 0;
+        for (int j = 0; j < particleCount; j++) {
+            Particle p = particles.get(j);
+            for (int i = 0; i < hitTick; i++) {
+                p.update();
+            }
+            if (p.isAlive()) {
+                particles.set(keptParticles++, p);
             }
         }
+        truncate(particles, keptParticles);
+        endPhase(phase, "particles", particleCount);
         
         // Remove inactive bubbles
-        bubbles.removeIf(b -> !b.isActive());
+        phase = beginPhase();
+        int bubbleCount = bubbles.size();
+        // Not while deferring: the filing may still hold a popped bubble until the next refile
+        if (popped && spareBubbles != null && !deferring) {
+            for (int i = 0; i < bubbles.size(); i++) {
+                if (!bubbles.get(i).isActive()) {
+                    spareBubbles.add(bubbles.get(i));
+                }
+            }
+        }
+        if (deferring) {
+            if (popped) {
+                removePoppedBubbles();
+            }
+        } else {
+            int kept = 0;
+            for (int i = 0; i < bubbles.size(); i++) {
+                if (bubbles.get(i).isActive()) {
+                    bubbles.set(kept++, bubbles.get(i));
+                }
+            }
+            truncate(bubbles, kept);
+        }
+        endPhase(phase, "removal", bubbleCount);
+        
+        // A touch later in the step than its first tick, once the pops before it are done
+        if (hit != null) {
+            lives--;
+            events.post(GameEventBus.Type.DEATH, hit.getCenterX(), hit.getY(), 0, 1, offset + hitTick);
+            resetPlayer();
+            if (lives <= 0) {
+                gameOver = true;
+            }
+            return hitTick + 1;
+        }
         
         // Check level complete
         if (bubbles.isEmpty()) {
-            // Time bonus
-            score += timeRemaining * Constants.SCORE_TIME_BONUS;
-            score += Constants.SCORE_LEVEL_COMPLETE;
             levelComplete = true;
-            
-            // Create celebration particles
-            createCelebrationParticles();
+            events.post(GameEventBus.Type.LEVEL_CLEAR, 0, 0, 0, 0);
+            // Get the next level ready while the level-complete screen is up
+            levels.prefetch(level + 1);
+        }
+        return steps;
+    }
+    
+    // Takes the step's bubbles back to where single ticks would have left them: the first
+    // `moved` of them after `ticks` ticks, the rest after `others`
+    private void cutStep(int moved, int ticks, int others) {
+        for (int i = 0; i < stepped.size(); i++) {
+            stepped.get(i).cut(i < moved ? ticks : others);
+        }
+    }
+    
+    private static void truncate(List<?> list, int size) {
+        while (list.size() > size) {
+            list.remove(list.size() - 1);
+        }
+    }
+    
+    // Null for scratch engines, which would only flood a recording with rollouts' ticks
+    private GameEvents.TickPhase beginPhase() {
+        if (!telemetry) {
+            return null;
+        }
+        GameEvents.TickPhase phase = new GameEvents.TickPhase();
+        phase.begin();
+        return phase;
+    }
+    
+    private static void endPhase(GameEvents.TickPhase phase, String name, int entities) {
+        if (phase != null) {
+            phase.end(name, entities);
+        }
+    }
+    
+    // removeIf that keeps the filed bubbles at the head of the list, so the filing holds
+    private void removePoppedBubbles() {
+        int kept = 0, indexed = 0;
+        for (int i = 0; i < bubbles.size(); i++) {
+            Bubble bubble = bubbles.get(i);
+            if (bubble.isActive()) {
+                bubbles.set(kept++, bubble);
+                if (i < indexedBubbles) {
+                    indexed = kept;
+                }
+            }
+        }
+        bubbles.subList(kept, bubbles.size()).clear();
+        indexedBubbles = indexed;
+        lastIndexed = indexed > 0 ? bubbles.get(indexed - 1) : null;
+    }
+    
+    // The split events are posted after the step's pops (simulate())
+    private void splitBubble(double x, double y, int size) {
+        double speed = Tuning.active().bubbleSpeed;
+        if (size == Constants.BUBBLE_LARGE) {
+            bubbles.add(place(newBubble(x, y, Constants.BUBBLE_MEDIUM, speed * 1.2)));
+            bubbles.add(place(newBubble(x, y, Constants.BUBBLE_MEDIUM, -speed * 1.2)));
+        } else if (size == Constants.BUBBLE_MEDIUM) {
+            bubbles.add(place(newBubble(x, y, Constants.BUBBLE_SMALL, speed * 1.5)));
+            bubbles.add(place(newBubble(x, y, Constants.BUBBLE_SMALL, -speed * 1.5)));
+        }
+    }
+    
+    private Bubble newBubble(double x, double y, int size, double velocityX) {
+        if (spareBubbles == null || spareBubbles.isEmpty()) {
+            return new Bubble(x, y, size, velocityX, random);
+        }
+        Bubble bubble = spareBubbles.remove(spareBubbles.size() - 1);
+        bubble.reset(x, y, size, velocityX, random);
+        return bubble;
+    }
+    
+    // Score and combo for the tick's pops and level clear, in the order they happened
+    private void applyScore(GameEventBus events) {
+        for (int i = 0; i < events.count(); i++) {
+            if (events.type(i) == GameEventBus.Type.POP) {
+                // Calculate score based on bubble size and combo
+                int baseScore = 0;
+                if (events.size(i) == Constants.BUBBLE_LARGE) {
+                    baseScore = Constants.SCORE_LARGE_BUBBLE;
+                } else if (events.size(i) == Constants.BUBBLE_MEDIUM) {
+                    baseScore = Constants.SCORE_MEDIUM_BUBBLE;
+                } else if (events.size(i) == Constants.BUBBLE_SMALL) {
+                    baseScore = Constants.SCORE_SMALL_BUBBLE;
+                }
+                // On the pop's own tick, which the combo's 2 seconds are counted to
+                long currentHitTime = tickTimeMillis(events.tick(i));
+                if (currentHitTime - lastHitTime > 2000) {
+                    comboMultiplier = 1;
+                }
+                int points = baseScore * comboMultiplier;
+                score += points;
+                events.setValue(i, points);
+                
+                // Update combo (simplified logic)
+                if (currentHitTime - lastHitTime < 2000) {
+                    comboMultiplier = Math.min(comboMultiplier + 1, 5);
+                }
+                lastHitTime = currentHitTime;
+            } else if (events.type(i) == GameEventBus.Type.LEVEL_CLEAR) {
+                // Time bonus
+                int bonus = timeRemaining * Constants.SCORE_TIME_BONUS + Constants.SCORE_LEVEL_COMPLETE;
+                score += bonus;
+                events.setValue(i, bonus);
+            }
+        }
+    }
+    
+    private void playSounds(GameEventBus events) {
+        for (int i = 0; i < events.count(); i++) {
+            switch (events.type(i)) {
+                case POP: sound.play(SoundManager.Effect.POP); break;
+                case DEATH: sound.play(SoundManager.Effect.DEATH); break;
+                case LEVEL_CLEAR: sound.play(SoundManager.Effect.LEVEL_CLEAR); break;
+                case SHOT: sound.play(SoundManager.Effect.SHOOT); break;
+                default: break;
+            }
         }
     }
     
     public void shoot() {
-        if (projectiles.isEmpty()) {
-            projectiles.add(new Projectile(player.getCenterX()));
+        shoot(0);
+    }
+    
+    // Player 0 or 1; each has at most one harpoon out at a time
+    public void shoot(int playerIndex) {
+        Player shooter = playerIndex == 1 && player2 != null ? player2 : player;
+        Projectile shot = shots[playerIndex];
+        if (shot == null || !projectiles.contains(shot)) {
+            if (spareProjectiles == null || spareProjectiles.isEmpty()) {
+                shots[playerIndex] = new Projectile(shooter.getCenterX());
+            } else {
+                shots[playerIndex] = spareProjectiles.remove(spareProjectiles.size() - 1);
+                shots[playerIndex].reset(shooter.getCenterX());
+            }
+            projectiles.add(shots[playerIndex]);
+            events.post(GameEventBus.Type.SHOT, shooter.getCenterX(), Constants.GROUND_LEVEL, 0, 0);
         }
     }
     
     public void nextLevel() {
-        if (level < Constants.MAX_LEVEL) {
+        if (level < levels.getLevelCount()) {
             level++;
             initLevel();
-            player.reset();
+            resetPlayer();
         } else {
             gameOver = true;
         }
@@ -238,62 +683,288 @@ public class GameEngine {
         score = 0;
         gameOver = false;
         timeRemaining = Constants.LEVEL_TIME;
-        lastTimeUpdate = System.currentTimeMillis();
+        lastTimeUpdate = currentTimeMillis();
         comboMultiplier = 1;
         screenShakeFrames = 0;
-        player.reset();
+        resetPlayer();
         initLevel();
     }
     
-    private void createBubblePopParticles(double x, double y, int bubbleSize) {
-        if (!Constants.ENABLE_PARTICLES) return;
+    // Puts the engine back into a state captured by RewindBuffer. Particles and screen shake
+    // are cosmetic and are dropped; the level timer restarts its current second
+    void restore(RewindBuffer.Frame frame) {
+        ticks = frame.ticks;
+        level = frame.level;
+        if (levelData.getNumber() != level) {
+            levelData = levels.get(level);
+        }
+        lives = frame.lives;
+        score = frame.score;
+        timeRemaining = frame.timeRemaining;
+        comboMultiplier = frame.comboMultiplier;
+        gameOver = frame.gameOver;
+        levelComplete = frame.levelComplete;
+        lastTimeUpdate = currentTimeMillis();
+        lastHitTime = comboMultiplier > 1 ? lastTimeUpdate : 0;
+        screenShakeFrames = 0;
+        screenShakeX = 0;
+        screenShakeY = 0;
+        player.restore(frame.playerX, frame.playerDirection, frame.playerWalkCycle, frame.playerBobOffset);
         
-        int count = Constants.PARTICLE_COUNT_BUBBLE_POP;
-        for (int i = 0; i < count; i++) {
-            double angle = (Math.PI * 2 * i) / count;
-            double speed = Constants.PARTICLE_SPEED * (0.5 + Math.random() * 0.5);
-            double vx = Math.cos(angle) * speed;
-            double vy = Math.sin(angle) * speed;
-            particles.add(new Particle(x, y, vx, vy, Constants.COLOR_PARTICLE_BUBBLE_POP));
+        bubbles.clear();
+        for (int i = 0; i < frame.bubbleCount; i++) {
+            bubbles.add(place(new Bubble(frame.bubbleX[i], frame.bubbleY[i], frame.bubbleSize[i],
+                frame.bubbleVelocityX[i], frame.bubbleVelocityY[i],
+                frame.bubbleWobble[i], frame.bubbleWobbleSpeed[i], frame.bubblePulse[i])));
         }
+        projectiles.clear();
+        for (int i = 0; i < frame.projectileCount; i++) {
+            projectiles.add(new Projectile(frame.projectileX[i], frame.projectileY[i],
+                frame.projectilePulse[i], frame.projectileElectric[i]));
+        }
+        particles.clear();
+        events.clear();
+        shots[0] = projectiles.isEmpty() ? null : projectiles.get(0);
+        shots[1] = null;
+        refile = true;
     }
     
-    private void createDeathParticles(double x, double y) {
-        if (!Constants.ENABLE_PARTICLES) return;
+    // Makes this engine a copy of source's gameplay state, for SearchBot's rollouts on headless
+    // scratch engines. Particles, shake and the wobble random stream are cosmetic and aren't
+    // copied. The bubbles and harpoons this engine drops are kept for reuse, so once it has held
+    // as many as the source does, copying allocates nothing. The source is only read. The
+    // first copy makes this engine a scratch engine for good: no effects or JFR events.
+    public void copyFrom(GameEngine source) {
+        if (!headless) {
+            throw new IllegalStateException("copyFrom needs a headless engine");
+        }
+        if (spareBubbles == null) {
+            spareBubbles = new ArrayList<>();
+            spareProjectiles = new ArrayList<>();
+            telemetry = false;
+            setEffectsEnabled(false);
+            events.unsubscribe(recorder);
+        }
+        ticks = source.ticks;
+        ticksPerUpdate = source.ticksPerUpdate;
+        level = source.level;
+        levelData = source.levelData;
+        lives = source.lives;
+        score = source.score;
+        gameOver = source.gameOver;
+        levelComplete = source.levelComplete;
+        levelJustChanged = source.levelJustChanged;
+        timeRemaining = source.timeRemaining;
+        comboMultiplier = source.comboMultiplier;
+        invulnerable = source.invulnerable;
+        // The timer and combo clocks as ages, so a copy of a windowed game keeps its timers
+        long now = currentTimeMillis(), sourceNow = source.currentTimeMillis();
+        lastTimeUpdate = now - (sourceNow - source.lastTimeUpdate);
+        lastHitTime = now - (sourceNow - source.lastHitTime);
+        screenShakeFrames = 0;
+        screenShakeX = 0;
+        screenShakeY = 0;
+        arenaWidth = source.arenaWidth;
+        deferFar = source.deferFar;
+        simulatedTicks = source.simulatedTicks;
+        refile = true;
         
-        for (int i = 0; i < 20; i++) {
-            double angle = Math.random() * Math.PI * 2;
-            double speed = Constants.PARTICLE_SPEED * (0.5 + Math.random());
-            double vx = Math.cos(angle) * speed;
-            double vy = Math.sin(angle) * speed - 2;
-            particles.add(new Particle(x, y, vx, vy, Constants.COLOR_PARTICLE_EXPLOSION));
+        player.copyFrom(source.player);
+        if (source.player2 == null) {
+            player2 = null;
+        } else {
+            if (player2 == null) {
+                player2 = new Player();
+            }
+            player2.copyFrom(source.player2);
+        }
+        
+        for (int i = 0; i < bubbles.size(); i++) {
+            spareBubbles.add(bubbles.get(i));
+        }
+        bubbles.clear();
+        for (int i = 0; i < source.bubbles.size(); i++) {
+            Bubble bubble = spareBubbles.isEmpty() ? new Bubble(0, 0, 0, 0, 0, 0, 0, 0)
+                                                   : spareBubbles.remove(spareBubbles.size() - 1);
+            bubble.copyFrom(source.bubbles.get(i));
+            bubbles.add(bubble);
         }
+        for (int i = 0; i < projectiles.size(); i++) {
+            spareProjectiles.add(projectiles.get(i));
+        }
+        projectiles.clear();
+        for (int s = 0; s < shots.length; s++) {
+            shots[s] = null;
+        }
+        for (int i = 0; i < source.projectiles.size(); i++) {
+            Projectile projectile = spareProjectiles.isEmpty() ? new Projectile(0)
+                                                               : spareProjectiles.remove(spareProjectiles.size() - 1);
+            Projectile original = source.projectiles.get(i);
+            projectile.copyFrom(original);
+            projectiles.add(projectile);
+            for (int s = 0; s < shots.length; s++) {
+                if (source.shots[s] == original) {
+                    shots[s] = projectile;
+                }
+            }
+        }
+        particles.clear();
+        particlesMoved = true;
+        events.clear();
     }
     
-    private void createCelebrationParticles() {
-        if (!Constants.ENABLE_PARTICLES) return;
-        
-        for (int i = 0; i < 50; i++) {
-            double x = Math.random() * Constants.WINDOW_WIDTH;
-            double y = Constants.GROUND_LEVEL;
-            double vx = (Math.random() - 0.5) * 4;
-            double vy = -Math.random() * 8 - 5;
-            particles.add(new Particle(x, y, vx, vy, Constants.COLOR_PARTICLE_SPARKLE));
+    // LockstepSession resyncs: which player fired each projectile (-1 for none), the clock
+    // state behind the level timer and combo, and the second player
+    int shotOwner(Projectile projectile) {
+        return projectile == shots[0] ? 0 : projectile == shots[1] ? 1 : -1;
+    }
+    
+    void restoreShots(int[] owners) {
+        shots[0] = null;
+        shots[1] = null;
+        for (int i = 0; i < projectiles.size(); i++) {
+            if (owners[i] >= 0) {
+                shots[owners[i]] = projectiles.get(i);
+            }
         }
     }
     
-    private void triggerScreenShake() {
-        if (Constants.ENABLE_SCREEN_SHAKE) {
-            screenShakeFrames = Constants.SHAKE_DURATION;
+    // Bubble wobble draws from random, which a resync can't copy; both peers restart it instead
+    void reseed(long seed) { random = new SplittableRandom(seed); }
+    
+    long getLastTimeUpdate() { return lastTimeUpdate; }
+    long getLastHitTime() { return lastHitTime; }
+    
+    void restoreClock(long lastTimeUpdate, long lastHitTime) {
+        this.lastTimeUpdate = lastTimeUpdate;
+        this.lastHitTime = lastHitTime;
+    }
+    
+    private long currentTimeMillis() {
+        return headless ? ticks * 1000 / TICKS_PER_SECOND : System.currentTimeMillis();
+    }
+    
+    // The tick of this step on which the bubble first touched a player, or -1. The player is
+    // left in `touched`; a touch after the first tick is kept in `touching` to be resolved
+    // against the step's pops
+    private int contactTick(Bubble bubble, int steps) {
+        int contact = bubble.mayCollideWith(player, steps) ? bubble.sweptContactTick(player) : -1;
+        touched = player;
+        if (player2 != null) {
+            int contact2 = bubble.sweptContactTick(player2);
+            if (contact2 >= 0 && (contact < 0 || contact2 < contact)) {
+                contact = contact2;
+                touched = player2;
+            }
+        }
+        if (contact > 0) {
+            touching.add(bubble);
+            touchedBy.add(touched);
+        }
+        return contact;
+    }
+    
+    // The player jumps back to the start, so bubbles' trajectory bounds no longer hold
+    private void resetPlayer() {
+        player.reset();
+        if (player2 != null) {
+            // Side by side, a third of the screen apart, on the middle screen of an arena
+            double screen = (arenaWidth - Constants.WINDOW_WIDTH) / 2.0;
+            player.restore(screen + Constants.WINDOW_WIDTH / 3.0 - Constants.PLAYER_WIDTH / 2.0, 1, 0, 0);
+            player2.reset();
+            player2.restore(screen + Constants.WINDOW_WIDTH * 2 / 3.0 - Constants.PLAYER_WIDTH / 2.0, -1, 0, 0);
+        }
+        for (Bubble bubble : bubbles) {
+            bubble.resetPlayerClearance();
+        }
+    }
+    
+    // Used by GameEffects for pops and deaths
+    void shake(int frames) {
+        if (Tuning.active().screenShake) {
+            screenShakeFrames = frames;
         }
     }
     
     // Getters
     public Player getPlayer() { return player; }
+    public Player getPlayer2() { return player2; }
+    
+    public void setTwoPlayer(boolean twoPlayer) {
+        player2 = twoPlayer ? new Player() : null;
+        if (player2 != null) {
+            player2.setArenaWidth(arenaWidth);
+        }
+        resetPlayer();
+    }
+    
+    // Arena mode: `screens` windows wide, each with a copy of the level's bubbles. Restarts the level
+    public void setArenaScreens(int screens) {
+        arenaWidth = Math.max(1, Math.min(screens, Constants.MAX_ARENA_SCREENS)) * (double) Constants.WINDOW_WIDTH;
+        player.setArenaWidth(arenaWidth);
+        if (player2 != null) {
+            player2.setArenaWidth(arenaWidth);
+        }
+        initLevel();
+        resetPlayer();
+    }
+    
+    // For ArenaBenchmark's baseline: every bubble simulated in full however far away it is
+    void setDeferFar(boolean deferFar) { this.deferFar = deferFar; }
+    
+    public boolean isArena() { return arenaWidth > Constants.WINDOW_WIDTH; }
+    public double getArenaWidth() { return arenaWidth; }
+    
+    // World x at the window's left edge: centred on player 1, clamped to the arena's ends
+    public double getViewLeft() {
+        return Math.max(0, Math.min(player.getCenterX() - Constants.WINDOW_WIDTH / 2.0, arenaWidth - Constants.WINDOW_WIDTH));
+    }
+    
+    public long getSeed() { return seed; }
+    public boolean isHeadless() { return headless; }
+    public boolean isInvulnerable() { return invulnerable; }
+    // Benchmark scenes and practice runs keep playing instead of losing lives
+    public void setInvulnerable(boolean invulnerable) { this.invulnerable = invulnerable; }
+    void setGameOver(boolean gameOver) { this.gameOver = gameOver; }
+    public long getTicks() { return ticks; }
+    public int getTicksPerUpdate() { return ticksPerUpdate; }
+    public GameEventBus getEvents() { return events; }
+    // Particles and screen shake; pure simulation runs can turn them off without changing gameplay
+    public void setEffectsEnabled(boolean enabled) {
+        if (enabled) {
+            events.subscribe(effects);
+        } else {
+            events.unsubscribe(effects);
+        }
+    }
+    // Simulated ticks per update() call. Motion is still integrated one tick at a time, and
+    // collisions are swept along each tick's move and resolved in tick order. Pops, deaths and
+    // the level timer are timed by their own tick, so lower update rates play the same game
+    public void setTicksPerUpdate(int ticksPerUpdate) {
+        this.ticksPerUpdate = Math.max(1, ticksPerUpdate);
+        // The filing's drift bound is per update
+        refile = true;
+    }
+
+    // Call between updates when Tuning.apply() swapped in a new snapshot. Far bubbles left
+    // behind are settled up to now under the old gravity they were moving with, and the player
+    // clearance bounds and filing drift, worked out under the old gravity and speeds, are dropped
+    public void tuningChanged(Tuning old) {
+        for (Bubble bubble : bubbles) {
+            bubble.catchUp(simulatedTicks, old.gravity);
+            bubble.resetPlayerClearance();
+        }
+        refile = true;
+    }
+    
+    public RandomGenerator getRandom() { return random; }
     public List<Bubble> getBubbles() { return bubbles; }
     public List<Projectile> getProjectiles() { return projectiles; }
     public List<Particle> getParticles() { return particles; }
+    public ParticleBudget getParticleBudget() { return effects.getBudget(); }
     public int getLevel() { return level; }
+    public LevelData getLevelData() { return levelData; }
+    public Constants.LevelTheme getTheme() { return Constants.LEVEL_THEMES[levelData.getTheme()]; }
     public int getLives() { return lives; }
     public int getScore() { return score; }
     public boolean isGameOver() { return gameOver; }
@@ -0,0 +1,86 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Typed, batched gameplay events. GameEngine only appends events to preallocated arrays while
+// it simulates; subscribers (score, particles and shake, sound, telemetry) then see the whole
+// batch once at the end of update(), in the order they subscribed. Nothing is allocated per event.
+//
+// Fields per type:
+//   POP          x, y = bubble top-left, size = bubble size, value = points (filled in by scoring)
+//   SPLIT        x, y = parent top-left, size = child size, value = parent size
+//   DEATH        x, y = player center and top, value = 1 if hit by a bubble, 0 if the timer ran out
+//   LEVEL_CLEAR  value = bonus points (filled in by scoring)
+//   SHOT         x = harpoon position
+// POP and DEATH also carry which of the update's ticks they happened on; the rest carry 0.
+public class GameEventBus {
+    public enum Type { POP, SPLIT, DEATH, LEVEL_CLEAR, SHOT }
+
+    public interface Subscriber {
+        void onEvents(GameEventBus events);
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private byte[] types = new byte[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private int[] sizes = new int[64];
+    private int[] values = new int[64];
+    private int[] ticks = new int[64];
+    private int count;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    public void post(Type type, double x, double y, int size, int value) {
+        post(type, x, y, size, value, 0);
+    }
+
+    public void post(Type type, double x, double y, int size, int value, int tick) {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            values = Arrays.copyOf(values, capacity);
+            ticks = Arrays.copyOf(ticks, capacity);
+        }
+        types[count] = (byte) type.ordinal();
+        xs[count] = x;
+        ys[count] = y;
+        sizes[count] = size;
+        values[count] = value;
+        ticks[count] = tick;
+        count++;
+    }
+
+    // Hands the batch to every subscriber, then empties it
+    public void dispatch() {
+        if (count == 0) return;
+        for (int i = 0; i < subscribers.size(); i++) {
+            subscribers.get(i).onEvents(this);
+        }
+        count = 0;
+    }
+
+    public void clear() { count = 0; }
+
+    public void subscribe(Subscriber subscriber) {
+        if (!subscribers.contains(subscriber)) {
+            subscribers.add(subscriber);
+        }
+    }
+
+    public void unsubscribe(Subscriber subscriber) { subscribers.remove(subscriber); }
+
+    public int count() { return count; }
+    public Type type(int i) { return TYPES[types[i]]; }
+    public double x(int i) { return xs[i]; }
+    public double y(int i) { return ys[i]; }
+    public int size(int i) { return sizes[i]; }
+    public int value(int i) { return values[i]; }
+    public int tick(int i) { return ticks[i]; }
+    public void setValue(int i, int value) { values[i] = value; }
+}
@@ -0,0 +1,202 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for the game loop and renderer. Events cost next to nothing
+// unless a recording is running: the fields are only filled in when shouldCommit() says so.
+// Record with F10 in game, -Dbubble.jfr=true from startup, or the JVM's own
+// -XX:StartFlightRecording; open the file in JDK Mission Control next to GC and CPU data.
+public class GameEvents {
+    @Name("game.Tick")
+    @Label("Tick")
+    @Category({"Bubble Trouble", "Simulation"})
+    @StackTrace(false)
+    public static class Tick extends Event {
+        @Label("Tick") long tick;
+        @Label("Level") int level;
+        @Label("Bubbles") int bubbles;
+        @Label("Projectiles") int projectiles;
+        @Label("Particles") int particles;
+
+        void end(GameEngine engine) {
+            end();
+            if (shouldCommit()) {
+                tick = engine.getTicks();
+                level = engine.getLevel();
+                bubbles = engine.getBubbles().size();
+                projectiles = engine.getProjectiles().size();
+                particles = engine.getParticles().size();
+                commit();
+            }
+        }
+    }
+
+    // One of player, bubbles, projectiles, particles or removal within a tick
+    @Name("game.TickPhase")
+    @Label("Tick Phase")
+    @Category({"Bubble Trouble", "Simulation"})
+    @StackTrace(false)
+    public static class TickPhase extends Event {
+        @Label("Phase") String phase;
+        @Label("Entities") int entities;
+
+        void end(String phase, int entities) {
+            end();
+            if (shouldCommit()) {
+                this.phase = phase;
+                this.entities = entities;
+                commit();
+            }
+        }
+    }
+
+    @Name("game.BubblePop")
+    @Label("Bubble Pop")
+    @Category({"Bubble Trouble", "Gameplay"})
+    @StackTrace(false)
+    public static class BubblePop extends Event {
+        @Label("Size") int size;
+        @Label("Points") int points;
+        @Label("Combo") int combo;
+        @Label("Bubbles") int bubbles;
+    }
+
+    @Name("game.BubbleSplit")
+    @Label("Bubble Split")
+    @Category({"Bubble Trouble", "Gameplay"})
+    @StackTrace(false)
+    public static class BubbleSplit extends Event {
+        @Label("Parent Size") int parentSize;
+        @Label("Child Size") int childSize;
+        @Label("Bubbles") int bubbles;
+    }
+
+    @Name("game.Death")
+    @Label("Death")
+    @Category({"Bubble Trouble", "Gameplay"})
+    @StackTrace(false)
+    public static class Death extends Event {
+        @Label("Cause") String cause;
+        @Label("Lives Left") int livesLeft;
+        @Label("Level") int level;
+        @Label("Bubbles") int bubbles;
+    }
+
+    // One of background, entities or hud within a frame, or the whole paint when phase is "frame"
+    @Name("game.PaintPhase")
+    @Label("Paint Phase")
+    @Category({"Bubble Trouble", "Rendering"})
+    @StackTrace(false)
+    public static class PaintPhase extends Event {
+        @Label("Phase") String phase;
+        @Label("Entities") int entities;
+
+        void end(String phase, int entities) {
+            end();
+            if (shouldCommit()) {
+                this.phase = phase;
+                this.entities = entities;
+                commit();
+            }
+        }
+    }
+
+    static void pop(int size, int points, int combo, int bubbles) {
+        BubblePop event = new BubblePop();
+        if (event.shouldCommit()) {
+            event.size = size;
+            event.points = points;
+            event.combo = combo;
+            event.bubbles = bubbles;
+            event.commit();
+        }
+    }
+
+    static void split(int parentSize, int childSize, int bubbles) {
+        BubbleSplit event = new BubbleSplit();
+        if (event.shouldCommit()) {
+            event.parentSize = parentSize;
+            event.childSize = childSize;
+            event.bubbles = bubbles;
+            event.commit();
+        }
+    }
+
+    static void death(String cause, int livesLeft, int level, int bubbles) {
+        Death event = new Death();
+        if (event.shouldCommit()) {
+            event.cause = cause;
+            event.livesLeft = livesLeft;
+            event.level = level;
+            event.bubbles = bubbles;
+            event.commit();
+        }
+    }
+
+    // Commits pops, splits and deaths from the engine's event bus; bubble counts and combo are
+    // taken at dispatch time, after the whole tick has run
+    static GameEventBus.Subscriber subscriber(GameEngine engine) {
+        return events -> {
+            for (int i = 0; i < events.count(); i++) {
+                switch (events.type(i)) {
+                    case POP:
+                        pop(events.size(i), events.value(i), engine.getComboMultiplier(), engine.getBubbles().size());
+                        break;
+                    case SPLIT:
+                        split(events.value(i), events.size(i), engine.getBubbles().size());
+                        break;
+                    case DEATH:
+                        death(events.value(i) == 1 ? "collision" : "timer", engine.getLives(),
+                            engine.getLevel(), engine.getBubbles().size());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        };
+    }
+
+    private static Recording recording;
+
+    // Starts an in-process recording with the JDK's default settings, or stops it and
+    // writes bubble-<time>.jfr into -Dbubble.jfr.dir (default: working directory).
+    // Returns what happened, for the game to show
+    public static synchronized String toggleRecording() {
+        if (recording == null) {
+            try {
+                recording = new Recording(Configuration.getConfiguration("default"));
+                recording.setName("Bubble Trouble");
+                recording.start();
+                return "JFR recording started";
+            } catch (IOException | ParseException e) {
+                recording = null;
+                return "Could not start JFR recording: " + e.getMessage();
+            }
+        }
+        File dir = new File(System.getProperty("bubble.jfr.dir", "."));
+        File file = new File(dir, "bubble-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+        try {
+            recording.stop();
+            recording.dump(file.toPath());
+            return "JFR recording written to " + file;
+        } catch (IOException e) {
+            return "Could not write JFR recording: " + e.getMessage();
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public static synchronized boolean isRecording() { return recording != null; }
+}
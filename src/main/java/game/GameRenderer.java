@@ -0,0 +1,456 @@
+package game;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Draws a GameEngine's state: background, entities, HUD and overlays.
+// Owns the purely visual state (stars, animation frame count) so the same
+// frame can be drawn to the screen, a capture buffer or an offscreen image.
+public class GameRenderer {
+    private final GameEngine engine;
+    private final List<Star> backgroundStars;
+    private final SplittableRandom random;
+    private int frameCount = 0;
+    // Shown on the game-over screen; negative until a score store reports one
+    private int bestScore = -1;
+    // Arena mode: what the engine found under the view, reused frame to frame
+    private final List<Bubble> visibleBubbles = new ArrayList<>();
+    private final List<Particle> visibleParticles = new ArrayList<>();
+    
+    // Star class for animated background
+    private class Star {
+        double x, y, size, speed, twinklePhase;
+        
+        Star() {
+            x = random.nextDouble() * Constants.WINDOW_WIDTH;
+            y = random.nextDouble() * Constants.GROUND_LEVEL;
+            size = random.nextDouble() * 2 + 1;
+            speed = random.nextDouble() * 0.2 + 0.1;
+            twinklePhase = random.nextDouble() * Math.PI * 2;
+        }
+        
+        void update() {
+            twinklePhase = FastMath.wrapPhase(twinklePhase + speed);
+        }
+        
+        void draw(Graphics2D g) {
+            float alpha = (float)(FastMath.sin(twinklePhase) * 0.3 + 0.7);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            g.setColor(Constants.COLOR_STAR_BRIGHT);
+            g.fillOval((int)x, (int)y, (int)size, (int)size);
+        }
+    }
+    
+    public GameRenderer(GameEngine engine) {
+        this.engine = engine;
+        // Decoration gets its own stream so it never shifts the engine's sequence
+        this.random = new SplittableRandom(engine.getSeed() ^ 0x5DEECE66DL);
+        
+        // Initialize background stars
+        backgroundStars = new ArrayList<>();
+        if (Tuning.active().backgroundStars) {
+            for (int i = 0; i < 100; i++) {
+                backgroundStars.add(new Star());
+            }
+        }
+    }
+    
+    // Advance animations by one game tick
+    public void tick() {
+        frameCount++;
+        
+        // Reset frame count when level changes
+        if (engine.isLevelJustChanged()) {
+            frameCount = 0;
+        }
+        
+        // Update stars
+        for (Star star : backgroundStars) {
+            star.update();
+        }
+    }
+    
+    public void setBestScore(int bestScore) { this.bestScore = bestScore; }
+    
+    public void render(Graphics2D g2d) {
+        // Anti-aliasing and render quality follow the tier picked at startup
+        RenderPipeline.applyHints(g2d);
+        
+        // Get current level theme
+        Constants.LevelTheme theme = engine.getTheme();
+        
+        // Apply screen shake
+        g2d.translate(engine.getScreenShakeX(), engine.getScreenShakeY());
+        
+        GameEvents.PaintPhase phase = new GameEvents.PaintPhase();
+        phase.begin();
+        
+        // Draw gradient background with theme colors
+        GradientPaint bgGradient = new GradientPaint(
+            0, 0, theme.bgTop,
+            0, Constants.GROUND_LEVEL, theme.bgBottom
+        );
+        g2d.setPaint(bgGradient);
+        g2d.fillRect(0, 0, Constants.WINDOW_WIDTH, Constants.GROUND_LEVEL);
+        
+        // Draw stars with theme color; in an arena they scroll at a fifth of the camera's speed
+        double viewLeft = engine.getViewLeft();
+        if (Tuning.active().backgroundStars) {
+            for (Star star : backgroundStars) {
+                float alpha = (float)(FastMath.sin(star.twinklePhase) * 0.3 + 0.7);
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha * 0.6f));
+                g2d.setColor(theme.starColor);
+                double starX = star.x;
+                if (engine.isArena()) {
+                    starX = Math.floorMod((long) (star.x - viewLeft / 5), Constants.WINDOW_WIDTH);
+                }
+                g2d.fillOval((int)starX, (int)star.y, (int)star.size, (int)star.size);
+            }
+            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+        }
+        
+        // Draw ground with theme gradient
+        GradientPaint groundGradient = new GradientPaint(
+            0, Constants.GROUND_LEVEL, theme.groundTop,
+            0, Constants.WINDOW_HEIGHT, theme.groundBottom
+        );
+        g2d.setPaint(groundGradient);
+        g2d.fillRect(0, Constants.GROUND_LEVEL, Constants.WINDOW_WIDTH, 
+                    Constants.WINDOW_HEIGHT - Constants.GROUND_LEVEL);
+        
+        // Draw ground highlight line
+        g2d.setColor(new Color(theme.groundTop.getRed() + 30, 
+                               theme.groundTop.getGreen() + 30, 
+                               theme.groundTop.getBlue() + 30, 100));
+        g2d.setStroke(new BasicStroke(2));
+        g2d.drawLine(0, Constants.GROUND_LEVEL, Constants.WINDOW_WIDTH, Constants.GROUND_LEVEL);
+        
+        phase.end("background", backgroundStars.size());
+        
+        // Draw particles, then game objects over them
+        phase = new GameEvents.PaintPhase();
+        phase.begin();
+        if (engine.isArena()) {
+            drawArenaEntities(g2d, viewLeft);
+        } else {
+            drawEntities(g2d);
+        }
+        
+        phase.end("entities", engine.getParticles().size() + engine.getBubbles().size() + engine.getProjectiles().size() + 1);
+        
+        // Reset translation for HUD
+        g2d.translate(-engine.getScreenShakeX(), -engine.getScreenShakeY());
+        phase = new GameEvents.PaintPhase();
+        phase.begin();
+        
+        // Draw level name display
+        drawLevelName(g2d, theme);
+        
+        // Draw HUD
+        drawHUD(g2d);
+        
+        // Draw overlays
+        if (engine.isGameOver()) {
+            drawGameOver(g2d);
+        } else if (engine.isLevelComplete()) {
+            drawLevelComplete(g2d);
+        }
+        phase.end("hud", 0);
+    }
+    
+    private void drawEntities(Graphics2D g2d) {
+        boolean lowDetail = engine.getParticleBudget().isUnderPressure();
+        for (Particle particle : engine.getParticles()) {
+            particle.draw(g2d, lowDetail);
+        }
+        
+        engine.getPlayer().draw(g2d);
+        if (engine.getPlayer2() != null) {
+            engine.getPlayer2().draw(g2d);
+        }
+        
+        for (Bubble bubble : engine.getBubbles()) {
+            bubble.draw(g2d);
+        }
+        
+        for (Projectile proj : engine.getProjectiles()) {
+            proj.draw(g2d);
+        }
+    }
+    
+    // World coordinates shifted to the view; particles and bubbles come from the engine's
+    // column indexes, so only the columns under the view are even looked at
+    void drawArenaEntities(Graphics2D g2d, double viewLeft) {
+        double viewRight = viewLeft + Constants.WINDOW_WIDTH;
+        g2d.translate(-viewLeft, 0);
+        engine.particlesNear(viewLeft, viewRight, visibleParticles);
+        boolean lowDetail = engine.getParticleBudget().isUnderPressure();
+        for (Particle particle : visibleParticles) {
+            particle.draw(g2d, lowDetail);
+        }
+        
+        engine.getPlayer().draw(g2d);
+        if (engine.getPlayer2() != null) {
+            engine.getPlayer2().draw(g2d);
+        }
+        
+        engine.bubblesNear(viewLeft, viewRight, visibleBubbles);
+        for (Bubble bubble : visibleBubbles) {
+            bubble.draw(g2d);
+        }
+        
+        for (Projectile proj : engine.getProjectiles()) {
+            proj.draw(g2d);
+        }
+        g2d.translate(viewLeft, 0);
+    }
+    
+    private void drawHUD(Graphics2D g) {
+        // HUD background panel
+        g.setColor(Constants.COLOR_UI_BACKGROUND);
+        g.fillRoundRect(5, 5, 250, 150, 15, 15);
+        g.setColor(Constants.COLOR_UI_BORDER);
+        g.setStroke(new BasicStroke(2));
+        g.drawRoundRect(5, 5, 250, 150, 15, 15);
+        
+        // Level
+        g.setColor(Constants.COLOR_TEXT_HIGHLIGHT);
+        g.setFont(Constants.FONT_MEDIUM);
+        g.drawString("LEVEL " + engine.getLevel(), 20, 35);
+        
+        // Score with glow
+        drawTextWithShadow(g, "Score: " + engine.getScore(), 20, 65, Constants.FONT_SMALL, Constants.COLOR_TEXT);
+        
+        // Lives with heart icons
+        g.setFont(Constants.FONT_SMALL);
+        g.setColor(Constants.COLOR_TEXT);
+        g.drawString("Lives:", 20, 95);
+        for (int i = 0; i < Constants.LIVES; i++) {
+            if (i < engine.getLives()) {
+                g.setColor(Constants.COLOR_HEALTH_FULL);
+            } else {
+                g.setColor(Constants.COLOR_HEALTH_EMPTY);
+            }
+            g.fillOval(80 + i * 25, 82, 18, 18);
+        }
+        
+        // Timer with color coding and progress bar
+        int timeRemaining = engine.getTimeRemaining();
+        Color timerColor;
+        if (timeRemaining <= 10) {
+            timerColor = Constants.COLOR_TEXT_WARNING;
+        } else if (timeRemaining <= 20) {
+            timerColor = Constants.COLOR_HEALTH_MEDIUM;
+        } else {
+            timerColor = Constants.COLOR_PROJECTILE_CORE;
+        }
+        
+        g.setFont(Constants.FONT_SMALL);
+        g.setColor(Constants.COLOR_TEXT);
+        g.drawString("Time:", 20, 125);
+        
+        // Time bar
+        int barWidth = 150;
+        int barHeight = 15;
+        int barX = 75;
+        int barY = 112;
+        
+        g.setColor(Constants.COLOR_HEALTH_EMPTY);
+        g.fillRoundRect(barX, barY, barWidth, barHeight, 5, 5);
+        
+        float timePercent = Math.min(1f, (float)timeRemaining / engine.getLevelData().getTimeLimit());
+        int fillWidth = (int)(barWidth * timePercent);
+        g.setColor(timerColor);
+        g.fillRoundRect(barX, barY, fillWidth, barHeight, 5, 5);
+        
+        g.setColor(Constants.COLOR_UI_BORDER);
+        g.drawRoundRect(barX, barY, barWidth, barHeight, 5, 5);
+        
+        g.setColor(Constants.COLOR_TEXT);
+        g.drawString(timeRemaining + "s", barX + barWidth / 2 - 10, barY + 12);
+        
+        // Combo multiplier
+        if (engine.getComboMultiplier() > 1) {
+            String comboText = "x" + engine.getComboMultiplier() + " COMBO!";
+            g.setFont(Constants.FONT_MEDIUM);
+            
+            // Simple pulse without heavy calculations
+            float pulse = (float)(FastMath.sin(frameCount * 0.15) * 0.1 + 0.95);
+            int comboAlpha = (int)(220 * pulse);
+            
+            int comboX = Constants.WINDOW_WIDTH / 2 - 70;
+            int comboY = 50;
+            
+            // Shadow
+            g.setColor(new Color(0, 0, 0, 100));
+            g.drawString(comboText, comboX + 2, comboY + 2);
+            
+            // Main text
+            g.setColor(new Color(255, 200, 0, comboAlpha));
+            g.drawString(comboText, comboX, comboY);
+        }
+        
+        // Controls hint
+        g.setColor(new Color(255, 255, 255, 150));
+        g.setFont(Constants.FONT_SMALL);
+        String controls = "A/D or ←→ Move | SPACE Shoot | ESC Exit";
+        g.drawString(controls, Constants.WINDOW_WIDTH - 350, Constants.WINDOW_HEIGHT - 10);
+    }
+    
+    private void drawGameOver(Graphics2D g) {
+        // Animated overlay
+        float alpha = 0.85f;
+        g.setColor(new Color(0, 0, 0, (int)(alpha * 255)));
+        g.fillRect(0, 0, Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+        
+        // Pulsing effect
+        float pulse = (float)(FastMath.sin(frameCount * 0.05) * 0.1 + 0.9);
+        
+        // Game over text with glow
+        String gameOverText = "GAME OVER";
+        g.setFont(Constants.FONT_TITLE);
+        FontMetrics fm = g.getFontMetrics();
+        int textWidth = fm.stringWidth(gameOverText);
+        int x = (Constants.WINDOW_WIDTH - textWidth) / 2;
+        int y = Constants.WINDOW_HEIGHT / 2 - 80;
+        
+        // Red glow
+        for (int i = 5; i > 0; i--) {
+            g.setColor(new Color(255, 0, 0, (int)(30 * i * pulse)));
+            g.drawString(gameOverText, x - i, y - i);
+        }
+        
+        g.setColor(new Color(255, 100, 100, (int)(255 * pulse)));
+        g.drawString(gameOverText, x, y);
+        
+        // Score panel
+        g.setColor(Constants.COLOR_UI_BACKGROUND);
+        int panelWidth = 400;
+        int panelHeight = 150;
+        int panelX = (Constants.WINDOW_WIDTH - panelWidth) / 2;
+        int panelY = Constants.WINDOW_HEIGHT / 2 - 20;
+        g.fillRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
+        g.setColor(Constants.COLOR_UI_BORDER);
+        g.setStroke(new BasicStroke(3));
+        g.drawRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
+        
+        // Final score
+        g.setFont(Constants.FONT_LARGE);
+        String scoreText = "Final Score: " + engine.getScore();
+        textWidth = g.getFontMetrics().stringWidth(scoreText);
+        drawTextWithShadow(g, scoreText, (Constants.WINDOW_WIDTH - textWidth) / 2, 
+                          panelY + 60, Constants.FONT_LARGE, Constants.COLOR_TEXT_HIGHLIGHT);
+        
+        // Best score so far
+        if (bestScore >= 0) {
+            g.setFont(Constants.FONT_SMALL);
+            String bestText = "Best: " + bestScore;
+            textWidth = g.getFontMetrics().stringWidth(bestText);
+            drawTextWithShadow(g, bestText, (Constants.WINDOW_WIDTH - textWidth) / 2, 
+                              panelY + 85, Constants.FONT_SMALL, Constants.COLOR_TEXT);
+        }
+        
+        // Restart prompt
+        g.setFont(Constants.FONT_MEDIUM);
+        String restartText = "Press ENTER to Restart";
+        textWidth = g.getFontMetrics().stringWidth(restartText);
+        drawTextWithShadow(g, restartText, (Constants.WINDOW_WIDTH - textWidth) / 2, 
+                          panelY + 110, Constants.FONT_MEDIUM, Constants.COLOR_TEXT);
+    }
+    
+    private void drawLevelComplete(Graphics2D g) {
+        // Animated overlay
+        g.setColor(new Color(0, 0, 0, 200));
+        g.fillRect(0, 0, Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+        
+        // Pulsing effect
+        float pulse = (float)(FastMath.sin(frameCount * 0.08) * 0.15 + 0.85);
+        
+        // Level complete text with glow
+        String completeText = "LEVEL COMPLETE!";
+        g.setFont(Constants.FONT_TITLE);
+        FontMetrics fm = g.getFontMetrics();
+        int textWidth = fm.stringWidth(completeText);
+        int x = (Constants.WINDOW_WIDTH - textWidth) / 2;
+        int y = Constants.WINDOW_HEIGHT / 2 - 100;
+        
+        // Cyan glow
+        for (int i = 5; i > 0; i--) {
+            g.setColor(new Color(0, 255, 255, (int)(40 * i * pulse)));
+            g.drawString(completeText, x - i, y - i);
+        }
+        
+        g.setColor(new Color(100, 255, 255, (int)(255 * pulse)));
+        g.drawString(completeText, x, y);
+        
+        // Info panel
+        g.setColor(Constants.COLOR_UI_BACKGROUND);
+        int panelWidth = 450;
+        int panelHeight = 180;
+        int panelX = (Constants.WINDOW_WIDTH - panelWidth) / 2;
+        int panelY = Constants.WINDOW_HEIGHT / 2 - 40;
+        g.fillRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
+        g.setColor(Constants.COLOR_UI_BORDER);
+        g.setStroke(new BasicStroke(3));
+        g.drawRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
+        
+        // Stats
+        g.setFont(Constants.FONT_MEDIUM);
+        g.setColor(Constants.COLOR_TEXT);
+        int statY = panelY + 50;
+        g.drawString("Score: " + engine.getScore(), panelX + 150, statY);
+        
+        // Next level prompt
+        g.setFont(Constants.FONT_MEDIUM);
+        String nextText = "Press ENTER for Next Level";
+        textWidth = g.getFontMetrics().stringWidth(nextText);
+        drawTextWithShadow(g, nextText, (Constants.WINDOW_WIDTH - textWidth) / 2, 
+                          panelY + 140, Constants.FONT_MEDIUM, Constants.COLOR_TEXT_HIGHLIGHT);
+    }
+    
+    private void drawTextWithShadow(Graphics2D g, String text, int x, int y, Font font, Color color) {
+        g.setFont(font);
+        // Shadow
+        g.setColor(Constants.COLOR_TEXT_SHADOW);
+        g.drawString(text, x + 2, y + 2);
+        // Main text
+        g.setColor(color);
+        g.drawString(text, x, y);
+    }
+    
+    private void drawLevelName(Graphics2D g, Constants.LevelTheme theme) {
+        // Only show for first 3 seconds of level
+        if (frameCount < 180) {
+            float alpha = 1.0f;
+            if (frameCount > 120) {
+                alpha = (180 - frameCount) / 60.0f;
+            }
+            
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            g.setFont(Constants.FONT_LARGE);
+            String levelText = "Level " + engine.getLevel() + ": " + theme.name;
+            FontMetrics fm = g.getFontMetrics();
+            int textWidth = fm.stringWidth(levelText);
+            int x = (Constants.WINDOW_WIDTH - textWidth) / 2;
+            int y = 100;
+            
+            // Glow effect
+            for (int i = 3; i > 0; i--) {
+                g.setColor(new Color(theme.bgBottom.getRed(), 
+                                    theme.bgBottom.getGreen(), 
+                                    theme.bgBottom.getBlue(), (int)(100 * alpha)));
+                g.drawString(levelText, x - i, y - i);
+            }
+            
+            g.setColor(Constants.COLOR_TEXT_HIGHLIGHT);
+            g.drawString(levelText, x, y);
+            
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+        }
+    }
+    
+    public int getFrameCount() { return frameCount; }
+    public void setFrameCount(int frameCount) { this.frameCount = frameCount; }
+}
@@ -0,0 +1,152 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+
+// Draws GameEngine state into a BufferedImage without any window, for render
+// benchmarks and golden-image checks on machines with no display.
+// Run: java -Djava.awt.headless=true -cp bin game.HeadlessRenderer bench [frames]
+//      java -Djava.awt.headless=true -cp bin game.HeadlessRenderer golden [dir] [update]
+// The goldens are checked in under golden/; a scene without one fails the check until
+// `update` writes it.
+public class HeadlessRenderer {
+    // Fraction of pixels allowed to differ from a golden image (font rasterization varies by platform)
+    public static final double GOLDEN_TOLERANCE = 0.005;
+    // Per-channel difference below which two pixels count as equal
+    public static final int PIXEL_TOLERANCE = 8;
+
+    private final GameEngine engine;
+    private final GameRenderer renderer;
+    private final BufferedImage image;
+
+    public HeadlessRenderer(GameEngine engine) {
+        this(engine, new GameRenderer(engine));
+    }
+
+    public HeadlessRenderer(GameEngine engine, GameRenderer renderer) {
+        this.engine = engine;
+        this.renderer = renderer;
+        this.image = new BufferedImage(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    // Renders the current state; the returned image is reused by the next call
+    public BufferedImage render() {
+        Graphics2D g = image.createGraphics();
+        g.setColor(Constants.COLOR_BACKGROUND);
+        g.fillRect(0, 0, Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+        renderer.render(g);
+        g.dispose();
+        return image;
+    }
+
+    // Advances the engine and its animations by one tick, as GamePanel's timer does
+    public void tick() {
+        engine.update();
+        renderer.tick();
+    }
+
+    public GameEngine getEngine() { return engine; }
+    public GameRenderer getRenderer() { return renderer; }
+
+    // One entry per BenchmarkScene, advanced SCENE_WARMUP_TICKS so animations and effects are mid-flight
+    public static final int SCENE_WARMUP_TICKS = 60;
+
+    static Map<String, Supplier<HeadlessRenderer>> scenes() {
+        Map<String, Supplier<HeadlessRenderer>> scenes = new LinkedHashMap<>();
+        for (BenchmarkScene scene : BenchmarkScene.values()) {
+            scenes.put(scene.getSceneName(), () -> {
+                HeadlessRenderer r = new HeadlessRenderer(scene.create(true));
+                for (int t = 0; t < SCENE_WARMUP_TICKS; t++) {
+                    scene.step(r.getEngine(), t);
+                    r.getRenderer().tick();
+                }
+                return r;
+            });
+        }
+        return scenes;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        String mode = args.length > 0 ? args[0] : "bench";
+        if (mode.equals("golden")) {
+            File dir = new File(args.length > 1 ? args[1] : "golden");
+            boolean update = args.length > 2 && args[2].equals("update");
+            System.exit(checkGoldens(scenes(), dir, update) ? 0 : 1);
+        }
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        benchmark(scenes(), frames);
+    }
+
+    // Frames/sec per scene, rendering the same state repeatedly
+    static void benchmark(Map<String, Supplier<HeadlessRenderer>> scenes, int frames) {
+        for (Map.Entry<String, Supplier<HeadlessRenderer>> scene : scenes.entrySet()) {
+            HeadlessRenderer r = scene.getValue().get();
+            for (int i = 0; i < frames / 5; i++) {
+                r.render(); // warm-up
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                r.render();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%-28s %8.1f frames/s  (%.3f ms/frame)%n",
+                scene.getKey(), frames / (elapsed / 1e9), elapsed / 1e6 / frames);
+        }
+    }
+
+    static boolean checkGoldens(Map<String, Supplier<HeadlessRenderer>> scenes, File dir, boolean update)
+            throws IOException {
+        boolean ok = true;
+        if (update) {
+            dir.mkdirs();
+        }
+        for (Map.Entry<String, Supplier<HeadlessRenderer>> scene : scenes.entrySet()) {
+            BufferedImage actual = scene.getValue().get().render();
+            File golden = new File(dir, scene.getKey() + ".png");
+            if (update) {
+                ImageIO.write(actual, "png", golden);
+                System.out.println("WROTE " + golden);
+                continue;
+            }
+            if (!golden.exists()) {
+                System.out.printf("FAIL %-28s no golden at %s (run with update to write it)%n", scene.getKey(), golden);
+                ok = false;
+                continue;
+            }
+            BufferedImage expected = ImageIO.read(golden);
+            double diff = diffFraction(expected, actual);
+            boolean pass = diff <= GOLDEN_TOLERANCE;
+            System.out.printf("%s %-28s %.4f%% pixels differ%n", pass ? "PASS" : "FAIL", scene.getKey(), diff * 100);
+            if (!pass) {
+                ImageIO.write(actual, "png", new File(dir, scene.getKey() + ".actual.png"));
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    static double diffFraction(BufferedImage expected, BufferedImage actual) {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+            return 1.0;
+        }
+        long differing = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = expected.getRGB(x, y), b = actual.getRGB(x, y);
+                if (Math.abs((a >> 16 & 0xFF) - (b >> 16 & 0xFF)) > PIXEL_TOLERANCE
+                        || Math.abs((a >> 8 & 0xFF) - (b >> 8 & 0xFF)) > PIXEL_TOLERANCE
+                        || Math.abs((a & 0xFF) - (b & 0xFF)) > PIXEL_TOLERANCE) {
+                    differing++;
+                }
+            }
+        }
+        return (double) differing / (actual.getWidth() * actual.getHeight());
+    }
+}
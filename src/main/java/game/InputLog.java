@@ -0,0 +1,111 @@
+package game;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// The player's input for every update() of a session, run-length encoded. Replaying a log
+// with step() on a headless engine built from the same seed reproduces the session exactly;
+// engines on the wall clock (the windowed game) can't be replayed, since their level timer
+// and combos depend on real time.
+public class InputLog {
+    public static final int LEFT = 1;
+    public static final int RIGHT = 2;
+    public static final int SHOOT = 4;
+    // Starts the next level if the current one is complete
+    public static final int NEXT_LEVEL = 8;
+
+    private int[] lengths = new int[64];
+    private byte[] inputs = new byte[64];
+    private int runs;
+    private long updates;
+
+    // Records one update's input and applies it
+    public void step(GameEngine engine, int input) {
+        record(input);
+        play(engine, input);
+    }
+
+    public void record(int input) {
+        if (runs > 0 && inputs[runs - 1] == input && lengths[runs - 1] < Integer.MAX_VALUE) {
+            lengths[runs - 1]++;
+        } else {
+            if (runs == lengths.length) {
+                lengths = Arrays.copyOf(lengths, runs * 2);
+                inputs = Arrays.copyOf(inputs, runs * 2);
+            }
+            lengths[runs] = 1;
+            inputs[runs] = (byte) input;
+            runs++;
+        }
+        updates++;
+    }
+
+    // Applies one update's input the way the key handlers do, then runs the update
+    public static void play(GameEngine engine, int input) {
+        engine.getPlayer().setMovingLeft((input & LEFT) != 0);
+        engine.getPlayer().setMovingRight((input & RIGHT) != 0);
+        if ((input & SHOOT) != 0) {
+            engine.shoot();
+        }
+        if ((input & NEXT_LEVEL) != 0 && engine.isLevelComplete()) {
+            engine.nextLevel();
+        }
+        engine.update();
+    }
+
+    // Plays the log until it ends or the game is over; returns the updates played
+    public long replay(GameEngine engine) {
+        long played = 0;
+        for (int run = 0; run < runs; run++) {
+            for (int i = 0; i < lengths[run]; i++) {
+                if (engine.isGameOver()) {
+                    return played;
+                }
+                play(engine, inputs[run]);
+                played++;
+            }
+        }
+        return played;
+    }
+
+    public long getUpdates() { return updates; }
+    public int getRuns() { return runs; }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(runs);
+        for (int i = 0; i < runs; i++) {
+            out.writeInt(lengths[i]);
+            out.writeByte(inputs[i]);
+        }
+    }
+
+    // Rejects logs longer than maxUpdates before anything is simulated
+    public static InputLog read(DataInputStream in, long maxUpdates) throws IOException {
+        int runs = in.readInt();
+        if (runs < 0) {
+            throw new IOException("negative run count");
+        }
+        InputLog log = new InputLog();
+        for (int i = 0; i < runs; i++) {
+            int length = in.readInt();
+            int input = in.readByte();
+            if (length <= 0 || (input & ~(LEFT | RIGHT | SHOOT | NEXT_LEVEL)) != 0) {
+                throw new IOException("bad run " + i);
+            }
+            if (log.updates + length > maxUpdates) {
+                throw new IOException("log is longer than " + maxUpdates + " updates");
+            }
+            if (log.runs == log.lengths.length) {
+                log.lengths = Arrays.copyOf(log.lengths, log.runs * 2);
+                log.inputs = Arrays.copyOf(log.inputs, log.runs * 2);
+            }
+            log.lengths[log.runs] = length;
+            log.inputs[log.runs] = (byte) input;
+            log.runs++;
+            log.updates += length;
+        }
+        return log;
+    }
+}
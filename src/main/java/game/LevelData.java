@@ -0,0 +1,104 @@
+package game;
+
+// One level, parsed from a single line of the level format:
+//
+//   <seconds> <theme> <bubble> [<bubble> ...]
+//
+// where theme is an index into Constants.LEVEL_THEMES and each bubble is
+// <S|M|L>@<x>,<y>,<velocityX> with x, y the bubble's top-left corner. Bubbles start
+// falling from rest, so their drop height sets how high they bounce.
+// Example: 60 0 L@100,100,1.5 L@250,100,-1.5
+public class LevelData {
+    private final int number;
+    private final int timeLimit;
+    private final int theme;
+    private final int[] sizes;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] velocities;
+
+    LevelData(int number, int timeLimit, int theme, int[] sizes, double[] xs, double[] ys, double[] velocities) {
+        this.number = number;
+        this.timeLimit = timeLimit;
+        this.theme = theme;
+        this.sizes = sizes;
+        this.xs = xs;
+        this.ys = ys;
+        this.velocities = velocities;
+    }
+
+    public static LevelData parse(int number, String line) {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length < 3) {
+            throw new IllegalArgumentException("level " + number + ": expected time, theme and at least one bubble");
+        }
+        int timeLimit = Integer.parseInt(tokens[0]);
+        int theme = Integer.parseInt(tokens[1]);
+        if (timeLimit <= 0 || theme < 0 || theme >= Constants.LEVEL_THEMES.length) {
+            throw new IllegalArgumentException("level " + number + ": bad time or theme in '" + line + "'");
+        }
+        int count = tokens.length - 2;
+        int[] sizes = new int[count];
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] velocities = new double[count];
+        for (int i = 0; i < count; i++) {
+            String token = tokens[i + 2];
+            String[] fields = token.length() > 2 && token.charAt(1) == '@' ? token.substring(2).split(",") : new String[0];
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("level " + number + ": bad bubble '" + token + "'");
+            }
+            sizes[i] = sizeFor(token.charAt(0), number);
+            xs[i] = Double.parseDouble(fields[0]);
+            ys[i] = Double.parseDouble(fields[1]);
+            velocities[i] = Double.parseDouble(fields[2]);
+            // Double.parseDouble takes NaN and Infinity, which every range check below would let through
+            if (!Double.isFinite(xs[i]) || !Double.isFinite(ys[i]) || !Double.isFinite(velocities[i])) {
+                throw new IllegalArgumentException("level " + number + ": bubble '" + token + "' has a number that isn't finite");
+            }
+            if (xs[i] < 0 || xs[i] > Constants.WINDOW_WIDTH - sizes[i] || ys[i] < 0 || ys[i] > Constants.GROUND_LEVEL - sizes[i]) {
+                throw new IllegalArgumentException("level " + number + ": bubble '" + token + "' is outside the arena");
+            }
+        }
+        return new LevelData(number, timeLimit, theme, sizes, xs, ys, velocities);
+    }
+
+    private static int sizeFor(char code, int number) {
+        switch (code) {
+            case 'S': return Constants.BUBBLE_SMALL;
+            case 'M': return Constants.BUBBLE_MEDIUM;
+            case 'L': return Constants.BUBBLE_LARGE;
+            default: throw new IllegalArgumentException("level " + number + ": unknown bubble size '" + code + "'");
+        }
+    }
+
+    private static char codeFor(int size) {
+        if (size == Constants.BUBBLE_SMALL) return 'S';
+        if (size == Constants.BUBBLE_MEDIUM) return 'M';
+        return 'L';
+    }
+
+    // Back to the line format; parse(format()) gives an identical level
+    public String format() {
+        StringBuilder line = new StringBuilder();
+        line.append(timeLimit).append(' ').append(theme);
+        for (int i = 0; i < sizes.length; i++) {
+            line.append(' ').append(codeFor(sizes[i])).append('@')
+                .append(number(xs[i])).append(',').append(number(ys[i])).append(',').append(number(velocities[i]));
+        }
+        return line.toString();
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    public int getNumber() { return number; }
+    public int getTimeLimit() { return timeLimit; }
+    public int getTheme() { return theme; }
+    public int getBubbleCount() { return sizes.length; }
+    public int getSize(int i) { return sizes[i]; }
+    public double getX(int i) { return xs[i]; }
+    public double getY(int i) { return ys[i]; }
+    public double getVelocityX(int i) { return velocities[i]; }
+}
@@ -0,0 +1,57 @@
+package game;
+
+import java.util.SplittableRandom;
+
+// Seeded procedural levels in the LevelData line format. The same seed and level number
+// always give the same line, so generated levels replay like hand-written ones.
+public class LevelGenerator {
+    // Shots needed to clear a bubble completely, by size
+    private static final int SHOTS_LARGE = 7;
+    private static final int SHOTS_MEDIUM = 3;
+    private static final int MAX_BUBBLES = 10;
+
+    private final long seed;
+
+    public LevelGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public String generate(int level) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + level);
+        // 0 at level 1, 1 from level 200 on
+        double difficulty = Math.min(1.0, (level - 1) / 200.0);
+
+        // Spend a budget of shots on a mix of bubble sizes
+        int budget = Math.min(60, 30 + level / 2);
+        StringBuilder bubbles = new StringBuilder();
+        int shots = 0;
+        for (int count = 0; count < MAX_BUBBLES && shots < budget; count++) {
+            int left = budget - shots;
+            char code;
+            int size;
+            if (left >= SHOTS_LARGE && random.nextInt(3) != 0) {
+                code = 'L';
+                size = Constants.BUBBLE_LARGE;
+                shots += SHOTS_LARGE;
+            } else if (left >= SHOTS_MEDIUM && random.nextBoolean()) {
+                code = 'M';
+                size = Constants.BUBBLE_MEDIUM;
+                shots += SHOTS_MEDIUM;
+            } else {
+                code = 'S';
+                size = Constants.BUBBLE_SMALL;
+                shots += 1;
+            }
+            int x = random.nextInt(Constants.WINDOW_WIDTH - size + 1);
+            int y = 40 + random.nextInt(180);
+            double speed = Math.round(Constants.BUBBLE_SPEED * (1 + 0.5 * difficulty + random.nextDouble() * 0.25) * 100) / 100.0;
+            bubbles.append(' ').append(code).append('@').append(x).append(',').append(y).append(',')
+                .append(random.nextBoolean() ? speed : -speed);
+        }
+
+        // Later levels get less time per shot
+        int time = 10 + (int) Math.ceil(shots * (2.2 - 0.8 * difficulty));
+        int theme = (level - 1) % Constants.LEVEL_THEMES.length;
+        return time + " " + theme + bubbles;
+    }
+}
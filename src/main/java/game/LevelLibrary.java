@@ -0,0 +1,193 @@
+package game;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Levels 1..Constants.MAX_LEVEL. The classic levels come first, then lines from
+// -Dbubble.levels=<file> (one level per line, # for comments) if given, and LevelGenerator
+// fills in the rest. Nothing is parsed until a level is asked for; parsed levels are cached and
+// shared by every engine, and prefetch() prepares one on a background thread so that
+// GameEngine.nextLevel() finds it ready. A file that can't be read or a line that doesn't parse
+// is reported by getProblem(), for the game to show, and the generator stands in.
+// Run: java -cp bin game.LevelLibrary [levels]   (checks every level, the file's included, and times nextLevel)
+public class LevelLibrary {
+    // The original five levels: one more large bubble each time, all at the same height
+    private static final String[] CLASSIC = {
+        "60 0 L@100,100,1.5",
+        "60 1 L@100,100,1.5 L@250,100,-1.5",
+        "60 2 L@100,100,1.5 L@250,100,-1.5 L@400,100,1.5",
+        "60 3 L@100,100,1.5 L@250,100,-1.5 L@400,100,1.5 L@550,100,-1.5",
+        "60 4 L@100,100,1.5 L@250,100,-1.5 L@400,100,1.5 L@550,100,-1.5 L@300,100,1.5",
+    };
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "level-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static LevelLibrary shared;
+
+    private final List<String> lines;
+    private final LevelGenerator generator;
+    private final ConcurrentHashMap<Integer, CompletableFuture<LevelData>> cache = new ConcurrentHashMap<>();
+    private volatile String problem;
+
+    public LevelLibrary(List<String> lines, long generatorSeed) {
+        this.lines = lines;
+        this.generator = new LevelGenerator(generatorSeed);
+    }
+
+    // The library every engine uses; -Dbubble.levels.seed picks a different generated set
+    public static synchronized LevelLibrary shared() {
+        if (shared == null) {
+            List<String> lines = new ArrayList<>(List.of(CLASSIC));
+            String file = System.getProperty("bubble.levels");
+            String problem = null;
+            if (file != null) {
+                try {
+                    lines.addAll(readLines(file));
+                } catch (IOException e) {
+                    problem = "Could not read levels from " + file + ": " + e.getMessage();
+                }
+            }
+            shared = new LevelLibrary(lines, Long.getLong("bubble.levels.seed", 1));
+            shared.problem = problem;
+        }
+        return shared;
+    }
+
+    private static List<String> readLines(String file) throws IOException {
+        List<String> levels = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                levels.add(line);
+            }
+        }
+        return levels;
+    }
+
+    public int getLevelCount() { return Constants.MAX_LEVEL; }
+    // The latest reason the level file or one of its lines wasn't used, or null
+    public String getProblem() { return problem; }
+
+    // Blocks only if the level was never prefetched, or its prefetch is still running
+    public LevelData get(int level) {
+        return request(level, false).join();
+    }
+
+    public void prefetch(int level) {
+        if (level >= 1 && level <= getLevelCount()) {
+            request(level, true);
+        }
+    }
+
+    public boolean isReady(int level) {
+        CompletableFuture<LevelData> pending = cache.get(level);
+        return pending != null && pending.isDone();
+    }
+
+    private CompletableFuture<LevelData> request(int level, boolean background) {
+        CompletableFuture<LevelData> pending = cache.get(level);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<LevelData> created = new CompletableFuture<>();
+        pending = cache.putIfAbsent(level, created);
+        if (pending != null) {
+            return pending;
+        }
+        if (background) {
+            LOADER.execute(() -> created.complete(load(level)));
+        } else {
+            created.complete(load(level));
+        }
+        return created;
+    }
+
+    // Description line for a level: from the list if it has one, generated otherwise
+    public String describe(int level) {
+        return level <= lines.size() ? lines.get(level - 1) : generator.generate(level);
+    }
+
+    private LevelData load(int level) {
+        String line = describe(level);
+        try {
+            return LevelData.parse(level, line);
+        } catch (IllegalArgumentException e) {
+            problem = "Level " + level + " is generated instead: " + e.getMessage();
+            return LevelData.parse(level, generator.generate(level));
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : Constants.MAX_LEVEL;
+
+        // Every description parses, and formats back to a line that parses to the same level
+        LevelLibrary library = shared();
+        if (library.getProblem() != null) {
+            System.out.println(library.getProblem());
+            System.exit(1);
+        }
+        int failures = 0;
+        long start = System.nanoTime();
+        for (int level = 1; level <= count; level++) {
+            LevelData data;
+            try {
+                data = LevelData.parse(level, library.describe(level));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Level " + level + " does not parse: " + e.getMessage());
+                failures++;
+                continue;
+            }
+            String line = data.format();
+            if (!line.equals(LevelData.parse(level, line).format())) {
+                System.out.println("Level " + level + " does not round-trip: " + line);
+                failures++;
+            }
+        }
+        System.out.printf("%d levels parsed and round-tripped in %.1f ms, %d failures%n",
+            count, (System.nanoTime() - start) / 1e6, failures);
+        for (int level : new int[] {1, 5, 6, 50, 200, count}) {
+            if (level <= count) {
+                System.out.println("  " + level + ": " + library.describe(level));
+            }
+        }
+
+        // Time nextLevel() with and without the background prefetch
+        long cold = 0, warm = 0;
+        int transitions = Math.min(count, Constants.MAX_LEVEL) - 1;
+        for (boolean prefetch : new boolean[] {false, true}) {
+            shared = new LevelLibrary(new ArrayList<>(List.of(CLASSIC)), 1);
+            GameEngine engine = new GameEngine(0, true);
+            for (int level = 1; level <= transitions; level++) {
+                if (prefetch) {
+                    shared.prefetch(level + 1);
+                    while (!shared.isReady(level + 1)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                long t0 = System.nanoTime();
+                engine.nextLevel();
+                long elapsed = System.nanoTime() - t0;
+                if (prefetch) {
+                    warm += elapsed;
+                } else {
+                    cold += elapsed;
+                }
+            }
+        }
+        System.out.printf("nextLevel(): %.1f us cold, %.1f us prefetched (mean of %d)%n",
+            cold / 1e3 / transitions, warm / 1e3 / transitions, transitions);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
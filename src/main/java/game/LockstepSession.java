@@ -0,0 +1,589 @@
+package game;
+
+import java.awt.event.KeyEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Co-op over TCP in deterministic lockstep. Both peers run the same headless engine with two
+// players; the host is player 1 and picks the seed. Only inputs cross the wire: each frame's
+// local input is sent `delay` frames ahead, and a frame is simulated once both inputs for it
+// are in, so the game runs `delay` frames behind the keyboard and stalls if the peer is late.
+//
+// Every HASH_INTERVAL frames both peers hash a snapshot of the engine and send the hash. If the
+// host sees a mismatch it sends its current snapshot as a resync, XORed against the last
+// snapshot both agreed on and deflated, so usually only the changed bytes cost anything. The
+// joining peer applies it at the same frame, rolling back and replaying its inputs if it is
+// already past it.
+// Run: java -cp bin game.LockstepSession host <port> [seconds]
+//      java -cp bin game.LockstepSession join <host> <port> [seconds] [desync-frame]
+public class LockstepSession {
+    public static final int HASH_INTERVAL = 30;
+    private static final int HISTORY = 256;
+    private static final int SNAPSHOTS = 32;
+    private static final byte HELLO = 0, INPUT = 1, HASH = 2, RESYNC = 3;
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final CountingInputStream counted;
+    private final boolean host;
+    private final int delay;
+    private final GameEngine engine;
+
+    // Inputs by frame; remote ones are written by the reader thread
+    private final int[] localInputs = new int[HISTORY];
+    private final int[] remoteInputs = new int[HISTORY];
+    private final long[] scheduledAt = new long[HISTORY];
+    private volatile long remoteThrough;
+    private final Object arrival = new Object();
+    private final ConcurrentLinkedQueue<Object[]> messages = new ConcurrentLinkedQueue<>();
+    private volatile IOException failure;
+
+    private long frame;
+    private long nextLocalFrame;
+    private int localInput;
+    private boolean shootPending, nextPending;
+
+    // Snapshots and hashes at every HASH_INTERVAL-th frame, for comparison and as resync baselines
+    private final long[] snapshotFrames = new long[SNAPSHOTS];
+    private final byte[][] snapshots = new byte[SNAPSHOTS][];
+    private final long[] hashes = new long[SNAPSHOTS];
+    private final List<Object[]> pendingHashes = new ArrayList<>();
+    private long agreedFrame = -1;
+    private int epoch;
+    private Object[] pendingResync;
+    private long desyncFrame = -1;
+
+    // Statistics
+    private long inputDelayNanos, inputDelaySamples, stallNanos;
+    private int hashChecks, desyncs, resyncs;
+    private long resyncBytes, resyncRawBytes;
+
+    private LockstepSession(Socket socket, boolean host, long seed, int delay) throws IOException {
+        this.socket = socket;
+        this.host = host;
+        this.delay = delay;
+        socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.counted = new CountingInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.engine = new GameEngine(seed, true);
+        engine.setTwoPlayer(true);
+        Arrays.fill(snapshotFrames, -1);
+        // The first `delay` frames have no input from anyone
+        remoteThrough = delay - 1;
+        nextLocalFrame = delay;
+        Thread reader = new Thread(this::readLoop, "lockstep-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // Waits for one peer to join, then tells it the seed and input delay. Listens on loopback
+    // only, unless -Dbubble.netplay.bind=<address> (0.0.0.0 for every interface) lets a peer on
+    // another machine in
+    public static LockstepSession host(int port, int delay) throws IOException {
+        String bind = System.getProperty("bubble.netplay.bind");
+        InetAddress address = bind != null ? InetAddress.getByName(bind) : InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket()) {
+            server.bind(new InetSocketAddress(address, port));
+            Socket socket = server.accept();
+            long seed = System.nanoTime();
+            DataOutputStream hello = new DataOutputStream(socket.getOutputStream());
+            hello.writeByte(HELLO);
+            hello.writeLong(seed);
+            hello.writeInt(delay);
+            hello.flush();
+            return new LockstepSession(socket, true, seed, delay);
+        }
+    }
+
+    public static LockstepSession join(String hostName, int port) throws IOException {
+        Socket socket = new Socket(hostName, port);
+        DataInputStream hello = new DataInputStream(socket.getInputStream());
+        if (hello.readByte() != HELLO) {
+            socket.close();
+            throw new IOException("not a lockstep host");
+        }
+        long seed = hello.readLong();
+        int delay = hello.readInt();
+        return new LockstepSession(socket, false, seed, delay);
+    }
+
+    // -Dbubble.netplay=host:<port> or join:<host>:<port>; -Dbubble.netplay.delay=<frames>,
+    // -Dbubble.netplay.bind=<address> (host)
+    public static LockstepSession open(String spec) throws IOException {
+        String[] parts = spec.split(":");
+        if (parts.length == 2 && parts[0].equals("host")) {
+            return host(Integer.parseInt(parts[1]), Integer.getInteger("bubble.netplay.delay", 3));
+        } else if (parts.length == 3 && parts[0].equals("join")) {
+            return join(parts[1], Integer.parseInt(parts[2]));
+        }
+        throw new IOException("expected host:<port> or join:<host>:<port>, got " + spec);
+    }
+
+    public GameEngine getEngine() { return engine; }
+    public boolean isHost() { return host; }
+    public long getFrame() { return frame; }
+
+    // Keyboard input for the windowed game; true if the key was one of ours
+    public boolean handleKey(int key, boolean pressed) {
+        int bit;
+        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+            bit = InputLog.LEFT;
+        } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+            bit = InputLog.RIGHT;
+        } else if (key == KeyEvent.VK_SPACE) {
+            shootPending |= pressed;
+            return true;
+        } else if (key == KeyEvent.VK_ENTER) {
+            nextPending |= pressed;
+            return true;
+        } else {
+            return false;
+        }
+        localInput = pressed ? localInput | bit : localInput & ~bit;
+        return true;
+    }
+
+    public void setLocalInput(int input) { localInput = input; }
+
+    // Sends this frame's input and simulates one frame if the peer's input for it is in.
+    // Returns false without blocking if it isn't yet
+    public boolean advance() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (nextLocalFrame == frame + delay) {
+            int input = localInput | (shootPending ? InputLog.SHOOT : 0) | (nextPending ? InputLog.NEXT_LEVEL : 0);
+            shootPending = false;
+            nextPending = false;
+            int slot = (int) (nextLocalFrame & (HISTORY - 1));
+            localInputs[slot] = input;
+            scheduledAt[slot] = System.nanoTime();
+            out.writeByte(INPUT);
+            out.writeInt((int) nextLocalFrame);
+            out.writeByte(input);
+            nextLocalFrame++;
+        }
+        processMessages();
+        if (remoteThrough < frame) {
+            out.flush();
+            return false;
+        }
+        if (pendingResync != null && frame == (Integer) pendingResync[0]) {
+            applyResync(pendingResync);
+            pendingResync = null;
+        }
+        int slot = (int) (frame & (HISTORY - 1));
+        if (frame == desyncFrame) {
+            // Test hook: act on a corrupted copy of the host's input, as a lost update would
+            remoteInputs[slot] ^= InputLog.LEFT | InputLog.RIGHT;
+        }
+        if (scheduledAt[slot] != 0) {
+            inputDelayNanos += System.nanoTime() - scheduledAt[slot];
+            inputDelaySamples++;
+        }
+        step(slot);
+        if (frame % HASH_INTERVAL == 0) {
+            long hash = recordSnapshot();
+            out.writeByte(HASH);
+            out.writeInt((int) frame);
+            out.writeLong(hash);
+            out.writeInt(epoch);
+        }
+        out.flush();
+        return true;
+    }
+
+    // Blocking version for headless peers
+    public void advanceBlocking() throws IOException {
+        while (!advance()) {
+            long start = System.nanoTime();
+            synchronized (arrival) {
+                if (remoteThrough < frame && failure == null) {
+                    try {
+                        arrival.wait(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            stallNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void step(int slot) {
+        int first = host ? localInputs[slot] : remoteInputs[slot];
+        int second = host ? remoteInputs[slot] : localInputs[slot];
+        apply(engine.getPlayer(), first);
+        apply(engine.getPlayer2(), second);
+        if ((first & InputLog.SHOOT) != 0) engine.shoot(0);
+        if ((second & InputLog.SHOOT) != 0) engine.shoot(1);
+        if (((first | second) & InputLog.NEXT_LEVEL) != 0) {
+            if (engine.isLevelComplete()) {
+                engine.nextLevel();
+            }
+            if (engine.isGameOver()) {
+                engine.restart();
+            }
+        }
+        engine.update();
+        frame++;
+    }
+
+    private static void apply(Player player, int input) {
+        player.setMovingLeft((input & InputLog.LEFT) != 0);
+        player.setMovingRight((input & InputLog.RIGHT) != 0);
+    }
+
+    private long recordSnapshot() {
+        int slot = (int) ((frame / HASH_INTERVAL) % SNAPSHOTS);
+        snapshots[slot] = snapshot(engine);
+        snapshotFrames[slot] = frame;
+        hashes[slot] = hash(snapshots[slot]);
+        return hashes[slot];
+    }
+
+    private byte[] snapshotAt(long at) {
+        if (at < 0) {
+            return new byte[0];
+        }
+        int slot = (int) ((at / HASH_INTERVAL) % SNAPSHOTS);
+        return snapshotFrames[slot] == at ? snapshots[slot] : null;
+    }
+
+    private void processMessages() throws IOException {
+        for (Object[] message; (message = messages.poll()) != null; ) {
+            if ((Byte) message[0] == HASH) {
+                pendingHashes.add(message);
+            } else if (frame >= (Integer) message[1]) {
+                applyResync(Arrays.copyOfRange(message, 1, message.length));
+            } else {
+                pendingResync = Arrays.copyOfRange(message, 1, message.length);
+            }
+        }
+        for (int i = 0; i < pendingHashes.size(); i++) {
+            Object[] message = pendingHashes.get(i);
+            long at = (Integer) message[1];
+            if (at > frame) {
+                continue;
+            }
+            pendingHashes.remove(i--);
+            // Hashes the joiner computed before it applied our last resync are stale
+            if (host && (Integer) message[3] < epoch) {
+                continue;
+            }
+            int slot = (int) ((at / HASH_INTERVAL) % SNAPSHOTS);
+            if (snapshotFrames[slot] != at) {
+                continue;
+            }
+            hashChecks++;
+            if (hashes[slot] == (Long) message[2]) {
+                agreedFrame = Math.max(agreedFrame, at);
+            } else {
+                desyncs++;
+                if (host) {
+                    sendResync();
+                }
+            }
+        }
+    }
+
+    private void sendResync() throws IOException {
+        byte[] state = snapshot(engine);
+        byte[] delta = xor(state, snapshotAt(agreedFrame));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(delta);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        epoch++;
+        out.writeByte(RESYNC);
+        out.writeInt((int) frame);
+        out.writeInt((int) agreedFrame);
+        out.writeInt(epoch);
+        out.writeInt(delta.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+        resyncs++;
+        resyncBytes += 21 + compressed.size();
+        resyncRawBytes += state.length;
+        engine.reseed(engine.getSeed() ^ frame * 0x9E3779B97F4A7C15L);
+    }
+
+    // { frame, base frame, epoch, raw length, compressed bytes }
+    private void applyResync(Object[] resync) throws IOException {
+        long at = (Integer) resync[0];
+        byte[] base = snapshotAt((Integer) resync[1]);
+        if (base == null) {
+            throw new IOException("resync baseline for frame " + resync[1] + " is gone");
+        }
+        byte[] delta = new byte[(Integer) resync[3]];
+        Inflater inflater = new Inflater();
+        inflater.setInput((byte[]) resync[4]);
+        try {
+            inflater.inflate(delta);
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt resync", e);
+        } finally {
+            inflater.end();
+        }
+        // Roll back to the resync frame, then replay our own inputs up to where we were
+        long resume = frame;
+        restore(engine, xor(delta, base));
+        engine.reseed(engine.getSeed() ^ at * 0x9E3779B97F4A7C15L);
+        frame = at;
+        epoch = (Integer) resync[2];
+        resyncs++;
+        while (frame < resume) {
+            step((int) (frame & (HISTORY - 1)));
+            if (frame % HASH_INTERVAL == 0) {
+                recordSnapshot();
+            }
+        }
+    }
+
+    private static byte[] xor(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length);
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            result[i] ^= b[i];
+        }
+        return result;
+    }
+
+    private void readLoop() {
+        try {
+            DataInputStream in = new DataInputStream(counted);
+            while (true) {
+                byte type = in.readByte();
+                if (type == INPUT) {
+                    int at = in.readInt();
+                    remoteInputs[at & (HISTORY - 1)] = in.readByte();
+                    remoteThrough = at;
+                } else if (type == HASH) {
+                    messages.add(new Object[] {type, in.readInt(), in.readLong(), in.readInt()});
+                } else if (type == RESYNC) {
+                    int at = in.readInt(), base = in.readInt(), newEpoch = in.readInt(), raw = in.readInt();
+                    byte[] compressed = new byte[in.readInt()];
+                    in.readFully(compressed);
+                    messages.add(new Object[] {type, at, base, newEpoch, raw, compressed});
+                } else {
+                    throw new IOException("unknown message " + type);
+                }
+                synchronized (arrival) {
+                    arrival.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            synchronized (arrival) {
+                arrival.notifyAll();
+            }
+        }
+    }
+
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    // Everything restore() needs, including the clock and who fired each harpoon
+    static byte[] snapshot(GameEngine engine) {
+        RewindBuffer.Frame frame = new RewindBuffer.Frame();
+        frame.capture(engine);
+        Player second = engine.getPlayer2();
+        ByteBuffer buffer = ByteBuffer.allocate(128 + frame.bubbleCount * 60 + frame.projectileCount * 33);
+        buffer.putLong(frame.ticks).putInt(frame.level).putInt(frame.lives).putInt(frame.score)
+            .putInt(frame.timeRemaining).putInt(frame.comboMultiplier).put(frame.flags())
+            .putLong(engine.getLastTimeUpdate()).putLong(engine.getLastHitTime())
+            .putDouble(frame.playerX).putInt(frame.playerDirection)
+            .putDouble(frame.playerWalkCycle).putDouble(frame.playerBobOffset)
+            .putDouble(second.getX()).putInt(second.getDirection())
+            .putDouble(second.getWalkCycle()).putDouble(second.getBobOffset());
+        buffer.putInt(frame.bubbleCount);
+        for (int i = 0; i < frame.bubbleCount; i++) {
+            buffer.putDouble(frame.bubbleX[i]).putDouble(frame.bubbleY[i])
+                .putDouble(frame.bubbleVelocityX[i]).putDouble(frame.bubbleVelocityY[i])
+                .putDouble(frame.bubbleWobble[i]).putDouble(frame.bubbleWobbleSpeed[i])
+                .putFloat(frame.bubblePulse[i]).putInt(frame.bubbleSize[i]);
+        }
+        buffer.putInt(frame.projectileCount);
+        for (int i = 0; i < frame.projectileCount; i++) {
+            buffer.putDouble(frame.projectileX[i]).putDouble(frame.projectileY[i])
+                .putDouble(frame.projectilePulse[i]).putDouble(frame.projectileElectric[i])
+                .put((byte) engine.shotOwner(engine.getProjectiles().get(i)));
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static void restore(GameEngine engine, byte[] state) {
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        RewindBuffer.Frame frame = new RewindBuffer.Frame();
+        frame.ticks = buffer.getLong();
+        frame.level = buffer.getInt();
+        frame.lives = buffer.getInt();
+        frame.score = buffer.getInt();
+        frame.timeRemaining = buffer.getInt();
+        frame.comboMultiplier = buffer.getInt();
+        frame.setFlags(buffer.get());
+        long lastTimeUpdate = buffer.getLong(), lastHitTime = buffer.getLong();
+        frame.playerX = buffer.getDouble();
+        frame.playerDirection = buffer.getInt();
+        frame.playerWalkCycle = buffer.getDouble();
+        frame.playerBobOffset = buffer.getDouble();
+        double secondX = buffer.getDouble();
+        int secondDirection = buffer.getInt();
+        double secondWalk = buffer.getDouble(), secondBob = buffer.getDouble();
+        frame.ensureBubbles(buffer.getInt());
+        for (int i = 0; i < frame.bubbleCount; i++) {
+            frame.bubbleX[i] = buffer.getDouble();
+            frame.bubbleY[i] = buffer.getDouble();
+            frame.bubbleVelocityX[i] = buffer.getDouble();
+            frame.bubbleVelocityY[i] = buffer.getDouble();
+            frame.bubbleWobble[i] = buffer.getDouble();
+            frame.bubbleWobbleSpeed[i] = buffer.getDouble();
+            frame.bubblePulse[i] = buffer.getFloat();
+            frame.bubbleSize[i] = buffer.getInt();
+        }
+        frame.ensureProjectiles(buffer.getInt());
+        int[] owners = new int[frame.projectileCount];
+        for (int i = 0; i < frame.projectileCount; i++) {
+            frame.projectileX[i] = buffer.getDouble();
+            frame.projectileY[i] = buffer.getDouble();
+            frame.projectilePulse[i] = buffer.getDouble();
+            frame.projectileElectric[i] = buffer.getDouble();
+            owners[i] = buffer.get();
+        }
+        engine.restore(frame);
+        engine.restoreClock(lastTimeUpdate, lastHitTime);
+        engine.restoreShots(owners);
+        engine.getPlayer2().restore(secondX, secondDirection, secondWalk, secondBob);
+    }
+
+    // 64-bit FNV-1a over the snapshot
+    static long hash(byte[] state) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : state) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    public String status() {
+        return String.format("delay %d frames, %d desyncs, %d resyncs", delay, desyncs, resyncs);
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean hosting = args.length > 0 && args[0].equals("host");
+        if (args.length < (hosting ? 2 : 3)) {
+            System.out.println("Usage: LockstepSession host <port> [seconds] | join <host> <port> [seconds] [desync-frame]");
+            System.exit(2);
+        }
+        int rest = hosting ? 2 : 3;
+        int seconds = args.length > rest ? Integer.parseInt(args[rest]) : 30;
+        LockstepSession session = hosting
+            ? host(Integer.parseInt(args[1]), Integer.getInteger("bubble.netplay.delay", 3))
+            : join(args[1], Integer.parseInt(args[2]));
+        if (!hosting && args.length > 4) {
+            session.desyncFrame = Long.parseLong(args[4]);
+        }
+        System.out.println((hosting ? "Hosting" : "Joined") + ", input delay " + session.delay + " frames");
+
+        // Paced at 60 frames per second, each side driven by a simple bot
+        GameEngine engine = session.engine;
+        int frames = seconds * GameEngine.TICKS_PER_SECOND;
+        long frameNanos = 1_000_000_000L / GameEngine.TICKS_PER_SECOND;
+        long start = System.nanoTime();
+        while (session.frame < frames) {
+            session.setLocalInput(botInput(engine, hosting ? engine.getPlayer() : engine.getPlayer2()));
+            session.advanceBlocking();
+            long wait = start + session.frame * frameNanos - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        // Let the last hashes arrive before comparing
+        long end = System.nanoTime() + 500_000_000L;
+        while (System.nanoTime() < end && session.failure == null) {
+            session.processMessages();
+            Thread.onSpinWait();
+        }
+        long finalHash = hash(snapshot(engine));
+        session.close();
+
+        System.out.printf("%d frames in %.1f s, level %d, score %d%n", session.frame, elapsed, engine.getLevel(), engine.getScore());
+        System.out.printf("bandwidth: %.0f B/s up, %.0f B/s down%n", session.out.size() / elapsed, session.counted.count / elapsed);
+        System.out.printf("input delay: %d frames (%.1f ms nominal), %.1f ms measured; stalled %.1f ms in total%n",
+            session.delay, session.delay * 1000.0 / GameEngine.TICKS_PER_SECOND,
+            session.inputDelayNanos / 1e6 / Math.max(1, session.inputDelaySamples), session.stallNanos / 1e6);
+        System.out.printf("hash checks %d, desyncs %d, resyncs %d (%d bytes sent for %d bytes of state)%n",
+            session.hashChecks, session.desyncs, session.resyncs, session.resyncBytes, session.resyncRawBytes);
+        System.out.printf("final state hash %016x%n", finalHash);
+    }
+
+    // Walks under the nearest bubble and keeps firing, backing off once it gets close
+    private static int botInput(GameEngine engine, Player player) {
+        double playerX = player.getCenterX();
+        double nearest = Double.MAX_VALUE, bubbleX = playerX;
+        for (Bubble bubble : engine.getBubbles()) {
+            double center = bubble.getX() + bubble.getSize() / 2.0;
+            if (Math.abs(center - playerX) < nearest) {
+                nearest = Math.abs(center - playerX);
+                bubbleX = center;
+            }
+        }
+        boolean left = (bubbleX < playerX) == (nearest >= 120);
+        return (left ? InputLog.LEFT : InputLog.RIGHT) | InputLog.SHOOT | InputLog.NEXT_LEVEL;
+    }
+}
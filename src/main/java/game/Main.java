@@ -5,6 +5,9 @@ import javax.swing.SwingUtilities;
 
 public class Main {
     public static void main(String[] args) {
+        // Must run before the first AWT call fixes the Java2D pipeline
+        RenderPipeline.select();
+
         SwingUtilities.invokeLater(() -> {
             JFrame frame = new JFrame("Bubble Trouble");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
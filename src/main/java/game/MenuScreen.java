@@ -2,9 +2,14 @@ package game;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 public class MenuScreen extends JPanel {
     private JFrame frame;
@@ -13,6 +18,22 @@ public class MenuScreen extends JPanel {
     private List<StarParticle> stars;
     private Timer animationTimer;
     private int frameCount = 0;
+    private final SplittableRandom random = new SplittableRandom();
+    
+    // Title layout and sprites, built on first paint and shared by every menu instance
+    private static final String TITLE = "BUBBLE TROUBLE";
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 76);
+    private static final int TITLE_Y = 140;
+    private static final int TITLE_HUE_STEPS = 64;
+    private static final int GLOW_PAD = 11;
+    private static final int SHADOW_PAD = 5;
+    private static final int LETTER_PAD = 2;
+    private static int[] titleLetterX, titleLetterY;
+    private static int[] titleGlyphSlot;
+    private static GlyphVector[] titleGlyphs;
+    private static BufferedImage[][] titleLetterSprites; // [glyph slot][hue], filled lazily
+    private static BufferedImage titleGlow, titleShadow, titleShine;
+    private static int titleSpriteX, titleSpriteY;
     
     // Animated floating bubbles
     private class FloatingBubble {
@@ -20,35 +41,35 @@ public class MenuScreen extends JPanel {
         Color color;
         
         FloatingBubble() {
-            x = Math.random() * Constants.WINDOW_WIDTH;
-            y = Math.random() * Constants.WINDOW_HEIGHT;
-            size = Math.random() * 50 + 30;
-            speed = Math.random() * 0.8 + 0.3;
-            wobble = Math.random() * Math.PI * 2;
-            rotation = Math.random() * Math.PI * 2;
+            x = random.nextDouble() * Constants.WINDOW_WIDTH;
+            y = random.nextDouble() * Constants.WINDOW_HEIGHT;
+            size = random.nextDouble() * 50 + 30;
+            speed = random.nextDouble() * 0.8 + 0.3;
+            wobble = random.nextDouble() * Math.PI * 2;
+            rotation = random.nextDouble() * Math.PI * 2;
             Color[] colors = {
                 new Color(100, 200, 255, 180),
                 new Color(255, 150, 200, 180),
                 new Color(150, 255, 200, 180),
                 new Color(255, 200, 100, 180)
             };
-            color = colors[(int)(Math.random() * colors.length)];
+            color = colors[(int)(random.nextDouble() * colors.length)];
         }
         
         void update() {
             y -= speed;
-            wobble += 0.03;
+            wobble = FastMath.wrapPhase(wobble + 0.03);
             rotation += 0.02;
-            x += Math.sin(wobble) * 0.8;
+            x += FastMath.sin(wobble) * 0.8;
             
             if (y < -size) {
                 y = Constants.WINDOW_HEIGHT + size;
-                x = Math.random() * Constants.WINDOW_WIDTH;
+                x = random.nextDouble() * Constants.WINDOW_WIDTH;
             }
         }
         
         void draw(Graphics2D g) {
-            int drawX = (int)(x + Math.sin(wobble) * 3);
+            int drawX = (int)(x + FastMath.sin(wobble) * 3);
             int drawY = (int)y;
             
             // Outer glow
@@ -79,19 +100,19 @@ public class MenuScreen extends JPanel {
         double twinkle, speed;
         
         StarParticle() {
-            x = (int)(Math.random() * Constants.WINDOW_WIDTH);
-            y = (int)(Math.random() * Constants.WINDOW_HEIGHT);
-            size = (int)(Math.random() * 3) + 1;
-            twinkle = Math.random() * Math.PI * 2;
-            speed = Math.random() * 0.05 + 0.02;
+            x = (int)(random.nextDouble() * Constants.WINDOW_WIDTH);
+            y = (int)(random.nextDouble() * Constants.WINDOW_HEIGHT);
+            size = (int)(random.nextDouble() * 3) + 1;
+            twinkle = random.nextDouble() * Math.PI * 2;
+            speed = random.nextDouble() * 0.05 + 0.02;
         }
         
         void update() {
-            twinkle += speed;
+            twinkle = FastMath.wrapPhase(twinkle + speed);
         }
         
         void draw(Graphics2D g) {
-            float alpha = (float)(Math.sin(twinkle) * 0.4 + 0.6);
+            float alpha = (float)(FastMath.sin(twinkle) * 0.4 + 0.6);
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
             g.setColor(new Color(255, 255, 255, (int)(200 * alpha)));
             g.fillOval(x, y, size, size);
@@ -237,11 +258,10 @@ public class MenuScreen extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        RenderPipeline.applyHints(g2d);
         
         // Animated gradient background
-        int offset = (int)(Math.sin(frameCount * 0.01) * 20);
+        int offset = (int)(FastMath.sin(frameCount * 0.01) * 20);
         GradientPaint bgGradient = new GradientPaint(
             0, offset, new Color(10, 15, 35),
             0, Constants.WINDOW_HEIGHT + offset, new Color(40, 25, 60)
@@ -273,56 +293,140 @@ public class MenuScreen extends JPanel {
     }
     
     private void drawEpicTitle(Graphics2D g) {
-        String title = "BUBBLE TROUBLE";
-        g.setFont(new Font("Arial", Font.BOLD, 76));
-        FontMetrics fm = g.getFontMetrics();
-        int titleWidth = fm.stringWidth(title);
-        int titleX = (Constants.WINDOW_WIDTH - titleWidth) / 2;
-        int titleY = 140;
+        if (titleGlow == null) {
+            buildTitleCache(g);
+        }
         
         // Pulsing effect
-        float pulse = (float)(Math.sin(frameCount * 0.04) * 0.15 + 0.85);
-        float breathe = (float)(Math.sin(frameCount * 0.02) * 3);
+        float pulse = (float)(FastMath.sin(frameCount * 0.04) * 0.15 + 0.85);
+        float breathe = (float)(FastMath.sin(frameCount * 0.02) * 3);
         
-        // Multiple layer glow
-        for (int layer = 5; layer > 0; layer--) {
-            float layerAlpha = (0.08f * layer) * pulse;
-            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, layerAlpha));
-            g.setColor(new Color(100, 200, 255));
-            g.drawString(title, titleX - layer * 2, titleY - layer * 2 + (int)breathe);
-        }
+        // Multiple layer glow, pre-rendered once and faded with the pulse
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, pulse));
+        g.drawImage(titleGlow, titleSpriteX, titleSpriteY + (int)breathe, null);
         
-        // Rainbow gradient title
+        // Letter shadows
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
-        for (int i = 0; i < title.length(); i++) {
+        g.drawImage(titleShadow, titleSpriteX, titleSpriteY, null);
+        
+        // Rainbow gradient title from cached per-hue letter sprites
+        for (int i = 0; i < TITLE.length(); i++) {
+            int slot = titleGlyphSlot[i];
+            if (slot < 0) continue;
             float hue = (frameCount * 0.003f + i * 0.05f) % 1.0f;
-            Color letterColor = Color.getHSBColor(hue, 0.7f, 1.0f);
-            
-            String letter = String.valueOf(title.charAt(i));
-            int letterX = titleX + fm.stringWidth(title.substring(0, i));
-            
-            // Letter shadow
-            g.setColor(new Color(0, 0, 0, 150));
-            g.drawString(letter, letterX + 3, titleY + 3);
-            
-            // Letter with glow
-            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
-            g.setColor(letterColor.brighter());
-            g.drawString(letter, letterX - 1, titleY - 1);
-            
-            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
-            g.setColor(letterColor);
-            g.drawString(letter, letterX, titleY);
+            int hueIndex = (int)(hue * TITLE_HUE_STEPS) % TITLE_HUE_STEPS;
+            BufferedImage sprite = titleLetterSprites[slot][hueIndex];
+            if (sprite == null) {
+                sprite = renderLetterSprite(g, slot, hueIndex);
+                titleLetterSprites[slot][hueIndex] = sprite;
+            }
+            g.drawImage(sprite, titleLetterX[i], titleLetterY[i], null);
         }
         
         // Shine effect
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.4f * pulse));
-        g.setColor(Color.WHITE);
-        g.drawString(title, titleX - 2, titleY - 3);
+        g.drawImage(titleShine, titleSpriteX, titleSpriteY, null);
         
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
     }
     
+    // Lay out the title once. The glow, shadow and shine layers are single-colour and only
+    // change in opacity, so each becomes one sprite; letters are tinted per hue on demand.
+    private static void buildTitleCache(Graphics2D g) {
+        FontRenderContext frc = g.getFontRenderContext();
+        GlyphVector title = TITLE_FONT.createGlyphVector(frc, TITLE);
+        float titleX = (float)((Constants.WINDOW_WIDTH - title.getLogicalBounds().getWidth()) / 2);
+        
+        // Repeated letters share one glyph slot; spaces get none
+        String uniqueLetters = "";
+        titleGlyphSlot = new int[TITLE.length()];
+        titleLetterX = new int[TITLE.length()];
+        titleLetterY = new int[TITLE.length()];
+        for (int i = 0; i < TITLE.length(); i++) {
+            char c = TITLE.charAt(i);
+            if (c == ' ') {
+                titleGlyphSlot[i] = -1;
+                continue;
+            }
+            if (uniqueLetters.indexOf(c) < 0) {
+                uniqueLetters += c;
+            }
+            titleGlyphSlot[i] = uniqueLetters.indexOf(c);
+        }
+        titleGlyphs = new GlyphVector[uniqueLetters.length()];
+        for (int slot = 0; slot < titleGlyphs.length; slot++) {
+            titleGlyphs[slot] = TITLE_FONT.createGlyphVector(frc, String.valueOf(uniqueLetters.charAt(slot)));
+        }
+        titleLetterSprites = new BufferedImage[titleGlyphs.length][TITLE_HUE_STEPS];
+        for (int i = 0; i < TITLE.length(); i++) {
+            if (titleGlyphSlot[i] < 0) continue;
+            Rectangle2D letterBounds = titleGlyphs[titleGlyphSlot[i]].getVisualBounds();
+            titleLetterX[i] = Math.round(titleX + (float)title.getGlyphPosition(i).getX())
+                + (int)Math.floor(letterBounds.getX()) - LETTER_PAD;
+            titleLetterY[i] = TITLE_Y + (int)Math.floor(letterBounds.getY()) - LETTER_PAD;
+        }
+        
+        // Title sprites are cropped to the ink, plus room for the glow (up-left) and shadow (down-right)
+        Rectangle2D ink = title.getVisualBounds();
+        titleSpriteX = (int)Math.floor(titleX + ink.getX()) - GLOW_PAD;
+        titleSpriteY = (int)Math.floor(TITLE_Y + ink.getY()) - GLOW_PAD;
+        int width = (int)Math.ceil(ink.getWidth()) + GLOW_PAD + SHADOW_PAD;
+        int height = (int)Math.ceil(ink.getHeight()) + GLOW_PAD + SHADOW_PAD;
+        float originX = titleX - titleSpriteX;
+        float originY = TITLE_Y - titleSpriteY;
+        
+        titleGlow = createTitleSprite(g, width, height);
+        Graphics2D glow = titleGlow.createGraphics();
+        glow.setRenderingHints(g.getRenderingHints());
+        glow.setColor(new Color(100, 200, 255));
+        for (int layer = 5; layer > 0; layer--) {
+            glow.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.08f * layer));
+            glow.drawGlyphVector(title, originX - layer * 2, originY - layer * 2);
+        }
+        glow.dispose();
+        
+        titleShadow = createTitleSprite(g, width, height);
+        Graphics2D shadow = titleShadow.createGraphics();
+        shadow.setRenderingHints(g.getRenderingHints());
+        shadow.setColor(new Color(0, 0, 0, 150));
+        shadow.drawGlyphVector(title, originX + 3, originY + 3);
+        shadow.dispose();
+        
+        titleShine = createTitleSprite(g, width, height);
+        Graphics2D shine = titleShine.createGraphics();
+        shine.setRenderingHints(g.getRenderingHints());
+        shine.setColor(Color.WHITE);
+        shine.drawGlyphVector(title, originX - 2, originY - 3);
+        shine.dispose();
+    }
+    
+    // One letter in one hue: the half-transparent brighter glow layer under the solid letter
+    private static BufferedImage renderLetterSprite(Graphics2D g, int slot, int hueIndex) {
+        GlyphVector glyph = titleGlyphs[slot];
+        Rectangle2D ink = glyph.getVisualBounds();
+        int width = (int)Math.ceil(ink.getWidth()) + LETTER_PAD * 2 + 1;
+        int height = (int)Math.ceil(ink.getHeight()) + LETTER_PAD * 2 + 1;
+        float originX = LETTER_PAD - (int)Math.floor(ink.getX());
+        float originY = LETTER_PAD - (int)Math.floor(ink.getY());
+        Color letterColor = Color.getHSBColor(hueIndex / (float)TITLE_HUE_STEPS, 0.7f, 1.0f);
+        
+        BufferedImage sprite = createTitleSprite(g, width, height);
+        Graphics2D sg = sprite.createGraphics();
+        sg.setRenderingHints(g.getRenderingHints());
+        sg.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        sg.setColor(letterColor.brighter());
+        sg.drawGlyphVector(glyph, originX - 1, originY - 1);
+        sg.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+        sg.setColor(letterColor);
+        sg.drawGlyphVector(glyph, originX, originY);
+        sg.dispose();
+        return sprite;
+    }
+    
+    private static BufferedImage createTitleSprite(Graphics2D g, int width, int height) {
+        return g.getDeviceConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+    
     private void drawSubtitle(Graphics2D g) {
         g.setFont(new Font("Arial", Font.BOLD, 20));
         String subtitle = "🎯 Pop All The Bubbles! 🎯";
@@ -330,7 +434,7 @@ public class MenuScreen extends JPanel {
         int subtitleX = (Constants.WINDOW_WIDTH - fm.stringWidth(subtitle)) / 2;
         int subtitleY = 200;
         
-        float pulse = (float)(Math.sin(frameCount * 0.05) * 0.3 + 0.7);
+        float pulse = (float)(FastMath.sin(frameCount * 0.05) * 0.3 + 0.7);
         
         // Subtitle glow
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.6f * pulse));
@@ -347,11 +451,11 @@ public class MenuScreen extends JPanel {
         // Animated circles around the screen
         for (int i = 0; i < 4; i++) {
             double angle = (frameCount * 0.01 + i * Math.PI / 2);
-            int x = (int)(Constants.WINDOW_WIDTH / 2 + Math.cos(angle) * 350);
-            int y = (int)(250 + Math.sin(angle) * 100);
-            int size = 15 + (int)(Math.sin(frameCount * 0.05 + i) * 5);
+            int x = (int)(Constants.WINDOW_WIDTH / 2 + FastMath.cos(angle) * 350);
+            int y = (int)(250 + FastMath.sin(angle) * 100);
+            int size = 15 + (int)(FastMath.sin(frameCount * 0.05 + i) * 5);
             
-            float alpha = (float)(Math.sin(frameCount * 0.03 + i) * 0.3 + 0.4);
+            float alpha = (float)(FastMath.sin(frameCount * 0.03 + i) * 0.3 + 0.4);
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
             
             Color circleColor = Color.getHSBColor((frameCount * 0.002f + i * 0.25f) % 1.0f, 0.6f, 1.0f);
@@ -454,7 +558,7 @@ public class MenuScreen extends JPanel {
                 "💥  Large bubbles → 2 Medium bubbles",
                 "💥  Medium bubbles → 2 Small bubbles", 
                 "⚠️  Avoid touching bubbles or lose a life",
-                "🏆  Complete all 5 levels to win!",
+                "🏆  Complete all " + Constants.MAX_LEVEL + " levels to win!",
                 "⏱️  Beat the timer for bonus points",
                 "🔥  Hit bubbles quickly for combo multipliers!"
             };
@@ -3,24 +3,40 @@ package game;
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.util.random.RandomGenerator;
 
 public class Particle {
+    private static final float LOW_DETAIL_ALPHA = 0.3f;
+    
     private double x, y;
     private double velocityX, velocityY;
     private Color color;
     private int lifetime;
     private int maxLifetime;
     private double size;
+    private final ParticleBudget.Priority priority;
+    
+    public Particle(double x, double y, double velocityX, double velocityY, Color color,
+                    RandomGenerator random) {
+        this(x, y, velocityX, velocityY, color, ParticleBudget.Priority.CELEBRATION, random);
+    }
     
-    public Particle(double x, double y, double velocityX, double velocityY, Color color) {
+    public Particle(double x, double y, double velocityX, double velocityY, Color color,
+                    ParticleBudget.Priority priority, RandomGenerator random) {
         this.x = x;
         this.y = y;
         this.velocityX = velocityX;
         this.velocityY = velocityY;
         this.color = color;
-        this.maxLifetime = Constants.PARTICLE_LIFETIME;
+        this.maxLifetime = Tuning.active().particleLifetime;
         this.lifetime = maxLifetime;
-        this.size = 2 + Math.random() * 3;
+        this.size = 2 + random.nextDouble() * 3;
+        this.priority = priority;
+    }
+    
+    // Stands in for the particles a thinned burst left out (ParticleBudget.mergeScale)
+    public void scaleSize(double factor) {
+        size *= factor;
     }
     
     public void update() {
@@ -38,14 +54,27 @@ public class Particle {
     }
     
     public void draw(Graphics2D g) {
+        draw(g, false);
+    }
+    
+    // Low detail, also used for nearly faded or tiny particles: one square, no glow
+    public void draw(Graphics2D g, boolean lowDetail) {
         // Calculate alpha based on lifetime
         float alpha = (float) lifetime / maxLifetime;
         alpha = Math.max(0, Math.min(1, alpha));
         
         int drawSize = (int) (size * (0.5 + alpha * 0.5));
         
+        if (lowDetail || alpha < LOW_DETAIL_ALPHA || drawSize <= 1) {
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            g.setColor(color);
+            g.fillRect((int)x - drawSize, (int)y - drawSize, drawSize * 2, drawSize * 2);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+            return;
+        }
+        
         // Single glow layer
-        if (Constants.ENABLE_GLOW_EFFECTS && drawSize > 1) {
+        if (Tuning.active().glowEffects) {
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha * 0.3f));
             g.setColor(color);
             g.fillOval((int)x - drawSize - 2, (int)y - drawSize - 2, 
@@ -67,4 +96,5 @@ public class Particle {
     
     public double getX() { return x; }
     public double getY() { return y; }
+    public ParticleBudget.Priority getPriority() { return priority; }
 }
\ No newline at end of file
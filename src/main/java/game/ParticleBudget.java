@@ -0,0 +1,157 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Global cap on live particles, asked by GameEffects before every burst. Each priority may
+// fill its own share of the budget: bursts come out whole up to half that share, then thin
+// linearly to nothing at it, and the survivors are drawn larger so a thinned burst still reads
+// as one. A death always shows, evicting the oldest lower-priority particles if it must. Past
+// half the budget the renderer also switches every particle to its low-detail draw.
+// Check: java -Djava.awt.headless=true -cp bin game.ParticleBudget [ticks]
+public class ParticleBudget {
+    public enum Priority { CELEBRATION, POP, DEATH }
+
+    // Share of the budget each priority may fill, by ordinal
+    private static final double[] CEILING = {0.5, 0.8, 1.0};
+    private static final int MIN_DEATH = 8;
+    // Largest size-up for the survivors of a thinned burst
+    private static final double MAX_MERGE = 2.5;
+
+    private final List<Particle> particles;
+    private long requested, emitted, culled, evicted;
+
+    public ParticleBudget(List<Particle> particles) {
+        this.particles = particles;
+    }
+
+    // How many of a burst of `count` particles may be emitted now
+    public int grant(Priority priority, int count) {
+        requested += count;
+        int capacity = getCapacity();
+        int live = particles.size();
+        double ceiling = capacity * CEILING[priority.ordinal()];
+        int granted = (int) Math.ceil(count * Math.min(1, 2 * (ceiling - live) / ceiling));
+        granted = Math.max(0, Math.min(granted, (int) ceiling - live));
+        if (priority == Priority.DEATH && granted < MIN_DEATH) {
+            granted = Math.min(count, MIN_DEATH);
+            int over = live + granted - capacity;
+            if (over > 0) {
+                granted = Math.max(0, granted - (over - evict(priority, over)));
+            }
+        }
+        emitted += granted;
+        culled += count - granted;
+        return granted;
+    }
+
+    // Size factor for each survivor of a burst thinned from `count` to `granted`, keeping its total area
+    public static double mergeScale(int count, int granted) {
+        return granted >= count ? 1 : Math.min(MAX_MERGE, Math.sqrt((double) count / granted));
+    }
+
+    // Removes up to `count` of the oldest particles below `priority` in one pass; returns how many
+    private int evict(Priority priority, int count) {
+        int kept = 0, removed = 0;
+        for (int i = 0; i < particles.size(); i++) {
+            Particle particle = particles.get(i);
+            if (removed < count && particle.getPriority().ordinal() < priority.ordinal()) {
+                removed++;
+            } else {
+                particles.set(kept++, particle);
+            }
+        }
+        particles.subList(kept, particles.size()).clear();
+        evicted += removed;
+        culled += removed;
+        return removed;
+    }
+
+    public boolean isUnderPressure() { return particles.size() > getCapacity() / 2; }
+    // Tuning's particle budget; lowering it lets the excess die out rather than removing it
+    public int getCapacity() { return Tuning.active().particleBudget; }
+    public long getRequested() { return requested; }
+    public long getEmitted() { return emitted; }
+    // Never emitted, plus evicted early
+    public long getCulled() { return culled; }
+    public long getEvicted() { return evicted; }
+    public int getLive() { return particles.size(); }
+
+    // A pop storm far past anything the game makes (40 pops a tick) with a pile of 20 deaths
+    // every 100 ticks and a level clear every 150: the live count must stay within the budget
+    // and every death must show. Then times drawing the storm's particles in full against the
+    // low-detail draw.
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        GameEngine engine = new GameEngine(BenchmarkScene.SEED, true);
+        engine.setEffectsEnabled(false);
+        List<Particle> particles = engine.getParticles();
+        GameEffects effects = new GameEffects(engine, new SplittableRandom(BenchmarkScene.SEED));
+        ParticleBudget budget = effects.getBudget();
+        GameEventBus events = new GameEventBus();
+        SplittableRandom random = new SplittableRandom(1);
+        int peak = 0;
+        boolean ok = true;
+        for (int t = 0; t < ticks; t++) {
+            for (int i = 0; i < 40; i++) {
+                events.post(GameEventBus.Type.POP, random.nextDouble() * Constants.WINDOW_WIDTH,
+                    random.nextDouble() * Constants.GROUND_LEVEL, Constants.BUBBLE_SMALL, 0);
+            }
+            int deaths = t % 100 == 99 ? 20 : 0;
+            for (int i = 0; i < deaths; i++) {
+                events.post(GameEventBus.Type.DEATH, Constants.WINDOW_WIDTH / 2.0, Constants.GROUND_LEVEL - 40, 0, 1);
+            }
+            if (t % 150 == 149) {
+                events.post(GameEventBus.Type.LEVEL_CLEAR, 0, 0, 0, 0);
+            }
+            long deathsBefore = countDeathParticles(particles);
+            effects.onEvents(events);
+            events.clear();
+            if (countDeathParticles(particles) - deathsBefore < deaths * MIN_DEATH) {
+                System.out.println("FAIL: tick " + t + " death bursts were culled below " + MIN_DEATH);
+                ok = false;
+            }
+            if (particles.size() > budget.getCapacity()) {
+                System.out.println("FAIL: tick " + t + " has " + particles.size() + " particles live");
+                ok = false;
+            }
+            peak = Math.max(peak, particles.size());
+            for (Particle particle : particles) {
+                particle.update();
+            }
+            particles.removeIf(p -> !p.isAlive());
+        }
+        System.out.printf("requested %d, emitted %d, culled %d (%d evicted), peak %d live of %d%n",
+            budget.getRequested(), budget.getEmitted(), budget.getCulled(), budget.getEvicted(),
+            peak, budget.getCapacity());
+
+        BufferedImage image = new BufferedImage(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int round = 0; round < 3; round++) {
+            double full = drawMillis(image, particles, false, 200);
+            double low = drawMillis(image, particles, true, 200);
+            System.out.printf("round %d: %d particles drawn in %.3f ms in full, %.3f ms low detail%n",
+                round, particles.size(), full, low);
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static long countDeathParticles(List<Particle> particles) {
+        return particles.stream().filter(p -> p.getPriority() == Priority.DEATH).count();
+    }
+
+    private static double drawMillis(BufferedImage image, List<Particle> particles, boolean lowDetail, int frames) {
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            Graphics2D g = image.createGraphics();
+            RenderPipeline.applyHints(g);
+            for (Particle particle : particles) {
+                particle.draw(g, lowDetail);
+            }
+            g.dispose();
+        }
+        return (System.nanoTime() - start) / 1e6 / frames;
+    }
+}
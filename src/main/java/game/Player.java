@@ -8,10 +8,15 @@ import java.awt.BasicStroke;
 
 public class Player {
     private double x, y;
+    // Position before and after each tick of the last advance(), for swept collision tests
+    private double[] pathX = new double[2];
+    private int steps;
     private boolean movingLeft, movingRight;
     private double walkCycle = 0;
     private double bobOffset = 0;
     private int direction = 1;
+    // Right-hand wall; wider than the window in arena mode
+    private double arenaWidth = Constants.WINDOW_WIDTH;
     
     // Pre-calculated colors
     private static final Color SHADOW_COLOR = new Color(0, 0, 0, 100);
@@ -22,20 +27,34 @@ public class Player {
     public Player() {
         this.x = Constants.WINDOW_WIDTH / 2.0 - Constants.PLAYER_WIDTH / 2.0;
         this.y = Constants.GROUND_LEVEL - Constants.PLAYER_HEIGHT;
+        this.pathX[0] = x;
+    }
+    
+    // Runs ticks updates as one simulation step
+    public void advance(int ticks) {
+        if (pathX.length <= ticks) {
+            pathX = new double[ticks + 1];
+        }
+        pathX[0] = x;
+        for (int i = 0; i < ticks; i++) {
+            update();
+            pathX[i + 1] = x;
+        }
+        steps = ticks;
     }
     
     public void update() {
         // Direct movement - no acceleration/momentum
         if (movingLeft && !movingRight) {
-            x -= Constants.PLAYER_SPEED;
+            x -= Tuning.active().playerSpeed;
             direction = -1;
-            walkCycle += 0.2;
-            bobOffset = Math.sin(walkCycle) * 1.5;
+            walkCycle = FastMath.wrapPhase(walkCycle + 0.2);
+            bobOffset = FastMath.sin(walkCycle) * 1.5;
         } else if (movingRight && !movingLeft) {
-            x += Constants.PLAYER_SPEED;
+            x += Tuning.active().playerSpeed;
             direction = 1;
-            walkCycle += 0.2;
-            bobOffset = Math.sin(walkCycle) * 1.5;
+            walkCycle = FastMath.wrapPhase(walkCycle + 0.2);
+            bobOffset = FastMath.sin(walkCycle) * 1.5;
         } else {
             // Immediately stop when no keys pressed
             walkCycle = 0;
@@ -44,8 +63,8 @@ public class Player {
         
         // Boundary checking
         if (x < 0) x = 0;
-        if (x > Constants.WINDOW_WIDTH - Constants.PLAYER_WIDTH) {
-            x = Constants.WINDOW_WIDTH - Constants.PLAYER_WIDTH;
+        if (x > arenaWidth - Constants.PLAYER_WIDTH) {
+            x = arenaWidth - Constants.PLAYER_WIDTH;
         }
     }
     
@@ -54,7 +73,7 @@ public class Player {
         int drawY = (int)(y + bobOffset);
         
         // Simple shadow
-        if (Constants.ENABLE_SHADOWS) {
+        if (Tuning.active().shadows) {
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
             g.setColor(SHADOW_COLOR);
             g.fillOval(drawX + 5, Constants.GROUND_LEVEL - 5, 
@@ -63,7 +82,7 @@ public class Player {
         }
         
         // Draw legs with simple animation
-        int legOffset = (int)(Math.sin(walkCycle) * 2);
+        int legOffset = (int)(FastMath.sin(walkCycle) * 2);
         g.setColor(Constants.COLOR_PLAYER_BODY_DARK);
         g.fillRect(drawX + 8, drawY + 30, 10, 20 + Math.abs(legOffset));
         g.fillRect(drawX + 22, drawY + 30, 10, 20 - Math.abs(legOffset));
@@ -77,7 +96,7 @@ public class Player {
         g.fillRoundRect(drawX + 5, drawY + 10, Constants.PLAYER_WIDTH - 10, 30, 8, 8);
         
         // Arms
-        int armSwing = (int)(Math.sin(walkCycle) * 4);
+        int armSwing = (int)(FastMath.sin(walkCycle) * 4);
         g.setColor(Constants.COLOR_PLAYER_BODY);
         g.fillRoundRect(drawX, drawY + 15 - armSwing, 8, 18, 4, 4);
         g.fillRoundRect(drawX + Constants.PLAYER_WIDTH - 8, drawY + 15 + armSwing, 8, 18, 4, 4);
@@ -124,18 +143,58 @@ public class Player {
     }
     
     public double getX() { return x; }
+    // Position after `step` ticks of the last advance() (0: before it)
+    public double getPathX(int step) { return pathX[step]; }
+    public int getSteps() { return steps; }
     public double getY() { return y; }
     public double getCenterX() { return x + Constants.PLAYER_WIDTH / 2.0; }
+    public int getDirection() { return direction; }
+    public double getWalkCycle() { return walkCycle; }
+    public double getBobOffset() { return bobOffset; }
+    
+    public double getArenaWidth() { return arenaWidth; }
+    public void setArenaWidth(double arenaWidth) { this.arenaWidth = arenaWidth; }
     
     public void setMovingLeft(boolean moving) { this.movingLeft = moving; }
     public void setMovingRight(boolean moving) { this.movingRight = moving; }
+    public boolean isMovingLeft() { return movingLeft; }
+    public boolean isMovingRight() { return movingRight; }
     
     public void reset() {
-        this.x = Constants.WINDOW_WIDTH / 2.0 - Constants.PLAYER_WIDTH / 2.0;
+        this.x = arenaWidth / 2.0 - Constants.PLAYER_WIDTH / 2.0;
+        this.pathX[0] = x;
+        this.steps = 0;
         this.y = Constants.GROUND_LEVEL - Constants.PLAYER_HEIGHT;
         this.movingLeft = false;
         this.movingRight = false;
         this.walkCycle = 0;
         this.bobOffset = 0;
     }
+    
+    // Every field of `other`, held keys included, for GameEngine.copyFrom
+    void copyFrom(Player other) {
+        x = other.x;
+        y = other.y;
+        if (pathX.length < other.pathX.length) {
+            pathX = new double[other.pathX.length];
+        }
+        System.arraycopy(other.pathX, 0, pathX, 0, other.steps + 1);
+        steps = other.steps;
+        movingLeft = other.movingLeft;
+        movingRight = other.movingRight;
+        walkCycle = other.walkCycle;
+        bobOffset = other.bobOffset;
+        direction = other.direction;
+        arenaWidth = other.arenaWidth;
+    }
+    
+    // Restores a position captured by RewindBuffer; held keys are left as they are
+    void restore(double x, int direction, double walkCycle, double bobOffset) {
+        this.x = x;
+        this.pathX[0] = x;
+        this.steps = 0;
+        this.direction = direction;
+        this.walkCycle = walkCycle;
+        this.bobOffset = bobOffset;
+    }
 }
\ No newline at end of file
@@ -10,18 +10,85 @@ import java.awt.geom.Point2D;
 
 public class Projectile {
     private double x, y;
+    // Tip height before and after each tick of the last advance(), for swept collision tests
+    private double[] pathY = new double[2];
+    // Ticks of the last advance() after which the harpoon was still in play
+    private int liveSteps;
+    // Tick of the last advance() the harpoon popped a bubble on, or -1
+    private int spentAt = -1;
     private boolean active;
+    // State the path starts from, for cut()
+    private boolean startActive;
+    private double startPulse, startElectric;
     private double pulsePhase = 0;
     private double electricPhase = 0;
     
     public Projectile(double x) {
+        reset(x);
+    }
+    
+    // A new harpoon in a used object, as the constructor makes it (GameEngine's scratch copies)
+    void reset(double x) {
         this.x = x;
         this.y = Constants.GROUND_LEVEL;
+        this.pathY[0] = y;
+        this.liveSteps = 0;
+        this.spentAt = -1;
         this.active = true;
+        this.pulsePhase = 0;
+        this.electricPhase = 0;
+    }
+    
+    // Every field of `other`, for GameEngine.copyFrom
+    void copyFrom(Projectile other) {
+        x = other.x;
+        y = other.y;
+        if (pathY.length < other.pathY.length) {
+            pathY = new double[other.pathY.length];
+        }
+        System.arraycopy(other.pathY, 0, pathY, 0, other.liveSteps + 1);
+        liveSteps = other.liveSteps;
+        spentAt = other.spentAt;
+        active = other.active;
+        startActive = other.startActive;
+        startPulse = other.startPulse;
+        startElectric = other.startElectric;
+        pulsePhase = other.pulsePhase;
+        electricPhase = other.electricPhase;
+    }
+    
+    // Restores a projectile captured by RewindBuffer
+    Projectile(double x, double y, double pulsePhase, double electricPhase) {
+        this.x = x;
+        this.y = y;
+        this.active = true;
+        this.pulsePhase = pulsePhase;
+        this.electricPhase = electricPhase;
+        this.pathY[0] = y;
+    }
+    
+    // Runs ticks updates as one simulation step
+    public void advance(int ticks) {
+        if (pathY.length <= ticks) {
+            pathY = new double[ticks + 1];
+        }
+        pathY[0] = y;
+        liveSteps = 0;
+        spentAt = -1;
+        startActive = active;
+        startPulse = pulsePhase;
+        startElectric = electricPhase;
+        for (int i = 0; i < ticks; i++) {
+            update();
+            pathY[i + 1] = y;
+            if (active) {
+                liveSteps = i + 1;
+            }
+        }
     }
     
     public void update() {
-        y -= Constants.PROJECTILE_SPEED;
+        y -= Tuning.active().projectileSpeed;
         pulsePhase += 0.3;
         electricPhase += 0.5;
         
@@ -40,9 +107,9 @@ public class Projectile {
         int groundY = Constants.GROUND_LEVEL;
         
         // Draw outer glow layers
-        if (Constants.ENABLE_GLOW_EFFECTS) {
+        if (Tuning.active().glowEffects) {
             for (int i = 4; i > 0; i--) {
-                float alpha = 0.15f * i * (float)(Math.sin(pulsePhase) * 0.3 + 0.7);
+                float alpha = 0.15f * i * (float)(FastMath.sin(pulsePhase) * 0.3 + 0.7);
                 g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
                 g.setColor(Constants.COLOR_PROJECTILE_OUTER);
                 g.setStroke(new BasicStroke(Constants.PROJECTILE_WIDTH + i * 3, 
@@ -70,12 +137,12 @@ public class Projectile {
         g.drawLine(drawX, drawY, drawX, groundY);
         
         // Draw electric sparks along the beam
-        if (Constants.ENABLE_GLOW_EFFECTS) {
+        if (Tuning.active().glowEffects) {
             drawElectricSparks(g, drawX, drawY, groundY);
         }
         
         // Draw projectile tip with radial gradient
-        float pulse = (float)(Math.sin(pulsePhase) * 0.3 + 1.0);
+        float pulse = (float)(FastMath.sin(pulsePhase) * 0.3 + 1.0);
         int tipSize = (int)(12 * pulse);
         
         // Outer glow for tip
@@ -125,10 +192,10 @@ public class Projectile {
         
         for (int i = 0; i < numSparks; i++) {
             double sparkY = startY + (beamLength * i / (double)numSparks) + 
-                           Math.sin(electricPhase + i) * 10;
-            double sparkOffset = Math.cos(electricPhase * 2 + i) * 8;
+                           FastMath.sin(electricPhase + i) * 10;
+            double sparkOffset = FastMath.cos(electricPhase * 2 + i) * 8;
             
-            float alpha = (float)(Math.abs(Math.sin(electricPhase + i * 0.5)) * 0.6 + 0.2);
+            float alpha = (float)(Math.abs(FastMath.sin(electricPhase + i * 0.5)) * 0.6 + 0.2);
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
             
             g.setColor(Color.WHITE);
@@ -141,18 +208,18 @@ public class Projectile {
     
     private void drawGroundImpact(Graphics2D g, int x, int groundY) {
         // Draw energy spreading at ground level
-        float impactAlpha = 0.4f * (float)(Math.sin(pulsePhase * 2) * 0.3 + 0.7);
+        float impactAlpha = 0.4f * (float)(FastMath.sin(pulsePhase * 2) * 0.3 + 0.7);
         
         // Outer impact wave
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, impactAlpha * 0.5f));
         g.setColor(Constants.COLOR_PROJECTILE_OUTER);
-        int waveSize = (int)(20 + Math.sin(pulsePhase) * 5);
+        int waveSize = (int)(20 + FastMath.sin(pulsePhase) * 5);
         g.fillOval(x - waveSize, groundY - 5, waveSize * 2, 10);
         
         // Inner impact
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, impactAlpha));
         g.setColor(Constants.COLOR_PROJECTILE_GLOW);
-        int innerSize = (int)(12 + Math.sin(pulsePhase) * 3);
+        int innerSize = (int)(12 + FastMath.sin(pulsePhase) * 3);
         g.fillOval(x - innerSize, groundY - 3, innerSize * 2, 6);
         
         // Core impact
@@ -163,11 +230,11 @@ public class Projectile {
         // Sparkles
         for (int i = 0; i < 3; i++) {
             double angle = electricPhase + i * Math.PI * 2 / 3;
-            int sparkX = x + (int)(Math.cos(angle) * 15);
-            int sparkY = groundY + (int)(Math.sin(angle) * 3);
+            int sparkX = x + (int)(FastMath.cos(angle) * 15);
+            int sparkY = groundY + (int)(FastMath.sin(angle) * 3);
             
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 
-                          impactAlpha * (float)(Math.sin(pulsePhase + i) * 0.5 + 0.5)));
+                          impactAlpha * (float)(FastMath.sin(pulsePhase + i) * 0.5 + 0.5)));
             g.setColor(Color.WHITE);
             g.fillOval(sparkX - 2, sparkY - 2, 4, 4);
         }
@@ -175,6 +242,40 @@ public class Projectile {
     
     public double getX() { return x; }
     public double getY() { return y; }
+    // Tip height after `step` ticks of the last advance() (0: before it)
+    public double getPathY(int step) { return pathY[step]; }
+    public int getLiveSteps() { return liveSteps; }
+    public double getPulsePhase() { return pulsePhase; }
+    public double getElectricPhase() { return electricPhase; }
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
+    
+    // Popped a bubble on tick `tick` of the last advance(): out of play, and sweeps no further
+    void spend(int tick) {
+        active = false;
+        liveSteps = Math.min(liveSteps, tick + 1);
+        spentAt = tick;
+    }
+    
+    // Takes the last advance() back to where it was after its first `ticks` ticks, for a step
+    // cut short by a death; a pop before then still counts
+    void cut(int ticks) {
+        int spent = spentAt;
+        y = pathY[0];
+        active = startActive;
+        pulsePhase = startPulse;
+        electricPhase = startElectric;
+        liveSteps = 0;
+        spentAt = -1;
+        for (int i = 0; i < ticks; i++) {
+            update();
+            pathY[i + 1] = y;
+            if (active) {
+                liveSteps = i + 1;
+            }
+        }
+        if (spent >= 0 && spent < ticks) {
+            spend(spent);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,316 @@
+package game;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Picks the Java2D pipeline and a rendering quality tier at startup.
+// The pipeline is fixed once the AWT toolkit starts, so select() must run before any
+// window is created. Each candidate pipeline is probed in a short-lived child JVM
+// that checks VolatileImage acceleration and times the game's typical drawing
+// operations; the fastest is applied and the decision cached per JDK and OS.
+//
+// Overrides: -Dbubble.pipeline=auto|default|software|xrender|opengl|d3d
+//            -Dbubble.quality=high|medium|low   -Dbubble.pipeline.reprobe=true
+public class RenderPipeline {
+    public enum Quality { HIGH, MEDIUM, LOW }
+
+    // Probe timing: frames of the sample workload per candidate
+    private static final int PROBE_FRAMES = 120;
+    private static final long PROBE_TIMEOUT_SECONDS = 15;
+    // Sample-workload frame times that still leave headroom at 60 FPS
+    private static final double HIGH_QUALITY_MS = 2.0;
+    private static final double MEDIUM_QUALITY_MS = 6.0;
+
+    private static final File CACHE = new File(System.getProperty("user.home"), ".bubbletrouble/pipeline.properties");
+
+    private static volatile Quality quality = Quality.HIGH;
+    // How select() chose the pipeline, for the F3 overlay and main()
+    private static volatile String decision = "headless";
+    // A bad quality override, for the game to show
+    private static volatile String problem;
+
+    public static Quality getQuality() { return quality; }
+    public static String getDecision() { return decision; }
+    public static String getProblem() { return problem; }
+
+    // Applies the rendering hints for the selected quality tier
+    public static void applyHints(Graphics2D g) {
+        switch (quality) {
+            case HIGH:
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                break;
+            case MEDIUM:
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+                break;
+            default:
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+                break;
+        }
+    }
+
+    // Called first thing in Main, before the toolkit is initialized
+    public static void select() {
+        String requested = System.getProperty("bubble.pipeline", "auto");
+        if (GraphicsEnvironment.isHeadless()) {
+            applyQuality(Quality.HIGH);
+            return;
+        }
+        if (!requested.equals("auto")) {
+            applyPipeline(requested);
+            applyQuality(Quality.HIGH);
+            decision = requested + " (override)";
+            return;
+        }
+
+        String cacheKey = System.getProperty("java.version") + "/" + System.getProperty("os.name");
+        Properties cached = loadCache();
+        // A cache with a pipeline or tier this version doesn't know is probed over
+        String cachedPipeline = cached.getProperty("pipeline");
+        Quality cachedQuality = quality(cached.getProperty("quality"));
+        if (!Boolean.getBoolean("bubble.pipeline.reprobe") && cacheKey.equals(cached.getProperty("key"))
+                && cachedPipeline != null && candidates().contains(cachedPipeline) && cachedQuality != null) {
+            applyPipeline(cachedPipeline);
+            applyQuality(cachedQuality);
+            decision = cachedPipeline + " (cached)";
+            return;
+        }
+
+        String best = "default";
+        double bestMs = Double.MAX_VALUE;
+        for (String candidate : candidates()) {
+            double ms = probeInChild(candidate);
+            if (ms > 0 && ms < bestMs) {
+                bestMs = ms;
+                best = candidate;
+            }
+        }
+        Quality tier = bestMs <= HIGH_QUALITY_MS ? Quality.HIGH
+            : bestMs <= MEDIUM_QUALITY_MS ? Quality.MEDIUM : Quality.LOW;
+        applyPipeline(best);
+        applyQuality(tier);
+        decision = bestMs < Double.MAX_VALUE
+            ? String.format(Locale.ROOT, "%s (probed, %.2f ms a frame)", best, bestMs) : best + " (every probe failed)";
+
+        Properties chosen = new Properties();
+        chosen.setProperty("key", cacheKey);
+        chosen.setProperty("pipeline", best);
+        chosen.setProperty("quality", tier.name());
+        saveCache(chosen);
+    }
+
+    private static void applyQuality(Quality fallback) {
+        String requested = System.getProperty("bubble.quality");
+        Quality override = quality(requested);
+        if (requested != null && override == null) {
+            problem = "Unknown quality " + requested + ", using " + fallback.name().toLowerCase(Locale.ROOT);
+        }
+        quality = override != null ? override : fallback;
+    }
+
+    // The tier a name stands for, or null for a missing or unknown name
+    private static Quality quality(String name) {
+        if (name != null) {
+            for (Quality tier : Quality.values()) {
+                if (tier.name().equalsIgnoreCase(name.trim())) {
+                    return tier;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> candidates() {
+        List<String> list = new ArrayList<>();
+        String os = System.getProperty("os.name").toLowerCase();
+        list.add("default");
+        if (os.contains("linux") || os.contains("bsd")) {
+            list.add("xrender");
+            list.add("opengl");
+            list.add("software");
+        } else if (os.contains("windows")) {
+            list.add("d3d");
+            list.add("opengl");
+            list.add("software");
+        }
+        return list;
+    }
+
+    private static void applyPipeline(String pipeline) {
+        switch (pipeline) {
+            case "software":
+                System.setProperty("sun.java2d.xrender", "false");
+                System.setProperty("sun.java2d.opengl", "false");
+                System.setProperty("sun.java2d.d3d", "false");
+                break;
+            case "xrender":
+                System.setProperty("sun.java2d.xrender", "true");
+                break;
+            case "opengl":
+                System.setProperty("sun.java2d.opengl", "true");
+                break;
+            case "d3d":
+                System.setProperty("sun.java2d.d3d", "true");
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Runs "RenderPipeline probe <pipeline>" in a child JVM; returns ms per sample frame, or -1.
+    // The child writes to a file rather than a pipe, so one that hangs (a broken driver) can't
+    // hold up startup past the timeout
+    private static double probeInChild(String pipeline) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            RenderPipeline.class.getName(), "probe", pipeline);
+        builder.redirectErrorStream(true);
+        File output = null;
+        try {
+            output = File.createTempFile("pipeline-probe", ".txt");
+            builder.redirectOutput(output);
+            Process process = builder.start();
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return -1;
+            }
+            if (process.exitValue() != 0) {
+                return -1;
+            }
+            double result = -1;
+            try (BufferedReader reader = new BufferedReader(new FileReader(output))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("PROBE ")) {
+                        result = Double.parseDouble(line.split(" ")[3]);
+                    }
+                }
+            }
+            return result;
+        } catch (IOException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            if (output != null) {
+                output.delete();
+            }
+        }
+    }
+
+    // Name of the pipeline the running toolkit actually uses
+    public static String detectActive() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return "headless";
+        }
+        String config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getDefaultScreenDevice().getDefaultConfiguration().getClass().getName();
+        if (config.contains(".xr.")) return "xrender";
+        if (config.contains("GLX") || config.contains("WGL") || config.contains("CGL")) return "opengl";
+        if (config.contains("D3D")) return "d3d";
+        if (config.contains("MTL")) return "metal";
+        return "software";
+    }
+
+    // Child side: time gradient fills, translucent ovals and sprite blits on a VolatileImage
+    static double probe() {
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getDefaultScreenDevice().getDefaultConfiguration();
+        VolatileImage target = gc.createCompatibleVolatileImage(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+        BufferedImage sprite = gc.createCompatibleImage(64, 64, Transparency.TRANSLUCENT);
+        Graphics2D sg = sprite.createGraphics();
+        sg.setColor(Constants.COLOR_BUBBLE_MEDIUM);
+        sg.fillOval(0, 0, 64, 64);
+        sg.dispose();
+
+        long best = Long.MAX_VALUE;
+        for (int frame = 0; frame < PROBE_FRAMES; frame++) {
+            if (target.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                target = gc.createCompatibleVolatileImage(Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+            }
+            long start = System.nanoTime();
+            Graphics2D g = target.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setPaint(new GradientPaint(0, 0, Constants.COLOR_BACKGROUND_TOP, 0, Constants.GROUND_LEVEL,
+                Constants.COLOR_BACKGROUND_BOTTOM));
+            g.fillRect(0, 0, Constants.WINDOW_WIDTH, Constants.WINDOW_HEIGHT);
+            g.setColor(Color.WHITE);
+            for (int i = 0; i < 100; i++) {
+                g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f + (i % 7) * 0.1f));
+                g.fillOval((i * 37) % 760, (i * 53) % 520, 24 + i % 40, 24 + i % 40);
+            }
+            g.setComposite(AlphaComposite.SrcOver);
+            for (int i = 0; i < 100; i++) {
+                g.drawImage(sprite, (i * 71) % 736, (i * 29) % 536, null);
+            }
+            g.dispose();
+            // Force the work to complete before stopping the clock
+            target.getSnapshot().getRGB(0, 0);
+            long elapsed = System.nanoTime() - start;
+            if (frame > PROBE_FRAMES / 4) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best / 1e6;
+    }
+
+    private static Properties loadCache() {
+        Properties properties = new Properties();
+        if (CACHE.exists()) {
+            try (FileReader reader = new FileReader(CACHE)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                // Probes again
+            }
+        }
+        return properties;
+    }
+
+    private static void saveCache(Properties chosen) {
+        CACHE.getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(CACHE)) {
+            chosen.store(writer, "Bubble Trouble render pipeline decision");
+        } catch (IOException e) {
+            // Probes again next start
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals("probe")) {
+            applyPipeline(args[1]);
+            double ms = probe();
+            VolatileImage check = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleVolatileImage(16, 16);
+            System.out.printf(Locale.ROOT, "PROBE %s %b %.4f%n", detectActive(), check.getCapabilities().isAccelerated(), ms);
+            System.exit(0);
+        }
+        select();
+        System.out.println("Render pipeline: " + decision + ", quality " + quality);
+        if (problem != null) {
+            System.out.println(problem);
+        }
+        System.out.println("Active pipeline: " + detectActive() + ", quality " + quality);
+        System.exit(0);
+    }
+}
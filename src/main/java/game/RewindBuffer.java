@@ -0,0 +1,638 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Practice-mode rewind: a bounded history of past GameEngine states in one preallocated
+// byte arena. Every keyframeInterval ticks a full keyframe is written; in between, each
+// tick stores float deltas of motion against the previous state. When bubbles or projectiles
+// appear or disappear the tick is a reshaping delta instead: each bubble names the bubble it
+// was in the previous state and stores its motion delta, and only new bubbles and the
+// projectiles are stored whole, so a pop costs a few bytes rather than a keyframe.
+// When the arena or the tick limit is full, the oldest keyframe and its deltas are dropped,
+// so memory use is fixed by the configuration, not by how long the session runs.
+public class RewindBuffer {
+    public static final int DEFAULT_SECONDS = 10;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+    public static final int DEFAULT_KILOBYTES = 1024;
+
+    private static final byte KEYFRAME = 1;
+    private static final byte DELTA = 0;
+    private static final byte RESHAPE = 2;
+    // How far a bubble may move in a tick and still be paired with its previous self, and how
+    // many previous bubbles are tried; an unpaired bubble is only stored whole, never wrong
+    private static final double MATCH_DISTANCE = 64;
+    private static final int MATCH_WINDOW = 8;
+    private static final int DELTA_HEADER_BYTES = 1 + 5 * 4 + 1 + 4 + 1 + 4 + 4;
+
+    private final ByteBuffer arena;
+    private final int keyframeInterval;
+    // Ring of records in tick order, oldest at head
+    private final int[] offsets;
+    private final int[] lengths;
+    private final boolean[] keyframes;
+    private int head, count;
+    private int writePosition;
+    private int sinceKeyframe;
+    // State after the newest record as a reader would rebuild it. Deltas are taken against
+    // this rather than the live engine, so float rounding never accumulates
+    private final Frame last = new Frame();
+    private final Frame current = new Frame();
+    private final Frame scratch = new Frame();
+    // The state a reshaping delta is applied to, while the frame it rebuilds is overwritten
+    private final Frame previous = new Frame();
+    // Record shown while rewinding (0 = oldest), or -1 when live
+    private int cursor = -1;
+
+    public RewindBuffer(int seconds, int keyframeInterval, int kilobytes) {
+        int maxTicks = Math.max(1, seconds * GameEngine.TICKS_PER_SECOND);
+        this.arena = ByteBuffer.allocate(kilobytes * 1024);
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.offsets = new int[maxTicks];
+        this.lengths = new int[maxTicks];
+        this.keyframes = new boolean[maxTicks];
+    }
+
+    // -Dbubble.rewind.seconds, -Dbubble.rewind.keyframe (ticks) and -Dbubble.rewind.kb
+    public static RewindBuffer fromProperties() {
+        return new RewindBuffer(
+            Integer.getInteger("bubble.rewind.seconds", DEFAULT_SECONDS),
+            Integer.getInteger("bubble.rewind.keyframe", DEFAULT_KEYFRAME_INTERVAL),
+            Integer.getInteger("bubble.rewind.kb", DEFAULT_KILOBYTES));
+    }
+
+    // Call after every update() while playing; resumes first if the player was rewinding
+    public void record(GameEngine engine) {
+        if (cursor >= 0) {
+            resume();
+        }
+        current.capture(engine);
+        // A reshape stores each bubble's index in the last frame as a short
+        boolean keyframe = count == 0 || sinceKeyframe + 1 >= keyframeInterval || current.level != last.level
+            || last.bubbleCount > Short.MAX_VALUE;
+        boolean reshape = !keyframe && !current.sameShape(last);
+        int length = keyframe ? current.keyframeBytes() : reshape ? current.matchTo(last) : current.deltaBytes();
+        if (length > arena.capacity()) {
+            clear(); // a single state doesn't fit; keep no history rather than a broken one
+            return;
+        }
+        if (count == offsets.length) {
+            evictOldest();
+        }
+        if (writePosition + length > arena.capacity()) {
+            writePosition = 0;
+        }
+        while (count > 0 && overlapsOldest(writePosition, length)) {
+            evictOldest();
+        }
+        if (count == 0 && !keyframe) {
+            // Evicting made room by dropping the state this delta was based on
+            keyframe = true;
+            reshape = false;
+            length = current.keyframeBytes();
+            writePosition = 0;
+        }
+
+        arena.position(writePosition);
+        if (keyframe) {
+            writeKeyframe(current);
+            last.copyFrom(current);
+            sinceKeyframe = 0;
+        } else if (reshape) {
+            writeReshape(current, last);
+            sinceKeyframe++;
+        } else {
+            writeDelta(current, last);
+            sinceKeyframe++;
+        }
+        int slot = (head + count) % offsets.length;
+        offsets[slot] = writePosition;
+        lengths[slot] = length;
+        keyframes[slot] = keyframe;
+        count++;
+        writePosition += length;
+    }
+
+    // Moves the shown state back by ticks and restores it into the engine.
+    // Returns false once the oldest recorded state is reached.
+    public boolean stepBack(GameEngine engine, int ticks) {
+        if (count == 0) {
+            return false;
+        }
+        if (cursor < 0) {
+            cursor = count - 1;
+        }
+        boolean moved = cursor > 0;
+        cursor = Math.max(0, cursor - ticks);
+        decode(cursor, scratch);
+        engine.restore(scratch);
+        return moved;
+    }
+
+    // Drops everything newer than the shown state so recording continues from it
+    public void resume() {
+        if (cursor < 0) {
+            return;
+        }
+        decode(cursor, last);
+        count = cursor + 1;
+        int slot = (head + cursor) % offsets.length;
+        writePosition = offsets[slot] + lengths[slot];
+        sinceKeyframe = 0;
+        for (int i = cursor; i > 0 && !keyframes[(head + i) % offsets.length]; i--) {
+            sinceKeyframe++;
+        }
+        cursor = -1;
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        writePosition = 0;
+        cursor = -1;
+    }
+
+    public boolean isRewinding() { return cursor >= 0; }
+    public int getRecordedTicks() { return count; }
+    public int getCapacityBytes() { return arena.capacity(); }
+    // Ticks between the shown state and the newest one
+    public int getRewoundTicks() { return cursor < 0 ? 0 : count - 1 - cursor; }
+
+    public int getUsedBytes() {
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            used += lengths[(head + i) % offsets.length];
+        }
+        return used;
+    }
+
+    private boolean overlapsOldest(int position, int length) {
+        int start = offsets[head];
+        return start < position + length && start + lengths[head] > position;
+    }
+
+    // Drops the oldest record and any deltas that depended on it
+    private void evictOldest() {
+        do {
+            head = (head + 1) % offsets.length;
+            count--;
+            if (cursor >= 0) {
+                cursor = Math.max(0, cursor - 1);
+            }
+        } while (count > 0 && !keyframes[head]);
+    }
+
+    // Rebuilds record index (0 = oldest) from the nearest keyframe at or before it
+    private void decode(int index, Frame frame) {
+        int key = index;
+        while (!keyframes[(head + key) % offsets.length]) {
+            key--;
+        }
+        arena.position(offsets[(head + key) % offsets.length]);
+        readKeyframe(frame);
+        for (int i = key + 1; i <= index; i++) {
+            arena.position(offsets[(head + i) % offsets.length]);
+            if (arena.get(arena.position()) == RESHAPE) {
+                readReshape(frame);
+            } else {
+                readDelta(frame);
+            }
+        }
+    }
+
+    private void writeKeyframe(Frame f) {
+        arena.put(KEYFRAME);
+        arena.putLong(f.ticks);
+        arena.putInt(f.level).putInt(f.lives).putInt(f.score).putInt(f.timeRemaining).putInt(f.comboMultiplier);
+        arena.put(f.flags());
+        arena.putDouble(f.playerX).putInt(f.playerDirection).putDouble(f.playerWalkCycle).putDouble(f.playerBobOffset);
+        arena.putInt(f.bubbleCount);
+        for (int i = 0; i < f.bubbleCount; i++) {
+            writeBubble(f, i);
+        }
+        writeProjectiles(f);
+    }
+
+    private void writeBubble(Frame f, int i) {
+        arena.putDouble(f.bubbleX[i]).putDouble(f.bubbleY[i]);
+        arena.putDouble(f.bubbleVelocityX[i]).putDouble(f.bubbleVelocityY[i]);
+        arena.putDouble(f.bubbleWobble[i]).putDouble(f.bubbleWobbleSpeed[i]);
+        arena.putFloat(f.bubblePulse[i]).putInt(f.bubbleSize[i]);
+    }
+
+    private void writeProjectiles(Frame f) {
+        arena.putInt(f.projectileCount);
+        for (int i = 0; i < f.projectileCount; i++) {
+            arena.putDouble(f.projectileX[i]).putDouble(f.projectileY[i]);
+            arena.putDouble(f.projectilePulse[i]).putDouble(f.projectileElectric[i]);
+        }
+    }
+
+    private void readKeyframe(Frame f) {
+        arena.get(); // KEYFRAME
+        f.ticks = arena.getLong();
+        f.level = arena.getInt();
+        f.lives = arena.getInt();
+        f.score = arena.getInt();
+        f.timeRemaining = arena.getInt();
+        f.comboMultiplier = arena.getInt();
+        f.setFlags(arena.get());
+        f.playerX = arena.getDouble();
+        f.playerDirection = arena.getInt();
+        f.playerWalkCycle = arena.getDouble();
+        f.playerBobOffset = arena.getDouble();
+        f.ensureBubbles(arena.getInt());
+        for (int i = 0; i < f.bubbleCount; i++) {
+            readBubble(f, i);
+        }
+        readProjectiles(f);
+    }
+
+    private void readBubble(Frame f, int i) {
+        f.bubbleX[i] = arena.getDouble();
+        f.bubbleY[i] = arena.getDouble();
+        f.bubbleVelocityX[i] = arena.getDouble();
+        f.bubbleVelocityY[i] = arena.getDouble();
+        f.bubbleWobble[i] = arena.getDouble();
+        f.bubbleWobbleSpeed[i] = arena.getDouble();
+        f.bubblePulse[i] = arena.getFloat();
+        f.bubbleSize[i] = arena.getInt();
+    }
+
+    private void readProjectiles(Frame f) {
+        f.ensureProjectiles(arena.getInt());
+        for (int i = 0; i < f.projectileCount; i++) {
+            f.projectileX[i] = arena.getDouble();
+            f.projectileY[i] = arena.getDouble();
+            f.projectilePulse[i] = arena.getDouble();
+            f.projectileElectric[i] = arena.getDouble();
+        }
+    }
+
+    // Writes f as deltas against base, advancing base exactly as readDelta will.
+    // Animation phases are cosmetic and stay at their keyframe values
+    private void writeDelta(Frame f, Frame base) {
+        arena.put(DELTA);
+        writeDeltaHeader(f, base);
+        for (int i = 0; i < f.bubbleCount; i++) {
+            float dx = delta(f.bubbleX[i], base.bubbleX[i]);
+            float dy = delta(f.bubbleY[i], base.bubbleY[i]);
+            float dvx = delta(f.bubbleVelocityX[i], base.bubbleVelocityX[i]);
+            float dvy = delta(f.bubbleVelocityY[i], base.bubbleVelocityY[i]);
+            arena.putFloat(dx).putFloat(dy).putFloat(dvx).putFloat(dvy);
+            base.bubbleX[i] += dx;
+            base.bubbleY[i] += dy;
+            base.bubbleVelocityX[i] += dvx;
+            base.bubbleVelocityY[i] += dvy;
+        }
+        for (int i = 0; i < f.projectileCount; i++) {
+            float dy = delta(f.projectileY[i], base.projectileY[i]);
+            arena.putFloat(dy);
+            base.projectileY[i] += dy;
+        }
+    }
+
+    // Writes f as a reshaping delta against base, using the pairing from f.matchTo(base), and
+    // rebuilds base exactly as readReshape will
+    private void writeReshape(Frame f, Frame base) {
+        arena.put(RESHAPE);
+        writeDeltaHeader(f, base);
+        previous.copyFrom(base);
+        base.ensureBubbles(f.bubbleCount);
+        arena.putInt(f.bubbleCount);
+        for (int i = 0; i < f.bubbleCount; i++) {
+            int k = f.baseIndex[i];
+            arena.putShort((short) k);
+            if (k < 0) {
+                writeBubble(f, i);
+                base.bubbleX[i] = f.bubbleX[i];
+                base.bubbleY[i] = f.bubbleY[i];
+                base.bubbleVelocityX[i] = f.bubbleVelocityX[i];
+                base.bubbleVelocityY[i] = f.bubbleVelocityY[i];
+                base.bubbleWobble[i] = f.bubbleWobble[i];
+                base.bubbleWobbleSpeed[i] = f.bubbleWobbleSpeed[i];
+                base.bubblePulse[i] = f.bubblePulse[i];
+                base.bubbleSize[i] = f.bubbleSize[i];
+                continue;
+            }
+            float dx = delta(f.bubbleX[i], previous.bubbleX[k]);
+            float dy = delta(f.bubbleY[i], previous.bubbleY[k]);
+            float dvx = delta(f.bubbleVelocityX[i], previous.bubbleVelocityX[k]);
+            float dvy = delta(f.bubbleVelocityY[i], previous.bubbleVelocityY[k]);
+            arena.putFloat(dx).putFloat(dy).putFloat(dvx).putFloat(dvy);
+            moveBubble(base, i, previous, k);
+            base.bubbleX[i] += dx;
+            base.bubbleY[i] += dy;
+            base.bubbleVelocityX[i] += dvx;
+            base.bubbleVelocityY[i] += dvy;
+        }
+        writeProjectiles(f);
+        base.ensureProjectiles(f.projectileCount);
+        System.arraycopy(f.projectileX, 0, base.projectileX, 0, f.projectileCount);
+        System.arraycopy(f.projectileY, 0, base.projectileY, 0, f.projectileCount);
+        System.arraycopy(f.projectilePulse, 0, base.projectilePulse, 0, f.projectileCount);
+        System.arraycopy(f.projectileElectric, 0, base.projectileElectric, 0, f.projectileCount);
+    }
+
+    private void readReshape(Frame f) {
+        arena.get(); // RESHAPE
+        readDeltaHeader(f);
+        previous.copyFrom(f);
+        f.ensureBubbles(arena.getInt());
+        for (int i = 0; i < f.bubbleCount; i++) {
+            int k = arena.getShort();
+            if (k < 0) {
+                readBubble(f, i);
+                continue;
+            }
+            moveBubble(f, i, previous, k);
+            f.bubbleX[i] += arena.getFloat();
+            f.bubbleY[i] += arena.getFloat();
+            f.bubbleVelocityX[i] += arena.getFloat();
+            f.bubbleVelocityY[i] += arena.getFloat();
+        }
+        readProjectiles(f);
+    }
+
+    private static void moveBubble(Frame to, int i, Frame from, int k) {
+        to.bubbleX[i] = from.bubbleX[k];
+        to.bubbleY[i] = from.bubbleY[k];
+        to.bubbleVelocityX[i] = from.bubbleVelocityX[k];
+        to.bubbleVelocityY[i] = from.bubbleVelocityY[k];
+        to.bubbleWobble[i] = from.bubbleWobble[k];
+        to.bubbleWobbleSpeed[i] = from.bubbleWobbleSpeed[k];
+        to.bubblePulse[i] = from.bubblePulse[k];
+        to.bubbleSize[i] = from.bubbleSize[k];
+    }
+
+    // Everything but bubbles and projectiles, shared by both kinds of delta
+    private void writeDeltaHeader(Frame f, Frame base) {
+        arena.putInt((int) (f.ticks - base.ticks));
+        arena.putInt(f.lives).putInt(f.score).putInt(f.timeRemaining).putInt(f.comboMultiplier);
+        arena.put(f.flags());
+        arena.putFloat(delta(f.playerX, base.playerX));
+        arena.put((byte) f.playerDirection).putFloat((float) f.playerWalkCycle).putFloat((float) f.playerBobOffset);
+        base.ticks = f.ticks;
+        base.lives = f.lives;
+        base.score = f.score;
+        base.timeRemaining = f.timeRemaining;
+        base.comboMultiplier = f.comboMultiplier;
+        base.setFlags(f.flags());
+        base.playerX += delta(f.playerX, base.playerX);
+        base.playerDirection = f.playerDirection;
+        base.playerWalkCycle = (float) f.playerWalkCycle;
+        base.playerBobOffset = (float) f.playerBobOffset;
+    }
+
+    private void readDelta(Frame f) {
+        arena.get(); // DELTA
+        readDeltaHeader(f);
+        for (int i = 0; i < f.bubbleCount; i++) {
+            f.bubbleX[i] += arena.getFloat();
+            f.bubbleY[i] += arena.getFloat();
+            f.bubbleVelocityX[i] += arena.getFloat();
+            f.bubbleVelocityY[i] += arena.getFloat();
+        }
+        for (int i = 0; i < f.projectileCount; i++) {
+            f.projectileY[i] += arena.getFloat();
+        }
+    }
+
+    private void readDeltaHeader(Frame f) {
+        f.ticks += arena.getInt();
+        f.lives = arena.getInt();
+        f.score = arena.getInt();
+        f.timeRemaining = arena.getInt();
+        f.comboMultiplier = arena.getInt();
+        f.setFlags(arena.get());
+        f.playerX += arena.getFloat();
+        f.playerDirection = arena.get();
+        f.playerWalkCycle = arena.getFloat();
+        f.playerBobOffset = arena.getFloat();
+    }
+
+    private static float delta(double value, double base) {
+        return (float) (value - base);
+    }
+
+    // One decoded engine state; arrays grow to the largest bubble count seen and are reused
+    static class Frame {
+        long ticks;
+        int level, lives, score, timeRemaining, comboMultiplier;
+        boolean gameOver, levelComplete;
+        double playerX, playerWalkCycle, playerBobOffset;
+        int playerDirection;
+        int bubbleCount;
+        double[] bubbleX = new double[16], bubbleY = new double[16];
+        double[] bubbleVelocityX = new double[16], bubbleVelocityY = new double[16];
+        double[] bubbleWobble = new double[16], bubbleWobbleSpeed = new double[16];
+        float[] bubblePulse = new float[16];
+        int[] bubbleSize = new int[16];
+        // Writer side: the bubble each one was in the previous state, or -1 (matchTo())
+        int[] baseIndex = new int[16];
+        int projectileCount;
+        double[] projectileX = new double[2], projectileY = new double[2];
+        double[] projectilePulse = new double[2], projectileElectric = new double[2];
+
+        void capture(GameEngine engine) {
+            ticks = engine.getTicks();
+            level = engine.getLevel();
+            lives = engine.getLives();
+            score = engine.getScore();
+            timeRemaining = engine.getTimeRemaining();
+            comboMultiplier = engine.getComboMultiplier();
+            gameOver = engine.isGameOver();
+            levelComplete = engine.isLevelComplete();
+            Player player = engine.getPlayer();
+            playerX = player.getX();
+            playerDirection = player.getDirection();
+            playerWalkCycle = player.getWalkCycle();
+            playerBobOffset = player.getBobOffset();
+
+            List<Bubble> bubbles = engine.getBubbles();
+            ensureBubbles(bubbles.size());
+            for (int i = 0; i < bubbleCount; i++) {
+                Bubble b = bubbles.get(i);
+                bubbleX[i] = b.getX();
+                bubbleY[i] = b.getY();
+                bubbleVelocityX[i] = b.getVelocityX();
+                bubbleVelocityY[i] = b.getVelocityY();
+                bubbleWobble[i] = b.getWobbleOffset();
+                bubbleWobbleSpeed[i] = b.getWobbleSpeed();
+                bubblePulse[i] = b.getPulsePhase();
+                bubbleSize[i] = b.getSize();
+            }
+            List<Projectile> projectiles = engine.getProjectiles();
+            ensureProjectiles(projectiles.size());
+            for (int i = 0; i < projectileCount; i++) {
+                Projectile p = projectiles.get(i);
+                projectileX[i] = p.getX();
+                projectileY[i] = p.getY();
+                projectilePulse[i] = p.getPulsePhase();
+                projectileElectric[i] = p.getElectricPhase();
+            }
+        }
+
+        // True if other has the same level, bubble sizes and projectiles, so a delta can describe this
+        boolean sameShape(Frame other) {
+            if (level != other.level || bubbleCount != other.bubbleCount || projectileCount != other.projectileCount) {
+                return false;
+            }
+            for (int i = 0; i < bubbleCount; i++) {
+                if (bubbleSize[i] != other.bubbleSize[i]) return false;
+            }
+            for (int i = 0; i < projectileCount; i++) {
+                if (projectileX[i] != other.projectileX[i]) return false;
+            }
+            return true;
+        }
+
+        // Pairs each bubble with the one it was in base. Survivors keep their order and new
+        // bubbles come after them, so a short forward scan finds each one. Returns the size
+        // of the reshaping delta
+        int matchTo(Frame base) {
+            int next = 0, paired = 0;
+            for (int i = 0; i < bubbleCount; i++) {
+                baseIndex[i] = -1;
+                for (int k = next; k < base.bubbleCount && k < next + MATCH_WINDOW; k++) {
+                    if (base.bubbleSize[k] == bubbleSize[i] && Math.abs(base.bubbleX[k] - bubbleX[i]) <= MATCH_DISTANCE
+                            && Math.abs(base.bubbleY[k] - bubbleY[i]) <= MATCH_DISTANCE) {
+                        baseIndex[i] = k;
+                        next = k + 1;
+                        paired++;
+                        break;
+                    }
+                }
+            }
+            return DELTA_HEADER_BYTES + 4 + bubbleCount * 2 + paired * 16 + (bubbleCount - paired) * 56
+                + 4 + projectileCount * 32;
+        }
+
+        int keyframeBytes() { return 1 + 8 + 5 * 4 + 1 + 8 + 4 + 8 + 8 + 4 + bubbleCount * 56 + 4 + projectileCount * 32; }
+        int deltaBytes() { return DELTA_HEADER_BYTES + bubbleCount * 16 + projectileCount * 4; }
+
+        byte flags() { return (byte) ((gameOver ? 1 : 0) | (levelComplete ? 2 : 0)); }
+
+        void setFlags(byte flags) {
+            gameOver = (flags & 1) != 0;
+            levelComplete = (flags & 2) != 0;
+        }
+
+        void ensureBubbles(int n) {
+            bubbleCount = n;
+            if (n > bubbleX.length) {
+                int capacity = Math.max(n, bubbleX.length * 2);
+                bubbleX = Arrays.copyOf(bubbleX, capacity);
+                bubbleY = Arrays.copyOf(bubbleY, capacity);
+                bubbleVelocityX = Arrays.copyOf(bubbleVelocityX, capacity);
+                bubbleVelocityY = Arrays.copyOf(bubbleVelocityY, capacity);
+                bubbleWobble = Arrays.copyOf(bubbleWobble, capacity);
+                bubbleWobbleSpeed = Arrays.copyOf(bubbleWobbleSpeed, capacity);
+                bubblePulse = Arrays.copyOf(bubblePulse, capacity);
+                bubbleSize = Arrays.copyOf(bubbleSize, capacity);
+                baseIndex = Arrays.copyOf(baseIndex, capacity);
+            }
+        }
+
+        void ensureProjectiles(int n) {
+            projectileCount = n;
+            if (n > projectileX.length) {
+                int capacity = Math.max(n, projectileX.length * 2);
+                projectileX = Arrays.copyOf(projectileX, capacity);
+                projectileY = Arrays.copyOf(projectileY, capacity);
+                projectilePulse = Arrays.copyOf(projectilePulse, capacity);
+                projectileElectric = Arrays.copyOf(projectileElectric, capacity);
+            }
+        }
+
+        void copyFrom(Frame other) {
+            ticks = other.ticks;
+            level = other.level;
+            lives = other.lives;
+            score = other.score;
+            timeRemaining = other.timeRemaining;
+            comboMultiplier = other.comboMultiplier;
+            gameOver = other.gameOver;
+            levelComplete = other.levelComplete;
+            playerX = other.playerX;
+            playerDirection = other.playerDirection;
+            playerWalkCycle = other.playerWalkCycle;
+            playerBobOffset = other.playerBobOffset;
+            ensureBubbles(other.bubbleCount);
+            System.arraycopy(other.bubbleX, 0, bubbleX, 0, bubbleCount);
+            System.arraycopy(other.bubbleY, 0, bubbleY, 0, bubbleCount);
+            System.arraycopy(other.bubbleVelocityX, 0, bubbleVelocityX, 0, bubbleCount);
+            System.arraycopy(other.bubbleVelocityY, 0, bubbleVelocityY, 0, bubbleCount);
+            System.arraycopy(other.bubbleWobble, 0, bubbleWobble, 0, bubbleCount);
+            System.arraycopy(other.bubbleWobbleSpeed, 0, bubbleWobbleSpeed, 0, bubbleCount);
+            System.arraycopy(other.bubblePulse, 0, bubblePulse, 0, bubbleCount);
+            System.arraycopy(other.bubbleSize, 0, bubbleSize, 0, bubbleCount);
+            ensureProjectiles(other.projectileCount);
+            System.arraycopy(other.projectileX, 0, projectileX, 0, projectileCount);
+            System.arraycopy(other.projectileY, 0, projectileY, 0, projectileCount);
+            System.arraycopy(other.projectilePulse, 0, projectilePulse, 0, projectileCount);
+            System.arraycopy(other.projectileElectric, 0, projectileElectric, 0, projectileCount);
+        }
+    }
+
+    // Records a scripted session, then checks that rewinding reproduces every recorded tick
+    // and reports memory per tick and rewind latency. The default scene, a pop and a shot
+    // every few ticks, is the worst case the defaults are sized for: it must keep the whole
+    // DEFAULT_SECONDS window. Exits with status 1 on a mismatch or a short window.
+    // Run: java -cp bin game.RewindBuffer [scene]
+    public static void main(String[] args) {
+        BenchmarkScene scene = BenchmarkScene.byName(args.length > 0 ? args[0] : "max-split-cascade");
+        GameEngine engine = scene.create(true);
+        RewindBuffer rewind = new RewindBuffer(DEFAULT_SECONDS, DEFAULT_KEYFRAME_INTERVAL, DEFAULT_KILOBYTES);
+        int ticks = 1500;
+        Frame[] expected = new Frame[ticks];
+        for (int t = 0; t < ticks; t++) {
+            scene.step(engine, t);
+            rewind.record(engine);
+            expected[t] = new Frame();
+            expected[t].capture(engine);
+        }
+        double window = rewind.getRecordedTicks() / (double) GameEngine.TICKS_PER_SECOND;
+        System.out.printf("%d ticks (%.1f s) held in %d of %d KB (%.0f bytes/tick)%n", rewind.getRecordedTicks(),
+            window, rewind.getUsedBytes() / 1024, rewind.getCapacityBytes() / 1024,
+            (double) rewind.getUsedBytes() / rewind.getRecordedTicks());
+        if (args.length == 0 && window < DEFAULT_SECONDS) {
+            System.out.println("FAIL: the rewind window is shorter than " + DEFAULT_SECONDS + " s");
+            System.exit(1);
+        }
+
+        double worst = 0;
+        long start = System.nanoTime();
+        int steps = 0;
+        while (rewind.stepBack(engine, 1)) {
+            steps++;
+            Frame want = expected[(int) engine.getTicks() - 1];
+            Frame got = new Frame();
+            got.capture(engine);
+            if (!got.sameShape(want) || got.score != want.score || got.lives != want.lives) {
+                System.out.println("FAIL: tick " + engine.getTicks() + " restored the wrong state");
+                System.exit(1);
+            }
+            for (int i = 0; i < got.bubbleCount; i++) {
+                worst = Math.max(worst, Math.abs(got.bubbleX[i] - want.bubbleX[i]));
+                worst = Math.max(worst, Math.abs(got.bubbleY[i] - want.bubbleY[i]));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("rewound %d ticks, %.1f us per step, worst position error %.2g px%n",
+            steps, elapsed / 1e3 / Math.max(1, steps), worst);
+        if (worst > 1e-3) {
+            System.out.println("FAIL: position error too large");
+            System.exit(1);
+        }
+
+        // Resume from the oldest state and play on
+        rewind.resume();
+        for (int t = 0; t < 120; t++) {
+            scene.step(engine, t);
+            rewind.record(engine);
+        }
+        System.out.println("resumed at tick " + (engine.getTicks() - 120) + ", " + rewind.getRecordedTicks() + " ticks recorded");
+    }
+}
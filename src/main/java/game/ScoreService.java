@@ -0,0 +1,192 @@
+package game;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local leaderboard service. POST /validate takes a submission (see encode()), replays its
+// input log on a headless engine built from its seed, and accepts the score only if the replay
+// ends the game with exactly that score. Accepted scores go to the ScoreStore; GET /top lists it.
+//
+// Each request runs on its own virtual thread where the JDK has them (21+), otherwise on a
+// cached platform pool. At most `workers` replays run at once and at most `queued` more wait
+// for a slot; anything beyond that gets 503 straight away so clients back off.
+// Run: java -cp bin game.ScoreService [port] [workers] [queued]
+public class ScoreService {
+    // An hour of play at 60 updates per second
+    public static final long MAX_UPDATES = 60L * 60 * GameEngine.TICKS_PER_SECOND;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final ScoreStore store;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+
+    public ScoreService(int port, int workers, int queued, ScoreStore store) throws IOException {
+        this.store = store;
+        this.running = new Semaphore(workers);
+        this.admitted = new Semaphore(workers + queued);
+        this.executor = perTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        server.createContext("/validate", this::validate);
+        server.createContext("/top", this::top);
+        server.setExecutor(executor);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when this JDK has it, looked up reflectively so
+    // the game still builds and runs on 17
+    private static ExecutorService perTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public void start() { server.start(); }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+    public long getAccepted() { return accepted.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getBusy() { return busy.get(); }
+
+    // Submission body: seed, claimed score, player name (UTF-8, length-prefixed), input log
+    public static byte[] encode(long seed, int score, String name, InputLog log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(seed);
+        out.writeInt(score);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(nameBytes.length);
+        out.write(nameBytes);
+        log.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // The engine as the submitted run left it; particles and shake are skipped, gameplay is not
+    public static GameEngine replay(long seed, InputLog log) {
+        GameEngine engine = new GameEngine(seed, true);
+        engine.setEffectsEnabled(false);
+        log.replay(engine);
+        return engine;
+    }
+
+    private void validate(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "POST a submission\n");
+            return;
+        }
+        if (!admitted.tryAcquire()) {
+            busy.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "busy\n");
+            return;
+        }
+        try {
+            long seed;
+            int claimed;
+            String name;
+            InputLog log;
+            try (InputStream body = exchange.getRequestBody()) {
+                DataInputStream in = new DataInputStream(body);
+                seed = in.readLong();
+                claimed = in.readInt();
+                int nameLength = in.readUnsignedShort();
+                if (nameLength > 64) {
+                    throw new IOException("name too long");
+                }
+                byte[] nameBytes = new byte[nameLength];
+                in.readFully(nameBytes);
+                name = new String(nameBytes, StandardCharsets.UTF_8);
+                log = InputLog.read(in, MAX_UPDATES);
+            } catch (IOException e) {
+                respond(exchange, 400, "malformed submission: " + e.getMessage() + "\n");
+                return;
+            }
+
+            GameEngine engine;
+            running.acquireUninterruptibly();
+            try {
+                engine = replay(seed, log);
+            } finally {
+                running.release();
+            }
+
+            if (!engine.isGameOver()) {
+                rejected.incrementAndGet();
+                respond(exchange, 422, "rejected: the log ends before the game is over\n");
+            } else if (engine.getScore() != claimed) {
+                rejected.incrementAndGet();
+                respond(exchange, 422, "rejected: replay scored " + engine.getScore() + ", claimed " + claimed + "\n");
+            } else {
+                accepted.incrementAndGet();
+                if (store != null) {
+                    store.submit(new ScoreStore.Entry(name, claimed, engine.getLevel(), seed, System.currentTimeMillis()));
+                }
+                respond(exchange, 200, "accepted " + claimed + "\n");
+            }
+        } finally {
+            admitted.release();
+        }
+    }
+
+    private void top(HttpExchange exchange) throws IOException {
+        StringBuilder text = new StringBuilder();
+        if (store != null) {
+            for (ScoreStore.Entry entry : store.top()) {
+                text.append(entry.getScore()).append(' ').append(entry.getName()).append('\n');
+            }
+        }
+        respond(exchange, 200, text.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8642;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queued = args.length > 2 ? Integer.parseInt(args[2]) : workers * 16;
+        ScoreService service = new ScoreService(port, workers, queued, ScoreStore.shared());
+        service.start();
+        System.out.println("Score service on http://localhost:" + service.getPort() + "/validate ("
+            + workers + " workers, " + queued + " queued, "
+            + (hasVirtualThreads() ? "virtual threads" : "platform threads") + ")");
+    }
+}
@@ -0,0 +1,132 @@
+package game;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fires recorded runs at a ScoreService and reports validations/sec and latency percentiles.
+// Every tenth submission claims a score it didn't reach; the test fails if one of those is
+// accepted or an honest one is rejected. Starts a local service unless a URL is given.
+// Run: java -cp bin game.ScoreServiceLoadTest [submissions] [clients] [url]
+public class ScoreServiceLoadTest {
+    private static final int RUNS = 32;
+
+    public static void main(String[] args) throws Exception {
+        int submissions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        ScoreService local = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            int workers = Runtime.getRuntime().availableProcessors();
+            local = new ScoreService(0, workers, workers * 16, null);
+            local.start();
+            url = "http://127.0.0.1:" + local.getPort() + "/validate";
+            System.out.println("Local service: " + workers + " workers, " + (workers * 16) + " queued, "
+                + (ScoreService.hasVirtualThreads() ? "virtual threads" : "platform threads"));
+        }
+
+        // Scripted sessions played to game over, recorded as they go
+        byte[][] honest = new byte[RUNS][];
+        byte[][] forged = new byte[RUNS][];
+        long updates = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long seed = 1000 + run;
+            GameEngine engine = new GameEngine(seed, true);
+            engine.setEffectsEnabled(false);
+            InputLog log = new InputLog();
+            while (!engine.isGameOver()) {
+                log.step(engine, botInput(engine));
+            }
+            updates += log.getUpdates();
+            honest[run] = ScoreService.encode(seed, engine.getScore(), "bot" + run, log);
+            forged[run] = ScoreService.encode(seed, engine.getScore() + 100, "bot" + run, log);
+        }
+        System.out.printf("%d recorded runs, %d updates each on average%n", RUNS, updates / RUNS);
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI target = URI.create(url);
+        long[] latencies = new long[submissions];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong accepted = new AtomicLong(), rejected = new AtomicLong(), busy = new AtomicLong(), wrong = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        Future<?>[] workers = new Future<?>[clients];
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            workers[c] = pool.submit(() -> {
+                for (int i = next.getAndIncrement(); i < submissions; i = next.getAndIncrement()) {
+                    boolean forgedRun = i % 10 == 9;
+                    byte[] body = forgedRun ? forged[i % RUNS] : honest[i % RUNS];
+                    HttpRequest request = HttpRequest.newBuilder(target)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+                    // From the first attempt, so time spent backing off from 503s counts
+                    long t0 = System.nanoTime();
+                    while (true) {
+                        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() == 503) {
+                            // Back-pressure: wait a little and try again
+                            busy.incrementAndGet();
+                            Thread.sleep(5);
+                            continue;
+                        }
+                        latencies[i] = System.nanoTime() - t0;
+                        if (response.statusCode() == 200) {
+                            accepted.incrementAndGet();
+                            if (forgedRun) wrong.incrementAndGet();
+                        } else if (response.statusCode() == 422) {
+                            rejected.incrementAndGet();
+                            if (!forgedRun) wrong.incrementAndGet();
+                        } else {
+                            throw new IOException("HTTP " + response.statusCode() + ": " + response.body());
+                        }
+                        break;
+                    }
+                }
+                return null;
+            });
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        if (local != null) {
+            local.stop();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%d validations in %.2f s with %d clients: %.0f validations/s%n",
+            submissions, seconds, clients, submissions / seconds);
+        System.out.printf("latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+            latencies[submissions / 2] / 1e6, latencies[(int) (submissions * 0.9)] / 1e6,
+            latencies[(int) (submissions * 0.99)] / 1e6, latencies[submissions - 1] / 1e6);
+        System.out.printf("accepted %d, rejected %d, 503 retries %d, wrong verdicts %d%n",
+            accepted.get(), rejected.get(), busy.get(), wrong.get());
+        System.exit(wrong.get() == 0 ? 0 : 1);
+    }
+    
+    // Walks under the nearest bubble and keeps firing, backing off once it gets close
+    static int botInput(GameEngine engine) {
+        double playerX = engine.getPlayer().getCenterX();
+        double nearest = Double.MAX_VALUE, bubbleX = playerX;
+        for (Bubble bubble : engine.getBubbles()) {
+            double center = bubble.getX() + bubble.getSize() / 2.0;
+            if (Math.abs(center - playerX) < nearest) {
+                nearest = Math.abs(center - playerX);
+                bubbleX = center;
+            }
+        }
+        boolean towards = nearest >= 120;
+        boolean left = (bubbleX < playerX) == towards;
+        return (left ? InputLog.LEFT : InputLog.RIGHT) | InputLog.SHOOT | InputLog.NEXT_LEVEL;
+    }
+}
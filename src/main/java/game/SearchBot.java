@@ -0,0 +1,402 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Plays player 1 by search: every few ticks it copies the game into scratch engines, plays
+// each candidate plan out over a horizon and follows the best one. A plan either holds one
+// move and then another (left, stay or right), runs to one of TARGETS spots across the arena
+// and stays there, or carries on with the plan being followed; each either keeps firing or
+// doesn't. A rollout records the input it gave on every tick, and the bot plays exactly those,
+// so the plan it follows plays out as predicted and is always a candidate at the next decision.
+// Near a bubble, or when every plan ends in a death, it re-plans every tick.
+// Each plan has its own headless scratch engine, reused from decision to decision, so after
+// the first few decisions a rollout allocates nothing; with more than one thread the plans
+// run in parallel on a fork-join pool.
+// -Dbubble.bot=true (GamePanel). Run: java -Djava.awt.headless=true -cp bin game.SearchBot [levels] [threads]
+public class SearchBot {
+    // Ticks each plan is played out for, in updates of up to ROLLOUT_STEP ticks
+    public static final int HORIZON = 120;
+    public static final int ROLLOUT_STEP = 4;
+    // Ticks between decisions; the chosen plan is followed until the next one
+    public static final int DECISION_INTERVAL = 4;
+    private static final int[] MOVES = {-1, 0, 1};
+    // Ticks the first move of a two-move plan is held for
+    private static final int[] FIRST_TICKS = {8, 24, 48};
+    private static final int TARGETS = 13;
+    private static final int PLANS = (MOVES.length * MOVES.length * FIRST_TICKS.length + TARGETS + 1) * 2;
+    // Re-plan every tick while a bubble is this close to the player, edge to edge
+    private static final double DANGER = 60;
+    private static final double DEATH = -1e6;
+    // Beyond this a bubble's or wall's distance no longer makes the player safer
+    private static final double SAFE_CLEARANCE = 120;
+    private static final double WALL_WEIGHT = 0.5;
+    // Pull toward standing under the nearest bubble, per pixel
+    private static final double UNDER_WEIGHT = 0.05;
+    // A harpoon still climbing at the end of a plan hasn't popped anything, and blocks the next shot
+    private static final double HARPOON_OUT = 20;
+    // Levels 1 to 5 are the classic ones, which the bot must always clear
+    private static final int CLASSIC_LEVELS = 5;
+    // Fraction of the levels played that main() requires cleared
+    private static final double MIN_CLEAR_RATE = 0.7;
+
+    private final ForkJoinPool pool;
+    private final Rollout[] rollouts = new Rollout[PLANS];
+    private final RecursiveAction all;
+    private GameEngine source;
+    // The plan being followed: player 1's input on each tick from plannedAt on
+    private final byte[] plan = new byte[HORIZON];
+    private final boolean[] planShots = new boolean[HORIZON];
+    private int planLength;
+    private long plannedAt;
+    private boolean doomed;
+    private long decisions;
+    private long decisionNanos;
+
+    public SearchBot(int threads) {
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        int p = 0;
+        for (boolean fire : new boolean[] {true, false}) {
+            rollouts[p++] = new Rollout(0, 0, 0, -1, true, fire);
+            for (int firstTicks : FIRST_TICKS) {
+                for (int m = 0; m < MOVES.length * MOVES.length; m++) {
+                    rollouts[p++] = new Rollout(MOVES[m % 3], firstTicks, MOVES[m / 3], -1, false, fire);
+                }
+            }
+            for (int t = 0; t < TARGETS; t++) {
+                rollouts[p++] = new Rollout(0, 0, 0, (t + 0.5) / TARGETS, false, fire);
+            }
+        }
+        all = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(rollouts);
+            }
+        };
+    }
+
+    // Sets player 1's input for the coming tick, re-planning every DECISION_INTERVAL ticks, or
+    // every tick in danger. Call it before each engine.update()
+    public void control(GameEngine engine) {
+        if (engine.isGameOver() || engine.isLevelComplete()) {
+            return;
+        }
+        long at = engine.getTicks() - plannedAt;
+        if (engine != source || at < 0 || at >= planLength || at >= DECISION_INTERVAL
+                || doomed || clearance(engine) < DANGER) {
+            decide(engine);
+            at = 0;
+        }
+        engine.getPlayer().setMovingLeft(plan[(int) at] < 0);
+        engine.getPlayer().setMovingRight(plan[(int) at] > 0);
+        if (planShots[(int) at]) {
+            engine.shoot();
+        }
+    }
+
+    // Plays out every plan from engine's current state and follows the best one from here
+    void decide(GameEngine engine) {
+        long start = System.nanoTime();
+        // The plan being followed carries on from here only if it was made for this game
+        int kept = engine == source && engine.getTicks() >= plannedAt
+            ? (int) Math.min(engine.getTicks() - plannedAt, planLength) : planLength;
+        source = engine;
+        for (Rollout rollout : rollouts) {
+            rollout.from = kept;
+        }
+        if (pool == null) {
+            for (Rollout rollout : rollouts) {
+                rollout.compute();
+            }
+        } else {
+            all.reinitialize();
+            for (Rollout rollout : rollouts) {
+                rollout.reinitialize();
+            }
+            pool.invoke(all);
+        }
+        // On a tie the plan being followed stays
+        Rollout best = rollouts[0];
+        for (Rollout rollout : rollouts) {
+            if (rollout.value > best.value) {
+                best = rollout;
+            }
+        }
+        System.arraycopy(best.moves, 0, plan, 0, best.length);
+        System.arraycopy(best.shots, 0, planShots, 0, best.length);
+        planLength = best.length;
+        plannedAt = engine.getTicks();
+        doomed = best.value < DEATH / 2;
+        decisions++;
+        decisionNanos += System.nanoTime() - start;
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public long getDecisions() { return decisions; }
+    public long getDecisionNanos() { return decisionNanos; }
+
+    // One plan played out on its own scratch engine
+    private class Rollout extends RecursiveAction {
+        final int first;
+        final int firstTicks;
+        final int second;
+        // Spot to run to, as a fraction of the arena width, or -1
+        final double target;
+        // Carries on with the plan being followed, from tick `from` of it
+        final boolean keep;
+        final boolean fire;
+        final GameEngine scratch = new GameEngine(0, true);
+        // The input given on each tick played out
+        final byte[] moves = new byte[HORIZON];
+        final boolean[] shots = new boolean[HORIZON];
+        int length;
+        int from;
+        double value;
+
+        Rollout(int first, int firstTicks, int second, double target, boolean keep, boolean fire) {
+            this.first = first;
+            this.firstTicks = firstTicks;
+            this.second = second;
+            this.target = target;
+            this.keep = keep;
+            this.fire = fire;
+        }
+
+        @Override
+        protected void compute() {
+            scratch.copyFrom(source);
+            int lives = scratch.getLives();
+            int score = scratch.getScore();
+            Player player = scratch.getPlayer();
+            length = 0;
+            while (length < HORIZON) {
+                int move, run = 1;
+                boolean shoot;
+                int k = from + length;
+                if (keep && k < planLength) {
+                    // The followed plan's own ticks, an update for each run of unchanged input
+                    move = plan[k];
+                    shoot = planShots[k];
+                    while (run < ROLLOUT_STEP && k + run < planLength && plan[k + run] == move && !planShots[k + run]) {
+                        run++;
+                    }
+                } else {
+                    if (keep) {
+                        move = 0;
+                    } else if (target >= 0) {
+                        double dx = target * scratch.getArenaWidth() - player.getCenterX();
+                        move = Math.abs(dx) < Constants.PLAYER_SPEED ? 0 : dx < 0 ? -1 : 1;
+                    } else {
+                        move = length < firstTicks ? first : second;
+                    }
+                    // Fires again as soon as the last harpoon is gone
+                    shoot = fire;
+                    run = Math.min(ROLLOUT_STEP, HORIZON - length);
+                    if (!keep && target < 0 && length < firstTicks) {
+                        run = Math.min(run, firstTicks - length);
+                    }
+                }
+                player.setMovingLeft(move < 0);
+                player.setMovingRight(move > 0);
+                if (shoot) {
+                    scratch.shoot();
+                }
+                for (int i = 0; i < run; i++) {
+                    moves[length + i] = (byte) move;
+                    shots[length + i] = shoot && i == 0;
+                }
+                if (scratch.getTicksPerUpdate() != run) {
+                    scratch.setTicksPerUpdate(run);
+                }
+                scratch.update();
+                length += run;
+                if (scratch.getLives() < lives || scratch.isGameOver()) {
+                    // A later death is a little less bad: there may still be a way out
+                    value = DEATH + length;
+                    return;
+                }
+                if (scratch.isLevelComplete()) {
+                    value = 1e5 + scratch.getScore() - score - length;
+                    return;
+                }
+            }
+            value = scratch.getScore() - score + safety(scratch);
+            if (!scratch.getProjectiles().isEmpty()) {
+                value -= HARPOON_OUT;
+            }
+        }
+    }
+
+    // Distance from the player to the nearest bubble, edge to edge
+    private static double clearance(GameEngine engine) {
+        Player player = engine.getPlayer();
+        double px = player.getCenterX(), py = player.getY() + Constants.PLAYER_HEIGHT / 2.0;
+        double clearance = Double.MAX_VALUE;
+        for (int i = 0; i < engine.getBubbles().size(); i++) {
+            Bubble bubble = engine.getBubbles().get(i);
+            if (bubble.isActive()) {
+                double radius = bubble.getSize() / 2.0;
+                double dx = bubble.getX() + radius - px, dy = bubble.getY() + radius - py;
+                clearance = Math.min(clearance, Math.sqrt(dx * dx + dy * dy) - radius - Constants.PLAYER_WIDTH / 2.0);
+            }
+        }
+        return clearance;
+    }
+
+    // Clearance from the nearest bubble, up to SAFE_CLEARANCE, less being near a wall, where a
+    // bubble coming in can't be run from, and less a pull toward getting under the bubble
+    private static double safety(GameEngine engine) {
+        Player player = engine.getPlayer();
+        double px = player.getCenterX(), py = player.getY() + Constants.PLAYER_HEIGHT / 2.0;
+        double clearance = SAFE_CLEARANCE, under = 0;
+        double nearest = Double.MAX_VALUE;
+        for (int i = 0; i < engine.getBubbles().size(); i++) {
+            Bubble bubble = engine.getBubbles().get(i);
+            if (!bubble.isActive()) {
+                continue;
+            }
+            double radius = bubble.getSize() / 2.0;
+            double dx = bubble.getX() + radius - px, dy = bubble.getY() + radius - py;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            clearance = Math.min(clearance, distance - radius);
+            if (distance < nearest) {
+                nearest = distance;
+                under = Math.abs(dx);
+            }
+        }
+        double wall = Math.min(px, engine.getArenaWidth() - px);
+        return clearance - WALL_WEIGHT * Math.max(0, SAFE_CLEARANCE - wall) - UNDER_WEIGHT * under;
+    }
+
+    // First checks that a copied engine plays on exactly as its source does under the same
+    // inputs. Then plays levels 1 to `levels`, each from a fresh game, until the bot clears
+    // the level, dies or runs out of time, and reports the clear rate, decisions a second and
+    // what a rollout allocates once warmed up. Exits with status 1 if a copy diverges, a classic
+    // level isn't cleared or fewer than MIN_CLEAR_RATE of the levels are.
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int levels = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        boolean ok = copiesMatch();
+
+        SearchBot bot = new SearchBot(threads);
+        int cleared = 0, attempted = 0;
+        for (int level = 1; level <= levels; level++) {
+            GameEngine engine = new GameEngine(BenchmarkScene.SEED + level, true);
+            engine.setEffectsEnabled(false);
+            while (engine.getLevel() < level && !engine.isGameOver()) {
+                engine.nextLevel();
+            }
+            if (engine.getLevel() != level) {
+                break;
+            }
+            attempted++;
+            int lives = engine.getLives();
+            long limit = (engine.getLevelData().getTimeLimit() + 1L) * GameEngine.TICKS_PER_SECOND;
+            for (long t = 0; t < limit && !engine.isLevelComplete() && engine.getLives() == lives; t++) {
+                bot.control(engine);
+                engine.update();
+            }
+            boolean clear = engine.isLevelComplete();
+            cleared += clear ? 1 : 0;
+            if (!clear && level <= CLASSIC_LEVELS) {
+                System.out.println("FAIL: classic level " + level + " not cleared");
+                ok = false;
+            }
+            System.out.printf("level %d: %s after %.1f s, score %d%n", level,
+                clear ? "cleared" : engine.getLives() < lives ? "died" : "timed out",
+                engine.getTicks() / (double) GameEngine.TICKS_PER_SECOND, engine.getScore());
+        }
+        double seconds = bot.getDecisionNanos() / 1e9;
+        System.out.printf("cleared %d of %d levels; %d decisions at %.0f a second (%.0f rollouts a second, %d threads)%n",
+            cleared, attempted, bot.getDecisions(), bot.getDecisions() / seconds,
+            bot.getDecisions() * PLANS / seconds, threads);
+        bot.shutdown();
+
+        double bytes = rolloutBytes();
+        System.out.printf("a warmed-up rollout allocates %.1f bytes%n", bytes);
+        if (cleared < MIN_CLEAR_RATE * attempted) {
+            System.out.printf("FAIL: cleared %.0f%% of the levels, below %.0f%%%n",
+                100.0 * cleared / attempted, MIN_CLEAR_RATE * 100);
+            ok = false;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    // A copy taken mid-game, then both played on with the same inputs, must match throughout
+    private static boolean copiesMatch() {
+        GameEngine original = new GameEngine(BenchmarkScene.SEED, true);
+        GameEngine copy = new GameEngine(1, true);
+        for (int t = 0; t < 4000; t++) {
+            if (t % 500 == 250) {
+                copy.copyFrom(original);
+            }
+            for (GameEngine engine : new GameEngine[] {original, copy}) {
+                engine.getPlayer().setMovingLeft(t / 90 % 3 == 0);
+                engine.getPlayer().setMovingRight(t / 90 % 3 == 2);
+                if (t % 40 == 0) {
+                    engine.shoot();
+                }
+                engine.update();
+            }
+            if (t >= 250 && !sameState(original, copy)) {
+                System.out.println("FAIL: copy diverged from its source at tick " + t);
+                return false;
+            }
+            if (original.isGameOver()) {
+                break;
+            }
+            if (original.isLevelComplete()) {
+                original.nextLevel();
+                copy.copyFrom(original);
+            }
+        }
+        System.out.println("PASS: copies play on identically");
+        return true;
+    }
+
+    private static boolean sameState(GameEngine a, GameEngine b) {
+        if (a.getScore() != b.getScore() || a.getLives() != b.getLives() || a.getLevel() != b.getLevel()
+                || a.getTimeRemaining() != b.getTimeRemaining() || a.getPlayer().getX() != b.getPlayer().getX()
+                || a.getBubbles().size() != b.getBubbles().size() || a.getProjectiles().size() != b.getProjectiles().size()) {
+            return false;
+        }
+        for (int i = 0; i < a.getBubbles().size(); i++) {
+            Bubble x = a.getBubbles().get(i), y = b.getBubbles().get(i);
+            if (x.getX() != y.getX() || x.getY() != y.getY() || x.getSize() != y.getSize()) {
+                return false;
+            }
+        }
+        for (int i = 0; i < a.getProjectiles().size(); i++) {
+            if (a.getProjectiles().get(i).getY() != b.getProjectiles().get(i).getY()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Bytes this thread allocates per rollout over single-threaded decisions, after warm-up
+    private static double rolloutBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        GameEngine engine = new GameEngine(BenchmarkScene.SEED, true);
+        engine.setInvulnerable(true);
+        engine.setEffectsEnabled(false);
+        SearchBot bot = new SearchBot(1);
+        for (int t = 0; t < 3000; t++) {
+            bot.decide(engine);
+            engine.update();
+        }
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int t = 0; t < 1000; t++) {
+            bot.decide(engine);
+        }
+        return (threads.getThreadAllocatedBytes(id) - before) / 1000.0 / PLANS;
+    }
+}
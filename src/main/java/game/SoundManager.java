@@ -0,0 +1,422 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+public class SoundManager {
+    // Sound effects the game can trigger
+    public enum Effect {
+        POP("pop"),
+        SHOOT("shoot"),
+        DEATH("death"),
+        LEVEL_CLEAR("level_clear");
+
+        final String fileName;
+
+        Effect(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    // Mixer format: 16-bit signed mono, little endian
+    public static final float SAMPLE_RATE = 44100f;
+    public static final int BUFFER_FRAMES = 256; // ~5.8 ms per mix pass
+    public static final int MAX_VOICES = 8;
+    public static final String SOUND_DIR = "sounds";
+    public static final String OUTPUT_PROPERTY = "bubble.audio"; // line | none | file:<path>
+
+    private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    private static SoundManager instance;
+    private static SoundManager silent;
+
+    // Decoded PCM per effect, indexed by ordinal
+    private final short[][] samples;
+
+    // Triggers posted by the game thread and drained by the mixer thread
+    private final AtomicIntegerArray pending;
+
+    // Voice table, only touched by the mixer thread
+    private final int[] voiceEffect = new int[MAX_VOICES];
+    private final int[] voicePosition = new int[MAX_VOICES];
+    private final long[] voiceStart = new long[MAX_VOICES];
+    private final int[] mixBuffer = new int[BUFFER_FRAMES];
+    private final byte[] outBuffer = new byte[BUFFER_FRAMES * 2];
+
+    private final AudioOutput output;
+    private final Thread mixerThread;
+    private volatile boolean running;
+    private volatile boolean soundEnabled = true;
+    private volatile float soundVolume = 0.8f;
+    private long voiceCounter = 0;
+    private long droppedVoices = 0;
+
+    public SoundManager(AudioOutput output) {
+        this.output = output;
+        Effect[] effects = Effect.values();
+        this.samples = new short[effects.length][];
+        for (Effect effect : effects) {
+            samples[effect.ordinal()] = loadSamples(effect);
+        }
+        this.pending = new AtomicIntegerArray(effects.length);
+        for (int i = 0; i < MAX_VOICES; i++) {
+            voiceEffect[i] = -1;
+        }
+        this.mixerThread = new Thread(this::mixLoop, "audio-mixer");
+        this.mixerThread.setDaemon(true);
+        this.mixerThread.setPriority(Thread.MAX_PRIORITY);
+    }
+
+    public static synchronized SoundManager getInstance() {
+        if (instance == null) {
+            instance = new SoundManager(createOutput(System.getProperty(OUTPUT_PROPERTY, "line")));
+            instance.start();
+            // Stops the mixer before the output is closed, so a WAV file gets its header
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::shutdown, "audio-shutdown"));
+        }
+        return instance;
+    }
+
+    // Shared muted manager for headless engines: play() is a no-op and no mixer thread runs
+    public static synchronized SoundManager silent() {
+        if (silent == null) {
+            silent = new SoundManager(new NullOutput());
+            silent.setSoundEnabled(false);
+        }
+        return silent;
+    }
+
+    public static AudioOutput createOutput(String spec) {
+        if (spec.startsWith("file:")) {
+            try {
+                return new WavFileOutput(new File(spec.substring(5)));
+            } catch (IOException e) {
+                return new NullOutput();
+            }
+        }
+        if (spec.equals("line")) {
+            try {
+                return new LineOutput();
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                // No audio device: play silently
+            }
+        }
+        return new NullOutput();
+    }
+
+    public void start() {
+        running = true;
+        mixerThread.start();
+    }
+
+    // Closes the output once the mixer thread has finished its last write; safe to call twice
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(mixerThread);
+        try {
+            mixerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!mixerThread.isAlive()) {
+            output.close();
+        }
+    }
+
+    // Called from the game loop: a single atomic increment, never blocks or allocates
+    public void play(Effect effect) {
+        if (soundEnabled) {
+            pending.incrementAndGet(effect.ordinal());
+        }
+    }
+
+    private void mixLoop() {
+        while (running) {
+            startPendingVoices();
+            mixInto(mixBuffer);
+            for (int i = 0; i < BUFFER_FRAMES; i++) {
+                int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+                outBuffer[i * 2] = (byte) sample;
+                outBuffer[i * 2 + 1] = (byte) (sample >> 8);
+            }
+            output.write(outBuffer, outBuffer.length);
+        }
+    }
+
+    private void startPendingVoices() {
+        for (int effect = 0; effect < samples.length; effect++) {
+            // Several triggers of the same effect within one buffer collapse into one voice
+            if (pending.getAndSet(effect, 0) > 0) {
+                startVoice(effect);
+            }
+        }
+    }
+
+    private void startVoice(int effect) {
+        int slot = 0;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voiceEffect[i] < 0) {
+                slot = i;
+                break;
+            }
+            // Steal the oldest voice when all are busy
+            if (voiceStart[i] < voiceStart[slot]) {
+                slot = i;
+            }
+        }
+        if (voiceEffect[slot] >= 0) {
+            droppedVoices++;
+        }
+        voiceEffect[slot] = effect;
+        voicePosition[slot] = 0;
+        voiceStart[slot] = voiceCounter++;
+    }
+
+    private void mixInto(int[] buffer) {
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = 0;
+        }
+        int gain = (int) (soundVolume * 256);
+        for (int v = 0; v < MAX_VOICES; v++) {
+            if (voiceEffect[v] < 0) continue;
+            short[] pcm = samples[voiceEffect[v]];
+            int pos = voicePosition[v];
+            int count = Math.min(buffer.length, pcm.length - pos);
+            for (int i = 0; i < count; i++) {
+                buffer[i] += (pcm[pos + i] * gain) >> 8;
+            }
+            voicePosition[v] = pos + count;
+            if (voicePosition[v] >= pcm.length) {
+                voiceEffect[v] = -1;
+            }
+        }
+    }
+
+    // Load sounds/<name>.wav if present, otherwise synthesize the effect
+    private static short[] loadSamples(Effect effect) {
+        File file = new File(SOUND_DIR, effect.fileName + ".wav");
+        if (file.exists()) {
+            try (AudioInputStream source = AudioSystem.getAudioInputStream(file);
+                 AudioInputStream pcm = AudioSystem.getAudioInputStream(FORMAT, source)) {
+                byte[] bytes = pcm.readAllBytes();
+                short[] result = new short[bytes.length / 2];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = (short) ((bytes[i * 2] & 0xFF) | (bytes[i * 2 + 1] << 8));
+                }
+                return result;
+            } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+                // Unreadable file: fall back to the generated sound
+            }
+        }
+        return synthesize(effect);
+    }
+
+    private static short[] synthesize(Effect effect) {
+        switch (effect) {
+            case POP:
+                return tone(0.08, 900, 300, 0.35, true);
+            case SHOOT:
+                return tone(0.12, 400, 1600, 0.25, false);
+            case DEATH:
+                return tone(0.6, 500, 80, 0.45, true);
+            case LEVEL_CLEAR:
+            default:
+                short[] clear = new short[(int) (SAMPLE_RATE * 0.6)];
+                double[] notes = {523.25, 659.25, 783.99, 1046.5};
+                int noteLength = clear.length / notes.length;
+                for (int n = 0; n < notes.length; n++) {
+                    short[] note = tone(noteLength / SAMPLE_RATE, notes[n], notes[n], 0.3, false);
+                    System.arraycopy(note, 0, clear, n * noteLength, note.length);
+                }
+                return clear;
+        }
+    }
+
+    // Frequency sweep with linear decay, optionally roughened with deterministic noise
+    private static short[] tone(double seconds, double startHz, double endHz, double amplitude, boolean noisy) {
+        int length = (int) (SAMPLE_RATE * seconds);
+        short[] result = new short[length];
+        double phase = 0;
+        int noise = 0x2545F491;
+        for (int i = 0; i < length; i++) {
+            double t = (double) i / length;
+            phase += 2 * Math.PI * (startHz + (endHz - startHz) * t) / SAMPLE_RATE;
+            double value = Math.sin(phase);
+            if (noisy) {
+                noise ^= noise << 13;
+                noise ^= noise >>> 17;
+                noise ^= noise << 5;
+                value = value * 0.7 + (noise / (double) Integer.MAX_VALUE) * 0.3;
+            }
+            result[i] = (short) (value * amplitude * (1 - t) * Short.MAX_VALUE);
+        }
+        return result;
+    }
+
+    public void setSoundEnabled(boolean enabled) { this.soundEnabled = enabled; }
+    public void setSoundVolume(float volume) { this.soundVolume = Math.max(0, Math.min(1, volume)); }
+    public boolean isSoundEnabled() { return soundEnabled; }
+    public long getDroppedVoices() { return droppedVoices; }
+
+    // Destination for mixed PCM; write() is what paces the mixer thread
+    public interface AudioOutput {
+        void write(byte[] buffer, int length);
+        void close();
+    }
+
+    public static class LineOutput implements AudioOutput {
+        private final SourceDataLine line;
+
+        public LineOutput() throws LineUnavailableException {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            // Two mix buffers of headroom keeps latency low without underruns
+            line.open(FORMAT, BUFFER_FRAMES * 2 * 2 * 2);
+            line.start();
+        }
+
+        @Override
+        public void write(byte[] buffer, int length) {
+            line.write(buffer, 0, length);
+        }
+
+        @Override
+        public void close() {
+            line.drain();
+            line.close();
+        }
+    }
+
+    // Discards audio at real-time pace, for headless runs
+    public static class NullOutput implements AudioOutput {
+        private static final long BUFFER_NANOS =
+            (long) (TimeUnit.SECONDS.toNanos(1) * BUFFER_FRAMES / SAMPLE_RATE);
+        private long nextDeadline = System.nanoTime();
+
+        @Override
+        public void write(byte[] buffer, int length) {
+            nextDeadline += BUFFER_NANOS;
+            long wait = nextDeadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                nextDeadline = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Records the mix to a WAV file at real-time pace, for inspecting headless sessions
+    public static class WavFileOutput extends NullOutput {
+        private final RandomAccessFile file;
+        private int dataBytes = 0;
+        private boolean failed;
+
+        public WavFileOutput(File target) throws IOException {
+            file = new RandomAccessFile(target, "rw");
+            file.setLength(0);
+            file.write(new byte[44]); // header is filled in on close
+        }
+
+        @Override
+        public void write(byte[] buffer, int length) {
+            if (!failed) {
+                try {
+                    file.write(buffer, 0, length);
+                    dataBytes += length;
+                } catch (IOException e) {
+                    // Disk full or gone: keep what was written and stop recording
+                    failed = true;
+                }
+            }
+            super.write(buffer, length);
+        }
+
+        @Override
+        public void close() {
+            try {
+                file.seek(0);
+                file.writeBytes("RIFF");
+                file.writeInt(Integer.reverseBytes(36 + dataBytes));
+                file.writeBytes("WAVEfmt ");
+                file.writeInt(Integer.reverseBytes(16));
+                file.writeShort(Short.reverseBytes((short) 1));
+                file.writeShort(Short.reverseBytes((short) 1));
+                file.writeInt(Integer.reverseBytes((int) SAMPLE_RATE));
+                file.writeInt(Integer.reverseBytes((int) SAMPLE_RATE * 2));
+                file.writeShort(Short.reverseBytes((short) 2));
+                file.writeShort(Short.reverseBytes((short) 16));
+                file.writeBytes("data");
+                file.writeInt(Integer.reverseBytes(dataBytes));
+                file.setLength(44 + dataBytes);
+                file.close();
+            } catch (IOException e) {
+                // Nothing left to do with a file that can't be written
+            }
+        }
+    }
+
+    // Records a clip with -Dbubble.audio=file:<path> in a child JVM that plays a few effects and
+    // exits without calling shutdown(), as the game does; the shutdown hook must leave a WAV file
+    // whose header sizes match its length and that javax.sound reads back.
+    // Check: java -cp bin game.SoundManager
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("record")) {
+            System.setProperty(OUTPUT_PROPERTY, "file:" + args[1]);
+            SoundManager sound = getInstance();
+            for (Effect effect : Effect.values()) {
+                sound.play(effect);
+                Thread.sleep(100);
+            }
+            System.exit(0);
+        }
+        File wav = File.createTempFile("bubble-audio", ".wav");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            SoundManager.class.getName(), "record", wav.getPath()).inheritIO().start();
+        boolean ok = child.waitFor(30, TimeUnit.SECONDS) && child.exitValue() == 0;
+        if (!ok) {
+            System.out.println("FAIL: recording process did not finish");
+        }
+        byte[] bytes = Files.readAllBytes(wav.toPath());
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int riffSize = bytes.length >= 44 ? header.getInt(4) : -1;
+        int dataSize = bytes.length >= 44 ? header.getInt(40) : -1;
+        if (ok && (riffSize != bytes.length - 8 || dataSize != bytes.length - 44 || dataSize <= 0)) {
+            System.out.println("FAIL: " + bytes.length + " byte file says RIFF size " + riffSize + ", data size " + dataSize);
+            ok = false;
+        }
+        if (ok) {
+            try (AudioInputStream in = AudioSystem.getAudioInputStream(wav)) {
+                if (!in.getFormat().matches(FORMAT) || in.getFrameLength() != dataSize / 2) {
+                    System.out.println("FAIL: read back as " + in.getFormat() + ", " + in.getFrameLength() + " frames");
+                    ok = false;
+                }
+            } catch (UnsupportedAudioFileException e) {
+                System.out.println("FAIL: not a readable WAV file: " + e.getMessage());
+                ok = false;
+            }
+        }
+        wav.delete();
+        System.out.println((ok ? "PASS" : "FAIL") + ": " + Math.max(0, dataSize) / 2 + " frames recorded, "
+            + String.format("%.2f", Math.max(0, dataSize) / 2 / SAMPLE_RATE) + " s");
+        System.exit(ok ? 0 : 1);
+    }
+}
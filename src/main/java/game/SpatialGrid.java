@@ -0,0 +1,69 @@
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+// Column index over an arena wider than the screen. Entities are bucketed by their left edge
+// into CELL-wide columns with a counting sort, so every run of columns is one contiguous range
+// of the index: from(left)..to(right) covers every entity that was filed overlapping
+// [left, right], given that none is wider than `span`. Callers still test the candidates
+// exactly, and widen the query by however far the entities may have moved since. A rebuild is
+// O(n) and stops allocating once the arrays have grown to the entity count.
+public class SpatialGrid<T> {
+    public static final int CELL = 128;
+
+    private final ToDoubleFunction<T> leftEdge;
+    private final double span;
+    private int size;
+    private int cells = 1;
+    private int[] cellStart = new int[2];
+    private int[] cursor = new int[2];
+    private int[] cellOf = new int[64];
+    private Object[] sorted = new Object[64];
+
+    public SpatialGrid(ToDoubleFunction<T> leftEdge, double span) {
+        this.leftEdge = leftEdge;
+        this.span = span;
+    }
+
+    public void rebuild(List<T> items, double width) {
+        size = items.size();
+        cells = Math.max(1, (int) Math.ceil(width / CELL));
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cursor = new int[cells + 1];
+        }
+        if (sorted.length < size) {
+            sorted = new Object[Math.max(size, sorted.length * 2)];
+            cellOf = new int[sorted.length];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        for (int i = 0; i < size; i++) {
+            int cell = cell(leftEdge.applyAsDouble(items.get(i)));
+            cellOf[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        System.arraycopy(cellStart, 0, cursor, 0, cells);
+        // In list order within each column
+        for (int i = 0; i < size; i++) {
+            sorted[cursor[cellOf[i]]++] = items.get(i);
+        }
+        // Drop references left over from a bigger filing
+        Arrays.fill(sorted, size, sorted.length, null);
+    }
+
+    private int cell(double x) {
+        // Truncating rather than flooring is fine: anything left of 0 clamps to column 0 anyway
+        return Math.max(0, Math.min(cells - 1, (int) (x * (1.0 / CELL))));
+    }
+
+    public int from(double left) { return cellStart[cell(left - span)]; }
+    public int to(double right) { return cellStart[cell(right) + 1]; }
+    @SuppressWarnings("unchecked")
+    public T get(int i) { return (T) sorted[i]; }
+    public int size() { return size; }
+}
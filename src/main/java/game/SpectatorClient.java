@@ -0,0 +1,202 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Headless spectators for load-testing a SpectatorServer. All connections share one selector
+// thread; each decodes every frame into its own SpectatorView and checks it against the hash
+// the frame carries, and counts any delta that doesn't follow the frame before it. Every
+// slow-every'th spectator reads only SLOW_RATE bytes a second, less than the stream needs, so
+// the server has to keep skipping it to keyframes. Starts a local server broadcasting the
+// load-test bot unless a host is given.
+// Run: java -cp bin game.SpectatorClient [spectators] [seconds] [slow-every] [host port]
+public class SpectatorClient {
+    public static final int SLOW_RATE = 1024;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final SpectatorView view = new SpectatorView();
+    private final boolean slow;
+    private ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+    private double budget;
+    private boolean paused;
+    private long frames, keyframes, gaps, mismatches, bytes;
+
+    private SpectatorClient(String host, int port, Selector selector, boolean slow) throws IOException {
+        this.slow = slow;
+        channel = SocketChannel.open();
+        if (slow) {
+            // Otherwise the kernel buffers hide the slow reader from the server for a long time
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+        }
+        channel.connect(new InetSocketAddress(host, port));
+        channel.configureBlocking(false);
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    public SpectatorView getView() { return view; }
+
+    private void read() throws IOException {
+        int room = in.remaining();
+        if (slow) {
+            room = Math.min(room, (int) budget);
+            if (room == 0) {
+                paused = true;
+                key.interestOps(0);
+                return;
+            }
+        }
+        int limit = in.limit();
+        in.limit(in.position() + room);
+        int n = channel.read(in);
+        in.limit(limit);
+        if (n < 0) {
+            throw new IOException("server closed the connection");
+        }
+        bytes += n;
+        budget -= n;
+
+        in.flip();
+        while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+            int length = in.getInt();
+            ByteBuffer frame = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            receive(frame);
+        }
+        if (in.remaining() >= 4 && 4 + in.getInt(in.position()) > in.capacity()) {
+            // A keyframe bigger than the buffer
+            in = ByteBuffer.allocate(4 + in.getInt(in.position())).put(in);
+        } else {
+            in.compact();
+        }
+    }
+
+    private void receive(ByteBuffer frame) {
+        if (SpectatorView.isKeyframe(frame)) {
+            keyframes++;
+        } else if (SpectatorView.frameNumber(frame) != view.getFrame() + 1 || view.getFrame() < 0) {
+            gaps++;
+        }
+        if (!view.apply(frame)) {
+            mismatches++;
+        }
+        frames++;
+    }
+
+    private void refill(double seconds) {
+        if (!slow) {
+            return;
+        }
+        budget = Math.min(budget + seconds * SLOW_RATE, SLOW_RATE / 4.0);
+        if (paused && budget >= SLOW_RATE / 8.0) {
+            paused = false;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int slowEvery = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String host = args.length > 4 ? args[3] : "127.0.0.1";
+        SpectatorServer server = null;
+        ScheduledExecutorService game = null;
+        long[] publishNanos = new long[seconds * GameEngine.TICKS_PER_SECOND];
+        int port;
+        if (args.length > 4) {
+            port = Integer.parseInt(args[4]);
+        } else {
+            server = new SpectatorServer(0);
+            server.start();
+            game = SpectatorServer.runBotGame(server, BenchmarkScene.SEED, publishNanos);
+            port = server.getPort();
+        }
+
+        Selector selector = Selector.open();
+        SpectatorClient[] clients = new SpectatorClient[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = new SpectatorClient(host, port, selector, slowEvery > 0 && i % slowEvery == slowEvery - 1);
+        }
+        System.out.printf("%d spectators connected to %s:%d, %d of them reading %d B/s%n", count, host, port,
+            slowEvery > 0 ? count / slowEvery : 0, SLOW_RATE);
+
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        long last = start;
+        while (System.nanoTime() < deadline) {
+            selector.select(key -> {
+                try {
+                    ((SpectatorClient) key.attachment()).read();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, 5);
+            long now = System.nanoTime();
+            for (SpectatorClient client : clients) {
+                client.refill((now - last) / 1e9);
+            }
+            last = now;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        for (SpectatorClient client : clients) {
+            client.channel.close();
+        }
+        selector.close();
+
+        long mismatches = 0, gaps = 0, fastSkips = 0, slowKeyframes = 0, slowFrames = 0, fastFrames = 0, bytes = 0;
+        int fast = 0, slowCount = 0;
+        long fewestFrames = Long.MAX_VALUE;
+        for (SpectatorClient client : clients) {
+            mismatches += client.mismatches;
+            gaps += client.gaps;
+            bytes += client.bytes;
+            if (client.slow) {
+                slowCount++;
+                slowFrames += client.frames;
+                slowKeyframes += client.keyframes;
+            } else {
+                fast++;
+                fastFrames += client.frames;
+                fastSkips += client.keyframes - 1;
+                fewestFrames = Math.min(fewestFrames, client.frames);
+            }
+        }
+        System.out.printf("%.1f s: %.0f B/s per spectator, %.0f KB/s in total%n",
+            elapsed, bytes / elapsed / count, bytes / elapsed / 1024);
+        if (fast > 0) {
+            System.out.printf("full-speed spectators: %.0f frames each on average (fewest %d), %d skipped to a keyframe%n",
+                fastFrames / (double) fast, fewestFrames, fastSkips);
+        }
+        if (slowCount > 0) {
+            System.out.printf("slow spectators: %.0f frames each on average, %.1f keyframes each%n",
+                slowFrames / (double) slowCount, slowKeyframes / (double) slowCount);
+        }
+        System.out.printf("hash mismatches %d, out-of-order deltas %d%n", mismatches, gaps);
+
+        if (server != null) {
+            game.shutdown();
+            game.awaitTermination(1, TimeUnit.SECONDS);
+            long frames = server.getFrames();
+            System.out.printf("server: %d frames, %d game ticks dropped, delta %.1f B avg, %d keyframes of %.0f B avg, %d skips%n",
+                frames, server.getDropped(), server.getDeltaBytes() / (double) frames, server.getKeyframes(),
+                server.getKeyframeBytes() / (double) Math.max(1, server.getKeyframes()), server.getSkips());
+            int published = (int) Math.min(frames + server.getDropped(), publishNanos.length);
+            long[] sorted = Arrays.copyOf(publishNanos, published);
+            Arrays.sort(sorted);
+            if (published > 0) {
+                System.out.printf("publish() on the game thread, us: p50 %.1f, p99 %.1f, max %.1f%n",
+                    sorted[published / 2] / 1e3, sorted[(int) (published * 0.99)] / 1e3, sorted[published - 1] / 1e3);
+            }
+            server.stop();
+        }
+        System.exit(mismatches == 0 && gaps == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,634 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams a running game to spectators over TCP. publish() is all the game loop calls: it
+// copies the engine's state, quantized, into a spare snapshot and hands it to the broadcaster
+// thread, or drops that tick if the broadcaster has fallen behind, so spectators never hold up
+// the game. The broadcaster diffs each snapshot against its SpectatorView into one delta frame
+// (format in SpectatorView) and writes that frame to every spectator with non-blocking
+// gathering writes. Frames are encoded once into a ring of direct memory and spectators queue
+// slices of it, so nothing is copied per spectator.
+//
+// A spectator that lets MAX_QUEUED frames pile up has its backlog dropped and gets nothing
+// more until it has caught up with its socket; then it is sent the next keyframe, which
+// carries the whole state. Keyframes are only encoded while someone is waiting for one, and at
+// most every KEYFRAME_GAP frames.
+// Run: java -cp bin game.SpectatorServer [port]
+public class SpectatorServer {
+    public static final int MAX_QUEUED = 32;
+    public static final int KEYFRAME_GAP = 10;
+    private static final int SNAPSHOTS = 4;
+    private static final int RING_SIZE = 1 << 20;
+    // Small, so a stalled spectator's queue fills within seconds rather than minutes
+    private static final int SEND_BUFFER = 4 * 1024;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final ArrayBlockingQueue<Snapshot> spare = new ArrayBlockingQueue<>(SNAPSHOTS);
+    private final ArrayBlockingQueue<Snapshot> ready = new ArrayBlockingQueue<>(SNAPSHOTS);
+
+    // Broadcaster thread only
+    private final ByteBuffer ring = ByteBuffer.allocateDirect(RING_SIZE);
+    private long ringWritten;
+    private final SpectatorView view = new SpectatorView();
+    private final IdentityHashMap<Bubble, Tracked> tracked = new IdentityHashMap<>();
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+    private int frame;
+    private int lastKeyframe = -KEYFRAME_GAP;
+    private int nextId;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong keyframes = new AtomicLong();
+    private final AtomicLong deltaBytes = new AtomicLong();
+    private final AtomicLong keyframeBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong skips = new AtomicLong();
+    private volatile int spectatorCount;
+    private final AtomicLong failedAccepts = new AtomicLong();
+    // Why the broadcast thread stopped, for the game to show
+    private volatile String problem;
+
+    // Listens on loopback only, unless -Dbubble.spectate.bind=<address> (0.0.0.0 for every
+    // interface) lets spectators on other machines in
+    public SpectatorServer(int port) throws IOException {
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            spare.add(new Snapshot());
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        String bind = System.getProperty("bubble.spectate.bind");
+        InetAddress address = bind != null ? InetAddress.getByName(bind) : InetAddress.getLoopbackAddress();
+        server.bind(new InetSocketAddress(address, port), 256);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "spectator-broadcast");
+        thread.setDaemon(true);
+    }
+
+    public void start() { thread.start(); }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+    public int getSpectators() { return spectatorCount; }
+    public long getFrames() { return frames.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getKeyframes() { return keyframes.get(); }
+    public long getDeltaBytes() { return deltaBytes.get(); }
+    public long getKeyframeBytes() { return keyframeBytes.get(); }
+    public long getSentBytes() { return sentBytes.get(); }
+    public long getSkips() { return skips.get(); }
+    public long getFailedAccepts() { return failedAccepts.get(); }
+    public String getProblem() { return problem; }
+
+    // Game loop side: copies the state and returns; never blocks and doesn't allocate
+    public void publish(GameEngine engine) {
+        Snapshot snapshot = spare.poll();
+        if (snapshot == null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        snapshot.capture(engine);
+        ready.offer(snapshot);
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(this::handle);
+                Snapshot snapshot;
+                while ((snapshot = ready.poll()) != null) {
+                    broadcast(snapshot);
+                    spare.offer(snapshot);
+                }
+            }
+        } catch (IOException e) {
+            problem = "Spectator server stopped: " + e.getMessage();
+        } finally {
+            for (Spectator spectator : spectators) {
+                close(spectator);
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to send on them
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Spectator spectator = (Spectator) key.attachment();
+        if (key.isReadable()) {
+            // Spectators have nothing to say; reading only notices when they hang up
+            try {
+                discard.clear();
+                if (spectator.channel.read(discard) < 0) {
+                    close(spectator);
+                }
+            } catch (IOException e) {
+                close(spectator);
+            }
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush(spectator);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+                Spectator spectator = new Spectator(channel);
+                spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+                spectators.add(spectator);
+            }
+        } catch (IOException e) {
+            // The spectator can connect again; the ones already watching are unaffected
+            failedAccepts.incrementAndGet();
+        }
+        spectatorCount = spectators.size();
+    }
+
+    private void broadcast(Snapshot snapshot) {
+        frame++;
+        ByteBuffer delta = encodeDelta(snapshot);
+        long deltaStart = ringWritten - delta.remaining();
+        boolean anyWaiting = false;
+        for (Spectator spectator : spectators) {
+            anyWaiting |= spectator.waiting && spectator.queued == 0;
+        }
+        ByteBuffer keyframe = null;
+        long keyframeStart = 0;
+        if (anyWaiting && frame - lastKeyframe >= KEYFRAME_GAP) {
+            keyframe = encodeKeyframe();
+            keyframeStart = ringWritten - keyframe.remaining();
+            lastKeyframe = frame;
+        }
+
+        boolean closed = false;
+        for (Spectator spectator : spectators) {
+            if (spectator.closed) {
+                closed = true;
+                continue;
+            }
+            if (spectator.waiting) {
+                // Not until what was already in the socket has gone, or it would just be skipped too
+                if (keyframe != null && spectator.queued == 0) {
+                    spectator.enqueue(keyframe.duplicate(), keyframeStart);
+                    spectator.waiting = false;
+                }
+            } else if (spectator.queued == MAX_QUEUED) {
+                skip(spectator);
+            } else {
+                spectator.enqueue(delta.duplicate(), deltaStart);
+            }
+            if (spectator.queued > 0) {
+                flush(spectator);
+            }
+            closed |= spectator.closed;
+        }
+        if (closed) {
+            spectators.removeIf(s -> s.closed);
+            spectatorCount = spectators.size();
+        }
+    }
+
+    // Drops everything not yet started; a frame that is half sent has to finish first
+    private void skip(Spectator spectator) {
+        int keep = spectator.queued > 0 && spectator.queue[0].position() > 0 ? 1 : 0;
+        Arrays.fill(spectator.queue, keep, spectator.queued, null);
+        spectator.queued = keep;
+        spectator.waiting = true;
+        skips.incrementAndGet();
+    }
+
+    private void flush(Spectator spectator) {
+        try {
+            sentBytes.addAndGet(spectator.channel.write(spectator.queue, 0, spectator.queued));
+        } catch (IOException e) {
+            close(spectator);
+            return;
+        }
+        int done = 0;
+        while (done < spectator.queued && !spectator.queue[done].hasRemaining()) {
+            done++;
+        }
+        if (done > 0) {
+            System.arraycopy(spectator.queue, done, spectator.queue, 0, spectator.queued - done);
+            System.arraycopy(spectator.starts, done, spectator.starts, 0, spectator.queued - done);
+            Arrays.fill(spectator.queue, spectator.queued - done, spectator.queued, null);
+            spectator.queued -= done;
+        }
+        int ops = spectator.queued > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (spectator.key.interestOps() != ops) {
+            spectator.key.interestOps(ops);
+        }
+    }
+
+    private void close(Spectator spectator) {
+        spectator.closed = true;
+        spectator.key.cancel();
+        try {
+            spectator.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    // Room for a frame of up to `bound` bytes in the ring. Whatever a spectator still holds from
+    // the lap being overwritten goes: its backlog is skipped, or if it is stuck halfway through
+    // a frame that old it is disconnected.
+    private ByteBuffer reserve(int bound) {
+        int head = (int) (ringWritten % RING_SIZE);
+        if (head + bound > RING_SIZE) {
+            ringWritten += RING_SIZE - head;
+            head = 0;
+        }
+        long overwritten = ringWritten + bound - RING_SIZE;
+        for (Spectator spectator : spectators) {
+            if (spectator.queued > 0 && spectator.starts[0] < overwritten) {
+                if (spectator.queue[0].position() > 0) {
+                    close(spectator);
+                } else {
+                    skip(spectator);
+                }
+            }
+        }
+        ByteBuffer out = ring.duplicate();
+        out.limit(head + bound).position(head);
+        return out;
+    }
+
+    private ByteBuffer commit(ByteBuffer out) {
+        int head = (int) (ringWritten % RING_SIZE);
+        int length = out.position() - head;
+        out.putInt(head, length - 4);
+        ringWritten += length;
+        return ring.slice(head, length);
+    }
+
+    private static int bound(int records, int projectiles) {
+        return 64 + projectiles * 4 + records * 7;
+    }
+
+    private ByteBuffer encodeDelta(Snapshot s) {
+        ByteBuffer out = reserve(bound(s.bubbles + tracked.size(), s.projectiles));
+        out.putInt(0);
+        out.put(SpectatorView.DELTA);
+        out.putInt(frame);
+        int maskAt = out.position();
+        out.put((byte) 0);
+        int mask = 0;
+        if (s.score != view.score) {
+            mask |= SpectatorView.SCORE;
+            out.putInt(view.score = s.score);
+        }
+        if (s.lives != view.lives) {
+            mask |= SpectatorView.LIVES;
+            out.put((byte) (view.lives = s.lives));
+        }
+        if (s.level != view.level) {
+            mask |= SpectatorView.LEVEL;
+            out.putShort((short) (view.level = s.level));
+        }
+        if (s.timeRemaining != view.timeRemaining) {
+            mask |= SpectatorView.TIME;
+            out.putShort((short) (view.timeRemaining = s.timeRemaining));
+        }
+        if (s.gameOver != view.gameOver || s.levelComplete != view.levelComplete) {
+            mask |= SpectatorView.FLAGS;
+            view.gameOver = s.gameOver;
+            view.levelComplete = s.levelComplete;
+            putFlags(out);
+        }
+        if (s.playersChanged(view)) {
+            mask |= SpectatorView.PLAYERS;
+            view.players = s.players;
+            for (int i = 0; i < s.players; i++) {
+                view.playerX[i] = s.playerX[i];
+                view.playerDirection[i] = s.playerDirection[i];
+            }
+            putPlayers(out);
+        }
+        if (s.projectilesChanged(view)) {
+            mask |= SpectatorView.PROJECTILES;
+            view.setProjectileCount(s.projectiles);
+            System.arraycopy(s.projectileX, 0, view.projectileX, 0, s.projectiles);
+            System.arraycopy(s.projectileY, 0, view.projectileY, 0, s.projectiles);
+            putProjectiles(out);
+        }
+        out.put(maskAt, (byte) mask);
+
+        int countAt = out.position();
+        out.putShort((short) 0);
+        int records = 0;
+        for (int i = 0; i < s.bubbles; i++) {
+            Tracked t = tracked.get(s.refs[i]);
+            int bx = s.x[i], by = s.y[i];
+            if (t == null) {
+                int id = freeId();
+                if (id < 0) {
+                    continue;
+                }
+                tracked.put(s.refs[i], new Tracked(id, frame));
+                view.spawn(id, s.sizes[i], bx, by);
+                out.putShort((short) (SpectatorView.SPAWN | id)).put(s.sizes[i]).putShort((short) bx).putShort((short) by);
+                records++;
+                continue;
+            }
+            t.seen = frame;
+            int dx = bx - view.x[t.id], dy = by - view.y[t.id];
+            if (dx == 0 && dy == 0) {
+                continue;
+            }
+            if (dx == (byte) dx && dy == (byte) dy) {
+                out.putShort((short) (SpectatorView.MOVE | t.id)).put((byte) dx).put((byte) dy);
+            } else {
+                out.putShort((short) (SpectatorView.JUMP | t.id)).putShort((short) bx).putShort((short) by);
+            }
+            view.move(t.id, bx, by);
+            records++;
+        }
+        // Kills last, so a bubble spawned this frame never reuses an id freed in the same frame
+        for (Iterator<Tracked> it = tracked.values().iterator(); it.hasNext();) {
+            Tracked t = it.next();
+            if (t.seen != frame) {
+                out.putShort((short) (SpectatorView.KILL | t.id));
+                view.kill(t.id);
+                it.remove();
+                records++;
+            }
+        }
+        out.putShort(countAt, (short) records);
+        out.putInt(view.hash());
+        view.frame = frame;
+        ByteBuffer encoded = commit(out);
+        frames.incrementAndGet();
+        deltaBytes.addAndGet(encoded.remaining());
+        return encoded;
+    }
+
+    // The view as it stands after this frame's delta
+    private ByteBuffer encodeKeyframe() {
+        ByteBuffer out = reserve(bound(tracked.size(), view.projectiles));
+        out.putInt(0);
+        out.put(SpectatorView.KEYFRAME);
+        out.putInt(frame);
+        out.put((byte) SpectatorView.ALL);
+        out.putInt(view.score);
+        out.put((byte) view.lives);
+        out.putShort((short) view.level);
+        out.putShort((short) view.timeRemaining);
+        putFlags(out);
+        putPlayers(out);
+        putProjectiles(out);
+        out.putShort((short) tracked.size());
+        for (Tracked t : tracked.values()) {
+            out.putShort((short) (SpectatorView.SPAWN | t.id)).put(view.size[t.id])
+                .putShort(view.x[t.id]).putShort(view.y[t.id]);
+        }
+        out.putInt(view.hash());
+        ByteBuffer encoded = commit(out);
+        keyframes.incrementAndGet();
+        keyframeBytes.addAndGet(encoded.remaining());
+        return encoded;
+    }
+
+    private void putFlags(ByteBuffer out) {
+        out.put((byte) ((view.gameOver ? 1 : 0) | (view.levelComplete ? 2 : 0)));
+    }
+
+    private void putPlayers(ByteBuffer out) {
+        out.put((byte) view.players);
+        for (int i = 0; i < view.players; i++) {
+            out.putShort(view.playerX[i]).put(view.playerDirection[i]);
+        }
+    }
+
+    private void putProjectiles(ByteBuffer out) {
+        out.put((byte) view.projectiles);
+        for (int i = 0; i < view.projectiles; i++) {
+            out.putShort(view.projectileX[i]).putShort(view.projectileY[i]);
+        }
+    }
+
+    private int freeId() {
+        if (view.bubbleCount == SpectatorView.MAX_BUBBLES) {
+            return -1;
+        }
+        while (view.live[nextId]) {
+            nextId = (nextId + 1) & (SpectatorView.MAX_BUBBLES - 1);
+        }
+        return nextId;
+    }
+
+    // Plays the load-test bot at 60 updates a second and publishes every update, restarting on game
+    // over. If publishNanos is given, each publish() call's duration goes in it, round-robin.
+    static ScheduledExecutorService runBotGame(SpectatorServer server, long seed, long[] publishNanos) {
+        GameEngine engine = new GameEngine(seed, true);
+        engine.setEffectsEnabled(false);
+        long[] published = new long[1];
+        ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "spectator-game");
+            t.setDaemon(true);
+            return t;
+        });
+        loop.scheduleAtFixedRate(() -> {
+            if (engine.isGameOver()) {
+                engine.restart();
+            }
+            InputLog.play(engine, ScoreServiceLoadTest.botInput(engine));
+            long start = System.nanoTime();
+            server.publish(engine);
+            if (publishNanos != null) {
+                publishNanos[(int) (published[0]++ % publishNanos.length)] = System.nanoTime() - start;
+            }
+        }, 0, 1_000_000_000L / GameEngine.TICKS_PER_SECOND, TimeUnit.NANOSECONDS);
+        return loop;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8643;
+        SpectatorServer server = new SpectatorServer(port);
+        server.start();
+        runBotGame(server, BenchmarkScene.SEED, null);
+        System.out.println("Broadcasting a bot game to spectators on port " + server.getPort());
+        while (true) {
+            Thread.sleep(5000);
+            System.out.printf("%d spectators, %d frames, %d keyframes, %d skips, %d ticks dropped, %.1f KB sent%n",
+                server.getSpectators(), server.getFrames(), server.getKeyframes(), server.getSkips(),
+                server.getDropped(), server.getSentBytes() / 1024.0);
+            if (server.getProblem() != null) {
+                System.out.println(server.getProblem());
+                System.exit(1);
+            }
+        }
+    }
+
+    private static final class Tracked {
+        final int id;
+        int seen;
+
+        Tracked(int id, int seen) {
+            this.id = id;
+            this.seen = seen;
+        }
+    }
+
+    private static final class Spectator {
+        final SocketChannel channel;
+        SelectionKey key;
+        // Frames not yet fully written, oldest first, and where each starts in the ring
+        final ByteBuffer[] queue = new ByteBuffer[MAX_QUEUED];
+        final long[] starts = new long[MAX_QUEUED];
+        int queued;
+        // Joined, or skipped, and not yet sent a keyframe
+        boolean waiting = true;
+        boolean closed;
+
+        Spectator(SocketChannel channel) { this.channel = channel; }
+
+        void enqueue(ByteBuffer frame, long start) {
+            queue[queued] = frame;
+            starts[queued] = start;
+            queued++;
+        }
+    }
+
+    // One update's worth of what spectators see, at SpectatorView's scale. The bubbles
+    // themselves are kept only as identities, to tell spawns and kills from moves.
+    static final class Snapshot {
+        int score, lives, level, timeRemaining;
+        boolean gameOver, levelComplete;
+        int players;
+        final short[] playerX = new short[2];
+        final byte[] playerDirection = new byte[2];
+        int projectiles;
+        short[] projectileX = new short[4];
+        short[] projectileY = new short[4];
+        int bubbles;
+        Bubble[] refs = new Bubble[64];
+        byte[] sizes = new byte[64];
+        short[] x = new short[64];
+        short[] y = new short[64];
+
+        void capture(GameEngine engine) {
+            score = engine.getScore();
+            lives = engine.getLives();
+            level = engine.getLevel();
+            timeRemaining = engine.getTimeRemaining();
+            gameOver = engine.isGameOver();
+            levelComplete = engine.isLevelComplete();
+            players = engine.getPlayer2() != null ? 2 : 1;
+            capturePlayer(0, engine.getPlayer());
+            if (players == 2) {
+                capturePlayer(1, engine.getPlayer2());
+            }
+
+            List<Projectile> shots = engine.getProjectiles();
+            projectiles = Math.min(shots.size(), SpectatorView.MAX_PROJECTILES);
+            if (projectiles > projectileX.length) {
+                projectileX = Arrays.copyOf(projectileX, projectiles);
+                projectileY = Arrays.copyOf(projectileY, projectiles);
+            }
+            for (int i = 0; i < projectiles; i++) {
+                projectileX[i] = SpectatorView.quantize(shots.get(i).getX());
+                projectileY[i] = SpectatorView.quantize(shots.get(i).getY());
+            }
+
+            List<Bubble> list = engine.getBubbles();
+            int previous = bubbles;
+            bubbles = list.size();
+            if (bubbles > refs.length) {
+                int capacity = Math.max(bubbles, refs.length * 2);
+                refs = Arrays.copyOf(refs, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+            }
+            for (int i = 0; i < bubbles; i++) {
+                Bubble bubble = list.get(i);
+                refs[i] = bubble;
+                sizes[i] = (byte) bubble.getSize();
+                x[i] = SpectatorView.quantize(bubble.getX());
+                y[i] = SpectatorView.quantize(bubble.getY());
+            }
+            if (previous > bubbles) {
+                // Don't keep popped bubbles reachable
+                Arrays.fill(refs, bubbles, previous, null);
+            }
+        }
+
+        private void capturePlayer(int i, Player player) {
+            playerX[i] = SpectatorView.quantize(player.getX());
+            playerDirection[i] = (byte) player.getDirection();
+        }
+
+        boolean playersChanged(SpectatorView view) {
+            if (players != view.players) {
+                return true;
+            }
+            for (int i = 0; i < players; i++) {
+                if (playerX[i] != view.playerX[i] || playerDirection[i] != view.playerDirection[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean projectilesChanged(SpectatorView view) {
+            if (projectiles != view.projectiles) {
+                return true;
+            }
+            for (int i = 0; i < projectiles; i++) {
+                if (projectileX[i] != view.projectileX[i] || projectileY[i] != view.projectileY[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// What a spectator knows about a broadcast game: score, lives, level, timer, the players and
+// harpoons, and every bubble under the id the server gave it, positions in 1/4 pixel so a short
+// spans the widest arena. SpectatorServer keeps one to diff snapshots against and each client
+// keeps one it applies frames to. Both hash it the same way, and every frame ends with the
+// hash the client should reach after applying it.
+//
+// Frame: int length of the rest, byte kind, int frame number, byte mask of the header fields
+// that follow, then a short count of bubble records. Each record starts with a short: the top
+// two bits say MOVE (byte dx, byte dy), JUMP (short x, short y), SPAWN (byte size, short x,
+// short y) or KILL, the rest are the bubble id. A keyframe has every header field and spawns
+// every bubble on a cleared view. Last comes the int hash.
+public class SpectatorView {
+    public static final int SCALE = 4;
+    public static final int MAX_BUBBLES = 1 << 14;
+    public static final int MAX_PROJECTILES = 255;
+
+    static final byte KEYFRAME = 1, DELTA = 2;
+    static final int SCORE = 1, LIVES = 2, LEVEL = 4, TIME = 8, FLAGS = 16, PLAYERS = 32, PROJECTILES = 64;
+    static final int ALL = 127;
+    static final int MOVE = 0, JUMP = 1 << 14, SPAWN = 2 << 14, KILL = 3 << 14;
+
+    int frame = -1;
+    int score, lives, level, timeRemaining;
+    boolean gameOver, levelComplete;
+    int players;
+    final short[] playerX = new short[2];
+    final byte[] playerDirection = new byte[2];
+    int projectiles;
+    short[] projectileX = new short[4];
+    short[] projectileY = new short[4];
+
+    final boolean[] live = new boolean[MAX_BUBBLES];
+    final byte[] size = new byte[MAX_BUBBLES];
+    final short[] x = new short[MAX_BUBBLES];
+    final short[] y = new short[MAX_BUBBLES];
+    int bubbleCount;
+    // Sum of the bubbles' own hashes, so spawns, moves and kills update it in O(1)
+    private long bubbleHash;
+
+    public static short quantize(double value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * SCALE)));
+    }
+
+    void spawn(int id, int bubbleSize, int bx, int by) {
+        live[id] = true;
+        size[id] = (byte) bubbleSize;
+        x[id] = (short) bx;
+        y[id] = (short) by;
+        bubbleCount++;
+        bubbleHash += bubbleHash(id, bubbleSize, bx, by);
+    }
+
+    void move(int id, int bx, int by) {
+        bubbleHash -= bubbleHash(id, size[id], x[id], y[id]);
+        x[id] = (short) bx;
+        y[id] = (short) by;
+        bubbleHash += bubbleHash(id, size[id], bx, by);
+    }
+
+    void kill(int id) {
+        bubbleHash -= bubbleHash(id, size[id], x[id], y[id]);
+        live[id] = false;
+        bubbleCount--;
+    }
+
+    void clear() {
+        Arrays.fill(live, false);
+        bubbleCount = 0;
+        bubbleHash = 0;
+    }
+
+    void setProjectileCount(int count) {
+        if (count > projectileX.length) {
+            projectileX = Arrays.copyOf(projectileX, Math.max(count, projectileX.length * 2));
+            projectileY = Arrays.copyOf(projectileY, projectileX.length);
+        }
+        projectiles = count;
+    }
+
+    private static long bubbleHash(int id, int bubbleSize, int bx, int by) {
+        long v = ((long) id << 40) ^ ((long) bubbleSize << 32) ^ ((bx & 0xFFFFL) << 16) ^ (by & 0xFFFFL);
+        v *= 0x9E3779B97F4A7C15L;
+        return v ^ (v >>> 29);
+    }
+
+    public int hash() {
+        long h = bubbleHash;
+        h = h * 31 + score;
+        h = h * 31 + lives;
+        h = h * 31 + level;
+        h = h * 31 + timeRemaining;
+        h = h * 31 + (gameOver ? 1 : 0) + (levelComplete ? 2 : 0);
+        for (int i = 0; i < players; i++) {
+            h = h * 31 + playerX[i];
+            h = h * 31 + playerDirection[i];
+        }
+        for (int i = 0; i < projectiles; i++) {
+            h = h * 31 + projectileX[i];
+            h = h * 31 + projectileY[i];
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Applies one frame (without its length prefix); true if the view now hashes as the server's did
+    public boolean apply(ByteBuffer in) {
+        byte kind = in.get();
+        if (kind == KEYFRAME) {
+            clear();
+        }
+        frame = in.getInt();
+        int mask = in.get();
+        if ((mask & SCORE) != 0) score = in.getInt();
+        if ((mask & LIVES) != 0) lives = in.get();
+        if ((mask & LEVEL) != 0) level = in.getShort();
+        if ((mask & TIME) != 0) timeRemaining = in.getShort();
+        if ((mask & FLAGS) != 0) {
+            int flags = in.get();
+            gameOver = (flags & 1) != 0;
+            levelComplete = (flags & 2) != 0;
+        }
+        if ((mask & PLAYERS) != 0) {
+            players = in.get();
+            for (int i = 0; i < players; i++) {
+                playerX[i] = in.getShort();
+                playerDirection[i] = in.get();
+            }
+        }
+        if ((mask & PROJECTILES) != 0) {
+            setProjectileCount(in.get() & 0xFF);
+            for (int i = 0; i < projectiles; i++) {
+                projectileX[i] = in.getShort();
+                projectileY[i] = in.getShort();
+            }
+        }
+        int records = in.getShort() & 0xFFFF;
+        for (int r = 0; r < records; r++) {
+            int tag = in.getShort() & 0xFFFF;
+            int id = tag & (MAX_BUBBLES - 1);
+            switch (tag & ~(MAX_BUBBLES - 1)) {
+                case MOVE:
+                    int dx = in.get();
+                    move(id, x[id] + dx, y[id] + in.get());
+                    break;
+                case JUMP:
+                    int jx = in.getShort();
+                    move(id, jx, in.getShort());
+                    break;
+                case SPAWN:
+                    int bubbleSize = in.get();
+                    int sx = in.getShort();
+                    spawn(id, bubbleSize, sx, in.getShort());
+                    break;
+                default:
+                    kill(id);
+            }
+        }
+        return in.getInt() == hash();
+    }
+
+    public static boolean isKeyframe(ByteBuffer frame) { return frame.get(frame.position()) == KEYFRAME; }
+    public static int frameNumber(ByteBuffer frame) { return frame.getInt(frame.position() + 1); }
+
+    public int getFrame() { return frame; }
+    public int getScore() { return score; }
+    public int getLives() { return lives; }
+    public int getLevel() { return level; }
+    public int getTimeRemaining() { return timeRemaining; }
+    public int getBubbleCount() { return bubbleCount; }
+}
@@ -0,0 +1,157 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Gameplay and effects parameters that can be changed while the game runs (TuningWatcher).
+// A snapshot is immutable and one is active at a time: hot paths read Tuning.active() as a
+// volatile field, with no locking, and the game loop swaps in a newly loaded snapshot only
+// between ticks (apply()), telling the engine what the old one was (GameEngine.tuningChanged). The defaults are the Constants values, so an untuned game is unchanged.
+//
+// File: a properties file with any of the keys below; a key left out keeps its default. A file
+// with any bad line is rejected whole and the running snapshot stays.
+public final class Tuning {
+    public static final Tuning DEFAULTS = new Tuning();
+
+    // Written by the game loop only; volatile for the threads that read it alongside
+    private static volatile Tuning active = DEFAULTS;
+    // Latest snapshot loaded by the watcher thread, waiting for the next apply()
+    private static volatile Tuning loaded = DEFAULTS;
+
+    public final double gravity;
+    public final double playerSpeed;
+    // Horizontal speed of split bubbles, before the per-size factor; levels carry their own speeds
+    public final double bubbleSpeed;
+    public final double projectileSpeed;
+    public final int particleCountPop;
+    public final int particleCountDeath;
+    public final int particleCountCelebration;
+    public final int particleLifetime;
+    public final double particleSpeed;
+    public final int particleBudget;
+    public final int shakeDuration;
+    public final int shakeIntensity;
+    public final boolean particles;
+    public final boolean screenShake;
+    public final boolean glowEffects;
+    public final boolean shadows;
+    public final boolean backgroundStars;
+
+    private Tuning() {
+        gravity = Constants.GRAVITY;
+        playerSpeed = Constants.PLAYER_SPEED;
+        bubbleSpeed = Constants.BUBBLE_SPEED;
+        projectileSpeed = Constants.PROJECTILE_SPEED;
+        particleCountPop = Constants.PARTICLE_COUNT_BUBBLE_POP;
+        particleCountDeath = Constants.PARTICLE_COUNT_DEATH;
+        particleCountCelebration = Constants.PARTICLE_COUNT_CELEBRATION;
+        particleLifetime = Constants.PARTICLE_LIFETIME;
+        particleSpeed = Constants.PARTICLE_SPEED;
+        particleBudget = Constants.PARTICLE_BUDGET;
+        shakeDuration = Constants.SHAKE_DURATION;
+        shakeIntensity = Constants.SHAKE_INTENSITY;
+        particles = Constants.ENABLE_PARTICLES;
+        screenShake = Constants.ENABLE_SCREEN_SHAKE;
+        glowEffects = Constants.ENABLE_GLOW_EFFECTS;
+        shadows = Constants.ENABLE_SHADOWS;
+        backgroundStars = Constants.ENABLE_BACKGROUND_STARS;
+    }
+
+    // Each value is read off `file`, falling back to the default; bad values are added to `errors`
+    private Tuning(Properties file, List<String> errors) {
+        Reader in = new Reader(file, errors);
+        gravity = in.decimal("gravity", DEFAULTS.gravity, 0.01, 5);
+        playerSpeed = in.decimal("player.speed", DEFAULTS.playerSpeed, 0.1, 50);
+        bubbleSpeed = in.decimal("bubble.speed", DEFAULTS.bubbleSpeed, 0.1, 20);
+        projectileSpeed = in.decimal("projectile.speed", DEFAULTS.projectileSpeed, 0.5, 100);
+        particleCountPop = in.integer("particle.count.pop", DEFAULTS.particleCountPop, 0, 200);
+        particleCountDeath = in.integer("particle.count.death", DEFAULTS.particleCountDeath, 0, 200);
+        particleCountCelebration = in.integer("particle.count.celebration", DEFAULTS.particleCountCelebration, 0, 500);
+        particleLifetime = in.integer("particle.lifetime", DEFAULTS.particleLifetime, 1, 600);
+        particleSpeed = in.decimal("particle.speed", DEFAULTS.particleSpeed, 0, 50);
+        particleBudget = in.integer("particle.budget", DEFAULTS.particleBudget, 0, 100_000);
+        shakeDuration = in.integer("shake.duration", DEFAULTS.shakeDuration, 0, 120);
+        shakeIntensity = in.integer("shake.intensity", DEFAULTS.shakeIntensity, 0, 50);
+        particles = in.flag("effects.particles", DEFAULTS.particles);
+        screenShake = in.flag("effects.shake", DEFAULTS.screenShake);
+        glowEffects = in.flag("effects.glow", DEFAULTS.glowEffects);
+        shadows = in.flag("effects.shadows", DEFAULTS.shadows);
+        backgroundStars = in.flag("effects.stars", DEFAULTS.backgroundStars);
+        for (String key : file.stringPropertyNames()) {
+            if (!in.known.contains(key)) {
+                errors.add("unknown key " + key);
+            }
+        }
+    }
+
+    // The snapshot a file describes over the defaults, or null with the reasons in `errors`
+    public static Tuning parse(Properties file, List<String> errors) {
+        Tuning tuning = new Tuning(file, errors);
+        return errors.isEmpty() ? tuning : null;
+    }
+
+    public static Tuning active() { return active; }
+
+    // Watcher side: hands over a snapshot for the game loop to apply
+    static void load(Tuning tuning) { loaded = tuning; }
+
+    // Game loop side, between ticks: switches to the latest loaded snapshot; true if it changed
+    public static boolean apply() {
+        Tuning next = loaded;
+        if (next == active) {
+            return false;
+        }
+        active = next;
+        return true;
+    }
+
+    private static class Reader {
+        final Properties file;
+        final List<String> errors;
+        final List<String> known = new ArrayList<>();
+
+        Reader(Properties file, List<String> errors) {
+            this.file = file;
+            this.errors = errors;
+        }
+
+        double decimal(String key, double fallback, double min, double max) {
+            known.add(key);
+            String value = file.getProperty(key);
+            if (value == null) return fallback;
+            try {
+                double parsed = Double.parseDouble(value.trim());
+                if (parsed >= min && parsed <= max) return parsed;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            errors.add(key + "=" + value + " is not a number from " + min + " to " + max);
+            return fallback;
+        }
+
+        int integer(String key, int fallback, int min, int max) {
+            known.add(key);
+            String value = file.getProperty(key);
+            if (value == null) return fallback;
+            try {
+                int parsed = Integer.parseInt(value.trim());
+                if (parsed >= min && parsed <= max) return parsed;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            errors.add(key + "=" + value + " is not a whole number from " + min + " to " + max);
+            return fallback;
+        }
+
+        boolean flag(String key, boolean fallback) {
+            known.add(key);
+            String value = file.getProperty(key);
+            if (value == null) return fallback;
+            if (value.trim().equalsIgnoreCase("true")) return true;
+            if (value.trim().equalsIgnoreCase("false")) return false;
+            errors.add(key + "=" + value + " is not true or false");
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package game;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// Loads a Tuning file, then reloads it whenever it changes, from a daemon thread watching the
+// file's directory. Each good load goes to Tuning.load() for the game loop to apply between
+// ticks; a bad file is kept as a problem for the game to show and the running values stay.
+// -Dbubble.tuning=<file> (GamePanel). Check: java -cp bin game.TuningWatcher
+public class TuningWatcher {
+    // Editors save in several writes (truncate, write, rename); wait for them to go quiet
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Path file;
+    private final WatchService watcher;
+    private final Thread thread;
+    private volatile int reloads;
+    // Why the file on disk isn't the one running, null once a load succeeds
+    private volatile String problem;
+
+    public TuningWatcher(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.watcher = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "tuning-watcher");
+        thread.setDaemon(true);
+        reload();
+    }
+
+    public void start() { thread.start(); }
+
+    public void stop() {
+        try {
+            watcher.close();
+            thread.join(1000);
+        } catch (IOException e) {
+            // The thread ends when the service is closed, even if closing failed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Good loads so far, the first one included
+    public int getReloads() { return reloads; }
+    public String getProblem() { return problem; }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = touchesFile(key);
+                if (changed) {
+                    while ((key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        touchesFile(key);
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    private boolean touchesFile(WatchKey key) {
+        boolean touches = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            touches |= event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return touches;
+    }
+
+    private void reload() {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            problem = "Could not read tuning file " + file + ": " + e.getMessage();
+            return;
+        }
+        List<String> errors = new ArrayList<>();
+        Tuning tuning = Tuning.parse(properties, errors);
+        if (tuning == null) {
+            problem = "Tuning file " + file + " ignored: " + String.join("; ", errors);
+            return;
+        }
+        Tuning.load(tuning);
+        reloads++;
+        problem = null;
+    }
+
+    // Rewrites a tuning file while a stand-in game loop ticks: every change must arrive, whole,
+    // between ticks, a bad file must leave the running values alone, and keys taken out of the
+    // file must go back to their defaults
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("tuning");
+        Path file = dir.resolve("tuning.properties");
+        // Each version k pairs gravity 0.5 + k/100 with player speed k
+        Files.writeString(file, "gravity=0.51\nplayer.speed=1\n");
+        TuningWatcher watcher = new TuningWatcher(file);
+        watcher.start();
+        boolean ok = Tuning.apply() && Tuning.active().playerSpeed == 1;
+        for (int k = 2; k <= 20 && ok; k++) {
+            int version = k;
+            Files.writeString(file, "gravity=" + (0.5 + k / 100.0) + "\nplayer.speed=" + k + "\n");
+            ok = awaitTick(t -> t.playerSpeed == version, t -> Math.round((t.gravity - 0.5) * 100) == t.playerSpeed);
+        }
+        Files.writeString(file, "gravity=zero\nplayer.speed=3\n");
+        Thread.sleep(500);
+        Tuning.apply();
+        if (ok && (Tuning.active().playerSpeed != 20 || watcher.getProblem() == null)) {
+            System.out.println("FAIL: a bad file changed the running values or went unreported");
+            ok = false;
+        }
+        Files.writeString(file, "particle.count.pop=3\n");
+        ok = ok && awaitTick(t -> t.particleCountPop == 3 && t.gravity == Constants.GRAVITY
+            && t.playerSpeed == Constants.PLAYER_SPEED, t -> true) && watcher.getProblem() == null;
+        watcher.stop();
+        Files.delete(file);
+        Files.delete(dir);
+        System.out.println((ok ? "PASS" : "FAIL") + ": " + watcher.getReloads() + " reloads");
+        ok &= reloadsMidFlight();
+        System.exit(ok ? 0 : 1);
+    }
+
+    // Swaps gravity and player speed back and forth while bubbles are in the air, on one screen
+    // and in an arena, at one and at several ticks an update. After every update that cost no
+    // life, no bubble may be touching the player: one that is was a contact the game missed,
+    // from a bound or a catch-up worked out under the values before the swap
+    private static boolean reloadsMidFlight() {
+        Properties heavy = new Properties();
+        heavy.setProperty("gravity", "0.55");
+        heavy.setProperty("player.speed", "9");
+        Tuning[] versions = {Tuning.DEFAULTS, Tuning.parse(heavy, new ArrayList<>())};
+        int missed = 0, reloads = 0, deaths = 0;
+        for (int screens : new int[] {1, 5}) {
+            for (int ticksPerUpdate : new int[] {1, 4}) {
+                for (int run = 0; run < 8; run++) {
+                    GameEngine engine = new GameEngine(run, true);
+                    engine.setEffectsEnabled(false);
+                    engine.setArenaScreens(screens);
+                    engine.setTicksPerUpdate(ticksPerUpdate);
+                    Player player = engine.getPlayer();
+                    int period = 50 + 10 * run;
+                    for (int t = 0; t < 4000; t += ticksPerUpdate) {
+                        if (t % 60 < ticksPerUpdate) {
+                            Tuning.load(versions[t / 60 % 2]);
+                            Tuning old = Tuning.active();
+                            if (Tuning.apply()) {
+                                engine.tuningChanged(old);
+                                reloads++;
+                            }
+                        }
+                        player.setMovingLeft(t / period % 3 == 0);
+                        player.setMovingRight(t / period % 3 == 2);
+                        if (t % 32 < ticksPerUpdate) {
+                            engine.shoot();
+                        }
+                        int lives = engine.getLives();
+                        engine.update();
+                        if (engine.getLives() < lives) {
+                            deaths++;
+                        } else {
+                            for (Bubble bubble : engine.getBubbles()) {
+                                if (bubble.isActive() && bubble.collidesWith(player)) {
+                                    missed++;
+                                }
+                            }
+                        }
+                        if (engine.isGameOver()) {
+                            engine.restart();
+                        } else if (engine.isLevelComplete()) {
+                            engine.nextLevel();
+                        }
+                    }
+                }
+            }
+        }
+        Tuning.load(Tuning.DEFAULTS);
+        Tuning.apply();
+        System.out.printf("%s: %d reloads mid-flight, %d deaths, %d contacts missed%n",
+            missed == 0 ? "PASS" : "FAIL", reloads, deaths, missed);
+        return missed == 0;
+    }
+
+    // Ticks until `want` holds, checking that each tick sees one snapshot throughout and that
+    // every snapshot is `whole`, never part one version of the file and part another
+    private static boolean awaitTick(Predicate<Tuning> want, Predicate<Tuning> whole) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (System.nanoTime() < deadline) {
+            Tuning.apply();
+            Tuning start = Tuning.active();
+            Thread.sleep(1);
+            if (Tuning.active() != start) {
+                System.out.println("FAIL: the snapshot changed during a tick");
+                return false;
+            }
+            if (want.test(start)) {
+                return true;
+            }
+            if (!whole.test(start)) {
+                System.out.println("FAIL: half-applied file, gravity " + start.gravity + " player speed " + start.playerSpeed);
+                return false;
+            }
+        }
+        System.out.println("FAIL: change not picked up within 15 s");
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package game;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// BubbleStore's tick on jdk.incubator.vector lanes: the same operations as the scalar loops,
+// lane by lane, with each branch turned into a compare and blend, so results match to the bit.
+// Built on its own so the game builds without the incubator module; BubbleStore falls back to
+// its scalar loops when this class is missing or the JVM runs without the module.
+// Build: javac --add-modules jdk.incubator.vector -cp bin -d bin src/vector/java/game/*.java
+final class BubbleVectorKernel implements BubbleStore.Kernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void step(double[] x, double[] y, double[] vx, double[] vy, double[] size, int from, int to,
+                     double gravity, double width, double ground) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector s = DoubleVector.fromArray(SPECIES, size, i);
+            DoubleVector velocityX = DoubleVector.fromArray(SPECIES, vx, i);
+            DoubleVector velocityY = DoubleVector.fromArray(SPECIES, vy, i).add(gravity);
+            DoubleVector px = DoubleVector.fromArray(SPECIES, x, i).add(velocityX);
+            DoubleVector py = DoubleVector.fromArray(SPECIES, y, i).add(velocityY);
+
+            // Walls: reflect and clamp
+            DoubleVector maxX = DoubleVector.broadcast(SPECIES, width).sub(s);
+            VectorMask<Double> wall = px.compare(VectorOperators.LE, 0).or(px.compare(VectorOperators.GE, maxX));
+            velocityX = velocityX.blend(velocityX.neg(), wall);
+            px = px.blend(px.min(maxX).max(0), wall);
+
+            // Ground: always upward, at least 7, at most 12
+            DoubleVector floor = DoubleVector.broadcast(SPECIES, ground).sub(s);
+            VectorMask<Double> grounded = py.compare(VectorOperators.GE, floor);
+            DoubleVector up = velocityY.abs().neg();
+            up = up.blend(-12, up.compare(VectorOperators.LT, -12)).blend(-7, up.abs().compare(VectorOperators.LT, 5));
+            velocityY = velocityY.blend(up, grounded);
+            py = py.blend(floor, grounded);
+
+            // Ceiling
+            VectorMask<Double> ceiling = py.compare(VectorOperators.LE, 0);
+            velocityY = velocityY.blend(velocityY.abs(), ceiling);
+            py = py.blend(0, ceiling);
+
+            velocityX.intoArray(vx, i);
+            velocityY.intoArray(vy, i);
+            px.intoArray(x, i);
+            py.intoArray(y, i);
+        }
+        BubbleStore.stepScalar(x, y, vx, vy, size, i, to, gravity, width, ground);
+    }
+}